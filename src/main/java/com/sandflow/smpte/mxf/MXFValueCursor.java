@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.mxf;
+
+import com.sandflow.smpte.klv.KLVInputStream.ByteOrder;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.IDAU;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.smpte.util.UMID;
+import com.sandflow.smpte.util.UUID;
+import java.io.EOFException;
+
+/**
+ * Reads MXF data structures from a slice of a byte array. Unlike
+ * {@link MXFInputStream}, a single cursor can be reset to read successive
+ * values without allocating new objects. Values are decoded exactly as
+ * {@link MXFInputStream} decodes them.
+ */
+public class MXFValueCursor {
+
+    private byte[] bytes = new byte[0];
+    private int position = 0;
+    private int limit = 0;
+    private ByteOrder byteorder = ByteOrder.BIG_ENDIAN;
+
+    /**
+     * Positions the cursor at the start of an array of bytes, assuming big
+     * endian byte ordering.
+     *
+     * @param bytes Array of bytes. Must not be null.
+     * @return This cursor
+     */
+    public MXFValueCursor reset(byte[] bytes) {
+        return reset(bytes, 0, bytes.length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Positions the cursor at the start of a slice of an array of bytes.
+     *
+     * @param bytes Array of bytes. Must not be null.
+     * @param offset Offset of the first byte of the slice
+     * @param length Length of the slice
+     * @param byteorder Byte ordering of the slice
+     * @return This cursor
+     */
+    public MXFValueCursor reset(byte[] bytes, int offset, int length, ByteOrder byteorder) {
+
+        if (bytes == null || offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IllegalArgumentException();
+        }
+
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+        this.byteorder = byteorder;
+
+        return this;
+    }
+
+    /**
+     * @return Byte ordering used to read multi-byte values
+     */
+    public ByteOrder getByteOrder() {
+        return byteorder;
+    }
+
+    /**
+     * Changes the byte ordering used to read subsequent multi-byte values
+     *
+     * @param byteorder Byte ordering
+     */
+    public void setByteOrder(ByteOrder byteorder) {
+        this.byteorder = byteorder;
+    }
+
+    /**
+     * @return Underlying array of bytes
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    /**
+     * @return Index in the underlying array of the next byte to be read
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return Number of bytes that remain to be read
+     */
+    public int remaining() {
+        return limit - position;
+    }
+
+    /**
+     * Skips bytes
+     *
+     * @param n Number of bytes to skip
+     * @return Number of bytes actually skipped
+     */
+    public int skip(int n) {
+
+        n = Math.max(0, Math.min(n, remaining()));
+
+        position += n;
+
+        return n;
+    }
+
+    /**
+     * Reads bytes as {@link java.io.InputStream#read(byte[], int, int)} does
+     *
+     * @param b Destination
+     * @param off Offset in the destination
+     * @param len Maximum number of bytes to read
+     * @return Number of bytes read, or -1 if no bytes remain and len is not
+     * zero
+     */
+    public int read(byte[] b, int off, int len) {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (position >= limit) {
+            return -1;
+        }
+
+        len = Math.min(len, remaining());
+
+        System.arraycopy(bytes, position, b, off, len);
+
+        position += len;
+
+        return len;
+    }
+
+    public int read(byte[] b) {
+        return read(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b) throws EOFException {
+
+        if (remaining() < b.length) {
+            throw new EOFException();
+        }
+
+        read(b, 0, b.length);
+    }
+
+    public int readUnsignedByte() throws EOFException {
+
+        if (position >= limit) {
+            throw new EOFException();
+        }
+
+        return bytes[position++] & 0xFF;
+    }
+
+    public int readUnsignedShort() throws EOFException {
+
+        if (byteorder == ByteOrder.BIG_ENDIAN) {
+
+            int hi = readUnsignedByte();
+            int lo = readUnsignedByte();
+
+            return (hi << 8) + lo;
+
+        } else {
+
+            int lo = readUnsignedByte();
+            int hi = readUnsignedByte();
+
+            /* NOTE: same as KLVInputStream */
+            return lo + hi << 8;
+
+        }
+    }
+
+    public int readInt() throws EOFException {
+
+        int b0 = readUnsignedByte();
+        int b1 = readUnsignedByte();
+        int b2 = readUnsignedByte();
+        int b3 = readUnsignedByte();
+
+        if (byteorder == ByteOrder.BIG_ENDIAN) {
+
+            return (b0 << 24) + (b1 << 16) + (b2 << 8) + b3;
+
+        } else {
+
+            return b0 + (b1 << 8) + (b2 << 16) + (b3 << 24);
+
+        }
+    }
+
+    /**
+     * Reads a single UL.
+     *
+     * @return UL
+     * @throws EOFException
+     */
+    public UL readUL() throws EOFException {
+        byte[] ul = new byte[16];
+
+        readFully(ul);
+
+        return new UL(ul);
+    }
+
+    /**
+     * Reads a single AUID.
+     *
+     * @return AUID
+     * @throws EOFException
+     */
+    public AUID readAUID() throws EOFException {
+        byte[] auid = new byte[16];
+
+        readFully(auid);
+
+        return new AUID(auid);
+    }
+
+    private byte[] readUUIDBytes() throws EOFException {
+        byte[] uuid = new byte[16];
+
+        readFully(uuid);
+
+        if (byteorder == ByteOrder.LITTLE_ENDIAN) {
+
+            /* swap the 32-bit word of the UUID */
+            swap(uuid, 0, 3);
+            swap(uuid, 1, 2);
+
+            /* swap the first 16-bit word of the UUID */
+            swap(uuid, 4, 5);
+
+            /* swap the second 16-bit word of the UUID */
+            swap(uuid, 6, 7);
+        }
+
+        return uuid;
+    }
+
+    private static void swap(byte[] array, int i, int j) {
+        byte tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    /**
+     * Reads a single UUID.
+     *
+     * @return UUID
+     * @throws EOFException
+     */
+    public UUID readUUID() throws EOFException {
+        return new UUID(readUUIDBytes());
+    }
+
+    /**
+     * Reads a single IDAU.
+     *
+     * @return IDAU
+     * @throws EOFException
+     */
+    public IDAU readIDAU() throws EOFException {
+        return new IDAU(readUUIDBytes());
+    }
+
+    /**
+     * Reads a single UMID.
+     *
+     * @return UMID
+     * @throws EOFException
+     */
+    public UMID readUMID() throws EOFException {
+        byte[] umid = new byte[32];
+
+        readFully(umid);
+
+        return new UMID(umid);
+    }
+
+}
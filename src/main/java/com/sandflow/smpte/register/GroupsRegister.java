@@ -26,7 +26,9 @@
 package com.sandflow.smpte.register;
 
 import com.sandflow.smpte.register.exceptions.DuplicateEntryException;
+import com.sandflow.smpte.util.MutableLongPairMap;
 import com.sandflow.smpte.util.UL;
+import com.sandflow.util.xml.XMLPool;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
@@ -50,13 +52,13 @@ public abstract class GroupsRegister {
 
     private final HashMap<QualifiedSymbol, Entry> entriesBySymbol = new HashMap<>();
 
-    private final HashMap<UL, Entry> entriesByUL = new HashMap<>();
+    private final MutableLongPairMap<Entry> entriesByUL = new MutableLongPairMap<>();
 
     public GroupsRegister() {
     }
 
     public Entry getEntryByUL(UL ul) {
-        return entriesByUL.get(ul);
+        return ul == null ? null : entriesByUL.get(ul.getValue());
     }
 
     public Entry getEntryBySymbol(QualifiedSymbol qs) {
@@ -67,7 +69,7 @@ public abstract class GroupsRegister {
 
     public void toXML(Writer writer) throws JAXBException, IOException {
 
-        JAXBContext ctx = JAXBContext.newInstance(this.getClass());
+        JAXBContext ctx = XMLPool.getJAXBContext(this.getClass());
 
         Marshaller m = ctx.createMarshaller();
         m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
@@ -77,7 +79,7 @@ public abstract class GroupsRegister {
 
     public static GroupsRegister fromXML(Reader reader) throws JAXBException, IOException, DuplicateEntryException {
 
-        JAXBContext ctx = JAXBContext.newInstance(com.sandflow.smpte.register.brown_sauce.GroupsRegisterModel.class,
+        JAXBContext ctx = XMLPool.getJAXBContext(com.sandflow.smpte.register.brown_sauce.GroupsRegisterModel.class,
                         com.sandflow.smpte.register.catsup.GroupsRegisterModel.class);
 
         Unmarshaller m = ctx.createUnmarshaller();
@@ -105,7 +107,10 @@ public abstract class GroupsRegister {
                 );
             }
 
-            reg.entriesByUL.put(te.getUL(), te);
+            if (te.getUL() != null) {
+                reg.entriesByUL.put(te.getUL().getValue(), te);
+            }
+
             reg.entriesBySymbol.put(sym, te);
         }
 
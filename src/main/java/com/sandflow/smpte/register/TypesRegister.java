@@ -26,7 +26,9 @@
 package com.sandflow.smpte.register;
 
 import com.sandflow.smpte.register.exceptions.DuplicateEntryException;
+import com.sandflow.smpte.util.MutableLongPairMap;
 import com.sandflow.smpte.util.UL;
+import com.sandflow.util.xml.XMLPool;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
@@ -50,13 +52,13 @@ public abstract class TypesRegister {
     
     private final HashMap<QualifiedSymbol, Entry> entriesBySymbol = new HashMap<>();
 
-    private final HashMap<UL, Entry> entriesByUL = new HashMap<>();
+    private final MutableLongPairMap<Entry> entriesByUL = new MutableLongPairMap<>();
 
     public TypesRegister() {
     }
 
     public Entry getEntryByUL(UL ul) {
-        return entriesByUL.get(ul);
+        return ul == null ? null : entriesByUL.get(ul.getValue());
     }
 
     public Entry getEntryBySymbol(QualifiedSymbol qs) {
@@ -67,7 +69,7 @@ public abstract class TypesRegister {
 
     public void toXML(Writer writer) throws JAXBException, IOException {
 
-        JAXBContext ctx = JAXBContext.newInstance(this.getClass());
+        JAXBContext ctx = XMLPool.getJAXBContext(this.getClass());
 
         Marshaller m = ctx.createMarshaller();
         m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
@@ -77,7 +79,7 @@ public abstract class TypesRegister {
 
     public static TypesRegister fromXML(Reader reader) throws JAXBException, IOException, DuplicateEntryException {
 
-        JAXBContext ctx = JAXBContext.newInstance(com.sandflow.smpte.register.catsup.TypesRegisterModel.class);
+        JAXBContext ctx = XMLPool.getJAXBContext(com.sandflow.smpte.register.catsup.TypesRegisterModel.class);
 
         Unmarshaller m = ctx.createUnmarshaller();
         TypesRegister reg = (TypesRegister) m.unmarshal(reader);
@@ -104,7 +106,10 @@ public abstract class TypesRegister {
                 );
             }
 
-            reg.entriesByUL.put(te.getUL(), te);
+            if (te.getUL() != null) {
+                reg.entriesByUL.put(te.getUL().getValue(), te);
+            }
+
             reg.entriesBySymbol.put(sym, te);
         }
 
@@ -0,0 +1,568 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.klv.KLVInputStream;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.mxf.MXFFiles;
+import com.sandflow.smpte.mxf.PartitionPack;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.util.events.Event;
+import com.sandflow.util.events.EventHandler;
+import com.sandflow.util.xml.XMLPool;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+
+/**
+ * Extracts RegXML Fragments from many MXF files concurrently, using a single
+ * {@link FragmentEngine} and a fixed number of worker threads. The memory used
+ * by the files being processed at any one time is bounded by a budget, which
+ * is apportioned according to the HeaderByteCount of each partition.
+ */
+public class BatchExtractor implements AutoCloseable {
+
+    /**
+     * Estimated ratio between the memory used to process Header Metadata and
+     * its size in the file
+     */
+    private static final int HEADER_EXPANSION = 16;
+
+    /**
+     * Output format of the RegXML Fragments
+     */
+    public static enum Format {
+
+        /**
+         * XML document
+         */
+        XML,
+        /**
+         * JSON, as written by {@link JSONFragmentWriter}
+         */
+        JSON
+    }
+
+    /**
+     * Partition from which the Header Metadata is read
+     */
+    public static enum Partition {
+
+        /**
+         * Header partition
+         */
+        HEADER,
+        /**
+         * Footer partition
+         */
+        FOOTER,
+        /**
+         * Footer partition if available and Header partition otherwise
+         */
+        AUTO
+    }
+
+    /**
+     * Opens the sink to which the RegXML Fragment of an MXF file is written
+     */
+    public static interface OutputFactory {
+
+        /**
+         * Called only once the Fragment has been successfully built. The
+         * returned stream is closed by the BatchExtractor.
+         *
+         * @param mxffile Path of the MXF file
+         *
+         * @return Stream to which the Fragment is written
+         *
+         * @throws IOException
+         */
+        OutputStream open(Path mxffile) throws IOException;
+    }
+
+    /**
+     * Supplies the comments that precede the RegXML Fragment in XML output,
+     * e.g. the origin of the Fragment
+     */
+    public static interface CommentFactory {
+
+        /**
+         * Called from the worker threads.
+         *
+         * @param mxffile Path of the MXF file
+         * @param partition Partition from which the Header Metadata was read
+         *
+         * @return Ordered comments
+         */
+        List<String> getComments(Path mxffile, Partition partition);
+    }
+
+    /**
+     * Receives the outcome of each MXF file. Called from the worker threads.
+     */
+    public static interface ResultHandler {
+
+        void handle(Result result);
+    }
+
+    /**
+     * Outcome of the extraction of a single MXF file
+     */
+    public static class Result {
+
+        private final Path path;
+        private final Partition partition;
+        private final List<Event> events;
+        private final Exception exception;
+
+        Result(Path path, Partition partition, List<Event> events, Exception exception) {
+            this.path = path;
+            this.partition = partition;
+            this.events = Collections.unmodifiableList(events);
+            this.exception = exception;
+        }
+
+        /**
+         * @return Path of the MXF file
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return Partition from which the Header Metadata was read, or null
+         * if no partition could be read
+         */
+        public Partition getPartition() {
+            return partition;
+        }
+
+        /**
+         * @return Events raised while processing the file
+         */
+        public List<Event> getEvents() {
+            return events;
+        }
+
+        /**
+         * @return Exception that caused the extraction to fail, or null if
+         * the extraction succeeded
+         */
+        public Exception getException() {
+            return exception;
+        }
+
+        /**
+         * @return true if the Fragment was written to its sink
+         */
+        public boolean isSuccess() {
+            return exception == null;
+        }
+    }
+
+    private final FragmentEngine engine;
+    private final ExecutorService workers;
+    private final int maxInflight;
+    private final Semaphore inflight;
+    private final Semaphore budget;
+    private final int budgetKB;
+
+    /**
+     * Instantiates a BatchExtractor.
+     *
+     * @param engine MetaDictionary-derived state shared by all files. Must not
+     * be null.
+     * @param threads Number of worker threads. Must be positive.
+     * @param memoryBudget Approximate number of bytes of memory that the files
+     * processed concurrently may use. A single file is always processed, even
+     * if it exceeds the budget. Must be positive.
+     */
+    public BatchExtractor(FragmentEngine engine, int threads, long memoryBudget) {
+
+        if (engine == null || threads <= 0 || memoryBudget <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.engine = engine;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.maxInflight = 2 * threads;
+        this.inflight = new Semaphore(maxInflight);
+        this.budgetKB = (int) Math.max(1, Math.min(memoryBudget / 1024, Integer.MAX_VALUE));
+        this.budget = new Semaphore(budgetKB);
+    }
+
+    /**
+     * Extracts a RegXML Fragment from each MXF file and writes it to its own
+     * sink. Returns once all files have been processed. Files are not
+     * queued ahead of the worker threads, so files can be provided lazily.
+     *
+     * @param mxffiles Paths of the MXF files. Must not be null.
+     * @param rootclasskey Root class of the Fragments. The Preface class is
+     * used if null.
+     * @param partition Partition from which the Header Metadata is read. Must
+     * not be null.
+     * @param format Output format. Must not be null.
+     * @param outputs Opens the sink of each file. Must not be null.
+     * @param results Receives the outcome of each file. May be null.
+     *
+     * @return Number of files for which extraction failed
+     *
+     * @throws InterruptedException
+     */
+    public int extract(Iterable<Path> mxffiles,
+        UL rootclasskey,
+        Partition partition,
+        Format format,
+        OutputFactory outputs,
+        ResultHandler results) throws InterruptedException {
+
+        return extract(mxffiles, rootclasskey, partition, format, outputs, null, results);
+    }
+
+    /**
+     * Extracts a RegXML Fragment from each MXF file and writes it to its own
+     * sink. Returns once all files have been processed. Files are not
+     * queued ahead of the worker threads, so files can be provided lazily.
+     *
+     * @param mxffiles Paths of the MXF files. Must not be null.
+     * @param rootclasskey Root class of the Fragments. The Preface class is
+     * used if null.
+     * @param partition Partition from which the Header Metadata is read. Must
+     * not be null.
+     * @param format Output format. Must not be null.
+     * @param outputs Opens the sink of each file. Must not be null.
+     * @param comments Supplies the comments that precede each Fragment. Ignored
+     * unless the output format is XML. May be null.
+     * @param results Receives the outcome of each file. May be null.
+     *
+     * @return Number of files for which extraction failed
+     *
+     * @throws InterruptedException
+     */
+    public int extract(Iterable<Path> mxffiles,
+        final UL rootclasskey,
+        final Partition partition,
+        final Format format,
+        final OutputFactory outputs,
+        final CommentFactory comments,
+        final ResultHandler results) throws InterruptedException {
+
+        if (mxffiles == null || partition == null || format == null || outputs == null) {
+            throw new IllegalArgumentException();
+        }
+
+        final AtomicInteger failures = new AtomicInteger();
+
+        for (final Path mxffile : mxffiles) {
+
+            inflight.acquire();
+
+            workers.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+
+                        Result result = extractFile(mxffile, rootclasskey, partition, format, outputs, comments);
+
+                        if (!result.isSuccess()) {
+                            failures.incrementAndGet();
+                        }
+
+                        if (results != null) {
+                            results.handle(result);
+                        }
+
+                    } finally {
+
+                        inflight.release();
+
+                    }
+                }
+            });
+
+        }
+
+        /* wait for all files to complete */
+        inflight.acquire(maxInflight);
+        inflight.release(maxInflight);
+
+        return failures.get();
+    }
+
+    /**
+     * Extracts the RegXML Fragment of a single MXF file. Exceptions are
+     * reported in the returned Result.
+     */
+    Result extractFile(Path mxffile, UL rootclasskey, Partition partition, Format format, OutputFactory outputs, CommentFactory comments) {
+
+        final ArrayList<Event> events = new ArrayList<>();
+
+        EventHandler evthandler = new EventHandler() {
+
+            @Override
+            public boolean handle(Event evt) {
+                events.add(evt);
+                return true;
+            }
+        };
+
+        Partition actualpartition = partition == Partition.AUTO ? Partition.FOOTER : partition;
+
+        try (SeekableByteChannel f = Files.newByteChannel(mxffile)) {
+
+            Fragment fragment;
+
+            while (true) {
+
+                try {
+
+                    fragment = buildFragment(f, actualpartition, rootclasskey, format, evthandler);
+
+                    break;
+
+                } catch (InterruptedException e) {
+
+                    throw e;
+
+                } catch (Exception e) {
+
+                    if (actualpartition == Partition.FOOTER && partition == Partition.AUTO) {
+
+                        /* try again with the header partition */
+                        actualpartition = Partition.HEADER;
+
+                        events.clear();
+
+                        f.position(0);
+
+                    } else {
+
+                        throw e;
+
+                    }
+                }
+            }
+
+            /* failures to write the Fragment are not retried */
+            /* the Fragment holds its share of the memory budget until it is written */
+            try (Fragment fr = fragment; OutputStream os = outputs.open(mxffile)) {
+
+                fr.write(os, comments == null ? null : comments.getComments(mxffile, actualpartition));
+
+            }
+
+            return new Result(mxffile, actualpartition, events, null);
+
+        } catch (Exception e) {
+
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new Result(mxffile, null, events, e);
+
+        }
+    }
+
+    /**
+     * RegXML Fragment built from a partition, which holds its share of the
+     * memory budget until closed
+     */
+    private abstract class Fragment implements AutoCloseable {
+
+        private final int cost;
+
+        Fragment(int cost) {
+            this.cost = cost;
+        }
+
+        /**
+         * Serializes the Fragment, preceded by comments if the format allows
+         */
+        abstract void write(OutputStream os, List<String> comments) throws Exception;
+
+        @Override
+        public void close() {
+            budget.release(cost);
+        }
+    }
+
+    /**
+     * Builds the RegXML Fragment of a partition, once enough of the memory
+     * budget is available. The budget is released when the returned Fragment
+     * is closed.
+     */
+    private Fragment buildFragment(SeekableByteChannel f, Partition partition, UL rootclasskey, Format format, EventHandler evthandler) throws Exception {
+
+        long offset = partition == Partition.FOOTER ? MXFFiles.seekFooterPartition(f) : MXFFiles.seekHeaderPartition(f);
+
+        if (offset < 0) {
+            throw new IOException(partition == Partition.FOOTER ? "Footer partition not found" : "Header partition not found");
+        }
+
+        int cost = estimateCost(f);
+
+        f.position(offset);
+
+        budget.acquire(cost);
+
+        boolean built = false;
+
+        try {
+
+            Fragment fragment;
+
+            if (format == Format.JSON) {
+
+                /* JSON is serialized as it is built, and buffered in case the build fails */
+                final ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+                Writer writer = new OutputStreamWriter(json, StandardCharsets.UTF_8);
+
+                MXFFragmentBuilder.fromInputStream(Channels.newInputStream(f), engine, evthandler, rootclasskey, new JSONFragmentWriter(writer));
+
+                writer.flush();
+
+                fragment = new Fragment(cost) {
+
+                    @Override
+                    void write(OutputStream os, List<String> comments) throws IOException {
+                        json.writeTo(os);
+                    }
+                };
+
+            } else {
+
+                final Document doc = XMLPool.newDocument();
+
+                doc.setXmlStandalone(true);
+
+                final DOMFragmentWriter writer = new DOMFragmentWriter(doc);
+
+                MXFFragmentBuilder.fromInputStream(Channels.newInputStream(f), engine, evthandler, rootclasskey, writer);
+
+                fragment = new Fragment(cost) {
+
+                    @Override
+                    void write(OutputStream os, List<String> comments) throws TransformerException {
+
+                        if (comments != null) {
+                            for (String comment : comments) {
+                                doc.appendChild(doc.createComment(comment));
+                            }
+                        }
+
+                        doc.appendChild(writer.getFragment());
+
+                        Transformer tr = XMLPool.getTransformer();
+
+                        tr.setOutputProperty(OutputKeys.INDENT, "yes");
+                        tr.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+
+                        tr.transform(new DOMSource(doc), new StreamResult(os));
+                    }
+                };
+
+            }
+
+            built = true;
+
+            return fragment;
+
+        } finally {
+
+            if (!built) {
+                budget.release(cost);
+            }
+
+        }
+    }
+
+    /**
+     * Estimates, in KB, the memory needed to process the partition at the
+     * current position of the channel
+     */
+    private int estimateCost(SeekableByteChannel f) throws IOException, KLVException {
+
+        Triplet t = new KLVInputStream(Channels.newInputStream(f)).readTriplet();
+
+        PartitionPack pp = t == null ? null : PartitionPack.fromTriplet(t);
+
+        if (pp == null) {
+            return 1;
+        }
+
+        long kb = pp.getHeaderByteCount() / 1024 * HEADER_EXPANSION;
+
+        return (int) Math.max(1, Math.min(kb, budgetKB));
+    }
+
+    /**
+     * Waits for the worker threads to complete and releases them. If the
+     * calling thread is interrupted, returns without waiting and with the
+     * interrupt status of the thread set.
+     */
+    @Override
+    public void close() {
+
+        workers.shutdown();
+
+        try {
+
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+        }
+    }
+
+}
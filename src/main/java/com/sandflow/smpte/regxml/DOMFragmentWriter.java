@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Writes a RegXML Fragment to an XML DOM Document Fragment. Namespace prefixes
+ * are generated in the order in which namespaces are first encountered and are
+ * declared on the root element of the Fragment.
+ */
+public class DOMFragmentWriter implements FragmentWriter {
+
+    private final static String XMLNS_NS = "http://www.w3.org/2000/xmlns/";
+
+    private final Document document;
+    private final QualifiedNames qnames;
+    private DocumentFragment fragment;
+    private Node current;
+
+    /**
+     * Instantiates a DOMFragmentWriter
+     *
+     * @param document Document from which the XML DOM Document Fragment will
+     * be created. Must not be null.
+     */
+    public DOMFragmentWriter(Document document) {
+        this(document, new QualifiedNames());
+    }
+
+    DOMFragmentWriter(Document document, QualifiedNames qnames) {
+
+        if (document == null || qnames == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.document = document;
+        this.qnames = qnames;
+    }
+
+    /**
+     * @return XML DOM Document Fragment containing the last RegXML Fragment
+     * written, or null if no Fragment has been started
+     */
+    public DocumentFragment getFragment() {
+        return fragment;
+    }
+
+    @Override
+    public void startFragment() {
+        fragment = document.createDocumentFragment();
+        current = fragment;
+    }
+
+    @Override
+    public void endFragment() {
+
+        /* NOTE: Hack to clean-up namespace prefixes */
+        HashMap<URI, String> prefixes = new HashMap<>();
+
+        try {
+
+            for (QualifiedNames.Namespace ns : qnames.getNamespaces()) {
+                prefixes.put(new URI(ns.name), ns.prefix);
+            }
+
+        } catch (URISyntaxException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        for (Map.Entry<URI, String> entry : prefixes.entrySet()) {
+            ((Element) fragment.getFirstChild()).setAttributeNS(XMLNS_NS, "xmlns:" + entry.getValue(), entry.getKey().toString());
+        }
+
+        current = null;
+    }
+
+    @Override
+    public void startElement(String namespace, String localName) {
+
+        Element elem = document.createElementNS(namespace, qnames.getQualifiedName(namespace, localName));
+
+        current.appendChild(elem);
+
+        current = elem;
+    }
+
+    @Override
+    public void endElement() {
+        current = current.getParentNode();
+    }
+
+    @Override
+    public void attribute(String namespace, String localName, String value) {
+
+        Attr attr = document.createAttributeNS(namespace, qnames.getQualifiedName(namespace, localName));
+
+        attr.setTextContent(value);
+
+        ((Element) current).setAttributeNodeNS(attr);
+    }
+
+    @Override
+    public void text(String text) {
+        current.setTextContent(text);
+    }
+
+    @Override
+    public void comment(String comment) {
+        current.appendChild(document.createComment(comment));
+    }
+
+}
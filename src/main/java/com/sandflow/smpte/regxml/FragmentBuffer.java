@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Records the output of a {@link FragmentBuilder} so that it can be replayed
+ * later, in order, to another {@link FragmentWriter}. In addition to the
+ * FragmentWriter calls, the buffer can hold events, failures and placeholders
+ * for subtrees that are recorded in other buffers.
+ */
+final class FragmentBuffer implements FragmentWriter {
+
+    static final byte START_FRAGMENT = 0;
+    static final byte END_FRAGMENT = 1;
+    static final byte START_ELEMENT = 2;
+    static final byte END_ELEMENT = 3;
+    static final byte ATTRIBUTE = 4;
+    static final byte TEXT = 5;
+    static final byte COMMENT = 6;
+    static final byte EVENT = 7;
+    static final byte SUBTREE = 8;
+    static final byte FAILURE = 9;
+
+    private byte[] ops = new byte[64];
+    private int opcount = 0;
+    private final ArrayList<Object> args = new ArrayList<>();
+
+    private void add(byte op) {
+
+        if (opcount == ops.length) {
+            ops = Arrays.copyOf(ops, 2 * ops.length);
+        }
+
+        ops[opcount++] = op;
+    }
+
+    /**
+     * @return Number of operations in the buffer
+     */
+    int size() {
+        return opcount;
+    }
+
+    /**
+     * @param i Index of the operation
+     * @return Operation code
+     */
+    byte getOp(int i) {
+        return ops[i];
+    }
+
+    /**
+     * Arguments of all operations, in order. START_ELEMENT has two arguments,
+     * ATTRIBUTE three, START_FRAGMENT, END_FRAGMENT and END_ELEMENT none and
+     * all other operations one.
+     *
+     * @param i Index of the argument
+     * @return Argument
+     */
+    Object getArg(int i) {
+        return args.get(i);
+    }
+
+    @Override
+    public void startFragment() {
+        add(START_FRAGMENT);
+    }
+
+    @Override
+    public void endFragment() {
+        add(END_FRAGMENT);
+    }
+
+    @Override
+    public void startElement(String namespace, String localName) {
+        add(START_ELEMENT);
+        args.add(namespace);
+        args.add(localName);
+    }
+
+    @Override
+    public void endElement() {
+        add(END_ELEMENT);
+    }
+
+    @Override
+    public void attribute(String namespace, String localName, String value) {
+        add(ATTRIBUTE);
+        args.add(namespace);
+        args.add(localName);
+        args.add(value);
+    }
+
+    @Override
+    public void text(String text) {
+        add(TEXT);
+        args.add(text);
+    }
+
+    @Override
+    public void comment(String comment) {
+        add(COMMENT);
+        args.add(comment);
+    }
+
+    void event(FragmentBuilder.FragmentEvent evt) {
+        add(EVENT);
+        args.add(evt);
+    }
+
+    void subtree(Object subtree) {
+        add(SUBTREE);
+        args.add(subtree);
+    }
+
+    void failure(FragmentBuilder.RuleException e) {
+        add(FAILURE);
+        args.add(e);
+    }
+
+}
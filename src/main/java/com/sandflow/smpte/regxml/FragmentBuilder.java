@@ -29,8 +29,9 @@ import com.sandflow.smpte.klv.Group;
 import com.sandflow.smpte.klv.KLVInputStream.ByteOrder;
 import com.sandflow.smpte.klv.Triplet;
 import com.sandflow.smpte.klv.exceptions.KLVException;
-import com.sandflow.smpte.mxf.MXFInputStream;
+import com.sandflow.smpte.mxf.MXFValueCursor;
 import com.sandflow.smpte.mxf.Set;
+import com.sandflow.smpte.regxml.dict.DefinitionMetadataCache;
 import com.sandflow.smpte.regxml.dict.DefinitionResolver;
 import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
 import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
@@ -61,29 +62,30 @@ import com.sandflow.smpte.util.UL;
 import com.sandflow.smpte.util.UMID;
 import com.sandflow.smpte.util.UUID;
 import com.sandflow.util.events.Event;
-import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.io.UnsupportedEncodingException;
-import java.math.BigInteger;
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Logger;
-import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.DocumentFragment;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 /**
  * Builds a RegXML Fragment of a single KLV Group, typically a Header Metadata
- * MXF Set, using a collection of MetaDictionary definitions
+ * MXF Set, using a collection of MetaDictionary definitions. A FragmentBuilder
+ * holds the state of a single conversion and is not thread-safe; the
+ * dictionary-derived state is held by a {@link FragmentEngine}, which can be
+ * shared across threads.
  */
 public class FragmentBuilder {
 
@@ -229,7 +231,6 @@ public class FragmentBuilder {
     private static final UL ApplicationProductID_UL = UL.fromURN("urn:smpte:ul:060e2b34.01010102.05200701.07000000");
 
     private static final String REGXML_NS = "http://sandflow.com/ns/SMPTEST2001-1/baseline";
-    private final static String XMLNS_NS = "http://www.w3.org/2000/xmlns/";
 
     private static final String BYTEORDER_BE = "BigEndian";
     private static final String BYTEORDER_LE = "LittleEndian";
@@ -237,11 +238,30 @@ public class FragmentBuilder {
     private static final String ACTUALTYPE_ATTR = "actualType";
     private static final String ESCAPE_ATTR = "escape";
 
+    private static final int UTF16BE_DECODER = 0;
+    private static final int UTF16LE_DECODER = 1;
+    private static final int ASCII_DECODER = 2;
+    private static final int UTF8_DECODER = 3;
+
+    private final FragmentEngine engine;
     private final DefinitionResolver defresolver;
+    private final DefinitionMetadataCache metacache;
     private final Map<UUID, Set> setresolver;
-    private final HashMap<URI, String> nsprefixes = new HashMap<>();
+    private final QualifiedNames qnames = new QualifiedNames();
     private final AUIDNameResolver anameresolver;
     private final EventHandler evthandler;
+    private final ForkJoinPool pool;
+    private final FragmentBuffer recorder;
+
+    private FragmentWriter writer;
+    private final ArrayList<String> elementNames = new ArrayList<>();
+    private final ArrayList<String> instanceIDs = new ArrayList<>();
+    private StringBuilder capture;
+    private final CharsetDecoder[] decoders = new CharsetDecoder[4];
+    private final byte[] intbuf = new byte[8];
+    private final ArrayList<MXFValueCursor> cursors = new ArrayList<>();
+    private int cursorDepth = 0;
+    private final char[] numbuf = new char[20];
 
     /**
      * Resolves a AUID into a local name
@@ -278,16 +298,81 @@ public class FragmentBuilder {
             Map<UUID, Set> setresolver,
             AUIDNameResolver anameresolver,
             EventHandler evthandler) {
+        this(defresolver, setresolver, anameresolver, evthandler, null);
+    }
+
+    /**
+     * Instantiates a FragmentBuilder that builds the subtrees of strongly
+     * referenced groups concurrently using a ForkJoinPool. The resulting
+     * Fragment, including the order of events reported to the evthandler, is
+     * identical to the one built sequentially. The anameresolver, if any, is
+     * called from multiple threads and must be thread-safe.
+     *
+     * @param defresolver Maps Group Keys to MetaDictionary definitions. Must
+     * not be null;
+     * @param setresolver Resolves Strong References to groups. Must not be
+     * null.
+     * @param anameresolver Resolves a AUID to a human-readable symbol. May be
+     * null.
+     * @param evthandler Calls back the caller when an event occurs. May be
+     * null.
+     * @param pool Pool used to build subtrees concurrently. If null, the
+     * Fragment is built sequentially.
+     */
+    public FragmentBuilder(DefinitionResolver defresolver,
+            Map<UUID, Set> setresolver,
+            AUIDNameResolver anameresolver,
+            EventHandler evthandler,
+            ForkJoinPool pool) {
+        this(new FragmentEngine(defresolver, anameresolver, pool), setresolver, evthandler);
+    }
+
+    /**
+     * Instantiates a FragmentBuilder that holds the state of the conversion of
+     * a single MXF file, and shares the dictionary-derived state of a
+     * FragmentEngine. A FragmentBuilder can be reused for successive Fragments
+     * of the same file, but must not be used by more than one thread at a
+     * time.
+     *
+     * @param engine Dictionary-derived state. Must not be null.
+     * @param setresolver Resolves Strong References to groups. Must not be
+     * null.
+     * @param evthandler Calls back the caller when an event occurs. May be
+     * null.
+     */
+    public FragmentBuilder(FragmentEngine engine,
+            Map<UUID, Set> setresolver,
+            EventHandler evthandler) {
 
-        if (defresolver == null || setresolver == null) {
+        if (engine == null || setresolver == null) {
             throw new IllegalArgumentException();
 
         }
 
-        this.defresolver = defresolver;
+        this.engine = engine;
+        this.defresolver = engine.getDefinitionResolver();
+        this.metacache = engine.getMetadataCache();
         this.setresolver = setresolver;
-        this.anameresolver = anameresolver;
+        this.anameresolver = engine.getAUIDNameResolver();
         this.evthandler = evthandler;
+        this.pool = engine.getPool();
+        this.recorder = null;
+    }
+
+    /**
+     * Instantiates a FragmentBuilder that records a subtree, including its
+     * events, to a buffer
+     */
+    private FragmentBuilder(FragmentBuilder parent, FragmentBuffer recorder) {
+        this.engine = parent.engine;
+        this.defresolver = parent.defresolver;
+        this.metacache = parent.metacache;
+        this.setresolver = parent.setresolver;
+        this.anameresolver = parent.anameresolver;
+        this.evthandler = parent.evthandler;
+        this.pool = parent.pool;
+        this.recorder = recorder;
+        this.writer = recorder;
     }
 
     /**
@@ -351,6 +436,13 @@ public class FragmentBuilder {
         this(defresolver, setresolver, null);
     }
 
+    /**
+     * @return Dictionary-derived state used by this FragmentBuilder
+     */
+    public FragmentEngine getEngine() {
+        return engine;
+    }
+
     /**
      * Creates a RegXML Fragment, represented an XML DOM Document Fragment
      *
@@ -365,47 +457,220 @@ public class FragmentBuilder {
      */
     public DocumentFragment fromTriplet(Group group, Document document) throws KLVException, RuleException {
 
-        DocumentFragment df = document.createDocumentFragment();
+        DOMFragmentWriter writer = new DOMFragmentWriter(document, qnames);
 
-        applyRule3(df, group);
+        fromTriplet(group, writer);
 
-        /* NOTE: Hack to clean-up namespace prefixes */
-        for (Map.Entry<URI, String> entry : nsprefixes.entrySet()) {
-            ((Element) df.getFirstChild()).setAttributeNS(XMLNS_NS, "xmlns:" + entry.getValue(), entry.getKey().toString());
+        return writer.getFragment();
+    }
+
+    /**
+     * Creates a RegXML Fragment and writes it to a FragmentWriter
+     *
+     * @param group KLV Group for which the Fragment will be generated.
+     * @param writer Receives the RegXML Fragment. Must not be null.
+     *
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public void fromTriplet(Group group, FragmentWriter writer) throws KLVException, RuleException {
+
+        if (writer == null) {
+            throw new IllegalArgumentException();
         }
 
-        return df;
+        this.writer = writer;
+        this.elementNames.clear();
+        this.instanceIDs.clear();
+        this.capture = null;
+
+        try {
+
+            writer.startFragment();
+
+            if (pool == null) {
+
+                applyRule3(group);
+
+            } else {
+
+                /* build the fragment in the pool and replay it in document order */
+                replay(pool.invoke(new SubtreeTask(group, new ArrayList<String>(), null)));
+
+            }
+
+            writer.endFragment();
+
+        } catch (IOException e) {
+
+            throw new RuleException(e);
+
+        } finally {
+
+            this.writer = null;
+
+        }
+    }
+
+    private void replay(FragmentBuffer buffer) throws RuleException, IOException {
+
+        for (int i = 0, j = 0; i < buffer.size(); i++) {
+
+            switch (buffer.getOp(i)) {
+                case FragmentBuffer.START_ELEMENT:
+                    writer.startElement((String) buffer.getArg(j), (String) buffer.getArg(j + 1));
+                    j += 2;
+                    break;
+                case FragmentBuffer.END_ELEMENT:
+                    writer.endElement();
+                    break;
+                case FragmentBuffer.ATTRIBUTE:
+                    writer.attribute((String) buffer.getArg(j), (String) buffer.getArg(j + 1), (String) buffer.getArg(j + 2));
+                    j += 3;
+                    break;
+                case FragmentBuffer.TEXT:
+                    writer.text((String) buffer.getArg(j++));
+                    break;
+                case FragmentBuffer.COMMENT:
+                    writer.comment((String) buffer.getArg(j++));
+                    break;
+                case FragmentBuffer.EVENT:
+                    handleEvent((FragmentEvent) buffer.getArg(j++));
+                    break;
+                case FragmentBuffer.SUBTREE:
+                    replay(((SubtreeTask) buffer.getArg(j++)).join());
+                    break;
+                case FragmentBuffer.FAILURE:
+                    throw (RuleException) buffer.getArg(j++);
+                default:
+                    throw new IllegalStateException();
+            }
+
+        }
+
+    }
+
+    /**
+     * Builds the subtree rooted at a strongly-referenced group into its own
+     * buffer. Events are recorded in the buffer and handled when the buffer is
+     * replayed.
+     */
+    private class SubtreeTask extends RecursiveTask<FragmentBuffer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Group group;
+        private final ArrayList<String> ancestorIDs;
+        private final String parentName;
+
+        SubtreeTask(Group group, ArrayList<String> ancestorIDs, String parentName) {
+            this.group = group;
+            this.ancestorIDs = ancestorIDs;
+            this.parentName = parentName;
+        }
+
+        @Override
+        protected FragmentBuffer compute() {
+
+            FragmentBuffer buffer = new FragmentBuffer();
+
+            FragmentBuilder fb = new FragmentBuilder(FragmentBuilder.this, buffer);
+
+            fb.instanceIDs.addAll(ancestorIDs);
+
+            if (parentName != null) {
+                fb.elementNames.add(parentName);
+            }
+
+            try {
+
+                fb.applyRule3(group);
+
+            } catch (RuleException e) {
+
+                buffer.failure(e);
+
+            }
+
+            return buffer;
+        }
     }
 
-    private String getPrefix(URI ns) {
-        String prefix = this.nsprefixes.get(ns);
+    void startElement(String namespace, String localName) throws RuleException {
+        try {
+            writer.startElement(namespace, localName);
+        } catch (IOException e) {
+            throw new RuleException(e);
+        }
 
-        /* if prefix does not exist, create one */
-        if (prefix == null) {
-            prefix = "r" + this.nsprefixes.size();
+        elementNames.add(localName);
+    }
 
-            this.nsprefixes.put(ns, prefix);
+    void endElement() throws RuleException {
+        try {
+            writer.endElement();
+        } catch (IOException e) {
+            throw new RuleException(e);
         }
 
-        return prefix;
+        elementNames.remove(elementNames.size() - 1);
+    }
+
+    void setAttribute(String namespace, String localName, String value) throws RuleException {
+        try {
+            writer.attribute(namespace, localName, value);
+        } catch (IOException e) {
+            throw new RuleException(e);
+        }
     }
 
-    String getPrefix(String ns) {
+    void setTextContent(String text) throws RuleException {
+
+        if (capture != null) {
+            capture.append(text);
+        }
+
+        try {
+            writer.text(text);
+        } catch (IOException e) {
+            throw new RuleException(e);
+        }
+    }
 
+    void addInformativeComment(String comment) throws RuleException {
         try {
-            return getPrefix(new URI(ns));
-        } catch (URISyntaxException ex) {
-            throw new RuntimeException(ex);
+            writer.comment(comment);
+        } catch (IOException e) {
+            throw new RuleException(e);
         }
     }
 
-    void addInformativeComment(Element element, String comment) {
-        element.appendChild(element.getOwnerDocument().createComment(comment));
+    /**
+     * @return Local name of the current element
+     */
+    String getLocalName() {
+        return elementNames.get(elementNames.size() - 1);
+    }
+
+    /**
+     * Indicates whether an event of a given kind would be handled. Events, and
+     * the informative comments that accompany them, are not constructed
+     * otherwise.
+     */
+    boolean isEventEnabled(EventCodes code) {
+        return evthandler == null
+                || code.severity == Event.Severity.FATAL
+                || evthandler.isEnabled(code.severity);
     }
 
     void handleEvent(FragmentEvent evt) throws RuleException {
 
-        if (evthandler != null) {
+        if (recorder != null) {
+
+            /* events are handled when the subtree is replayed */
+            recorder.event(evt);
+
+        } else if (evthandler != null) {
 
             if (!evthandler.handle(evt)
                     || evt.getSeverity() == Event.Severity.FATAL) {
@@ -425,152 +690,204 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule3(Node node, Group group) throws RuleException {
+    /**
+     * Returns a cursor positioned at the start of a property value. Cursors are
+     * reused and each call must be matched by a call to releaseCursor().
+     */
+    private MXFValueCursor acquireCursor(byte[] value) {
+
+        if (cursorDepth == cursors.size()) {
+            cursors.add(new MXFValueCursor());
+        }
+
+        return cursors.get(cursorDepth++).reset(value);
+    }
+
+    private void releaseCursor() {
+        cursorDepth--;
+    }
+
+    void applyRule3(Group group) throws RuleException {
 
         Definition definition = defresolver.getDefinition(new AUID(group.getKey()));
 
         if (definition == null) {
 
-            handleEvent(new FragmentEvent(
-                    EventCodes.UNKNOWN_GROUP,
-                    String.format(
-                            "Unknown Group UL %s",
-                            group.getKey().toString()
-                    )
-            )
-            );
+            if (isEventEnabled(EventCodes.UNKNOWN_GROUP)) {
+
+                handleEvent(new FragmentEvent(
+                        EventCodes.UNKNOWN_GROUP,
+                        String.format(
+                                "Unknown Group UL %s",
+                                group.getKey().toString()
+                        )
+                )
+                );
+
+            }
 
             return;
         }
 
         if (definition.getIdentification().asUL().getVersion() != group.getKey().getVersion()) {
 
-            handleEvent(new FragmentEvent(
-                    EventCodes.VERSION_BYTE_MISMATCH,
-                    String.format(
-                            "Group UL %s in file does not have the same version as in the register (0x%02x)",
-                            group.getKey(),
-                            definition.getIdentification().asUL().getVersion()
-                    )
-            )
-            );
+            if (isEventEnabled(EventCodes.VERSION_BYTE_MISMATCH)) {
+
+                handleEvent(new FragmentEvent(
+                        EventCodes.VERSION_BYTE_MISMATCH,
+                        String.format(
+                                "Group UL %s in file does not have the same version as in the register (0x%02x)",
+                                group.getKey(),
+                                definition.getIdentification().asUL().getVersion()
+                        )
+                )
+                );
+
+            }
 
         }
 
-        Element objelem = node.getOwnerDocument().createElementNS(definition.getNamespace().toString(), definition.getSymbol());
+        startElement(metacache.getNamespaceName(definition), definition.getSymbol());
 
-        node.appendChild(objelem);
+        /* the instance ID of the object, once known, is used to detect cyclic references */
+        instanceIDs.add(null);
 
-        objelem.setPrefix(getPrefix(definition.getNamespace()));
+        try {
 
-        for (Triplet item : group.getItems()) {
+            for (Triplet item : group.getItems()) {
 
-            /* skip if the property is not defined in the registers */
-            Definition itemdef = defresolver.getDefinition(item.getKey());
+                /* skip if the property is not defined in the registers */
+                Definition itemdef = defresolver.getDefinition(item.getKey());
 
-            if (itemdef == null) {
+                if (itemdef == null) {
 
-                handleEvent(new FragmentEvent(
-                        EventCodes.UNKNOWN_PROPERTY,
-                        String.format(
-                                "Unknown property %s",
-                                item.getKey().toString()
-                        ),
-                        String.format(
-                                "Group %s",
-                                definition.getSymbol()
-                        )
-                )
-                );
+                    if (isEventEnabled(EventCodes.UNKNOWN_PROPERTY)) {
 
-                /* inserts the full value of the dark property as a comment */
-                addInformativeComment(
-                        objelem,
-                        String.format(
-                                "Unknown property\nKey: %s\nData: %s",
-                                item.getKey().toString(),
-                                bytesToString(item.getValue())
+                        handleEvent(new FragmentEvent(
+                                EventCodes.UNKNOWN_PROPERTY,
+                                String.format(
+                                        "Unknown property %s",
+                                        item.getKey().toString()
+                                ),
+                                String.format(
+                                        "Group %s",
+                                        definition.getSymbol()
+                                )
                         )
-                );
+                        );
 
-                continue;
+                        /* inserts the full value of the dark property as a comment */
+                        addInformativeComment(
+                                String.format(
+                                        "Unknown property\nKey: %s\nData: %s",
+                                        item.getKey().toString(),
+                                        bytesToString(item.getValue())
+                                )
+                        );
 
-            }
+                    }
 
-            /* make sure this is a property definition */
-            if (!(itemdef instanceof PropertyDefinition)) {
+                    continue;
 
-                FragmentEvent evt = new FragmentEvent(
-                        EventCodes.UNEXPECTED_DEFINITION,
-                        String.format(
-                                "Item %s is not a property",
-                                item.getKey().toString()
-                        ),
-                        String.format(
-                                "Group %s",
-                                definition.getSymbol()
-                        )
-                );
+                }
 
-                handleEvent(evt);
+                /* make sure this is a property definition */
+                if (!(itemdef instanceof PropertyDefinition)) {
 
-                addInformativeComment(objelem, evt.getReason());
+                    if (isEventEnabled(EventCodes.UNEXPECTED_DEFINITION)) {
 
-                continue;
-            }
+                        FragmentEvent evt = new FragmentEvent(
+                                EventCodes.UNEXPECTED_DEFINITION,
+                                String.format(
+                                        "Item %s is not a property",
+                                        item.getKey().toString()
+                                ),
+                                String.format(
+                                        "Group %s",
+                                        definition.getSymbol()
+                                )
+                        );
 
-            /* warn if version byte of the property does not match the register version byte  */
-            if (itemdef.getIdentification().asUL().getVersion() != item.getKey().asUL().getVersion()) {
+                        handleEvent(evt);
 
-                handleEvent(new FragmentEvent(
-                        EventCodes.VERSION_BYTE_MISMATCH,
-                        String.format(
-                                "Property UL %s in file does not have the same version as in the register (0x%02x)",
-                                item.getKey().toString(),
-                                itemdef.getIdentification().asUL().getVersion()
-                        ),
-                        String.format(
-                                "Group %s",
-                                definition.getSymbol()
+                        addInformativeComment(evt.getReason());
+
+                    }
+
+                    continue;
+                }
+
+                /* warn if version byte of the property does not match the register version byte  */
+                if (itemdef.getIdentification().asUL().getVersion() != item.getKey().asUL().getVersion()) {
+
+                    if (isEventEnabled(EventCodes.VERSION_BYTE_MISMATCH)) {
+
+                        handleEvent(new FragmentEvent(
+                                EventCodes.VERSION_BYTE_MISMATCH,
+                                String.format(
+                                        "Property UL %s in file does not have the same version as in the register (0x%02x)",
+                                        item.getKey().toString(),
+                                        itemdef.getIdentification().asUL().getVersion()
+                                ),
+                                String.format(
+                                        "Group %s",
+                                        definition.getSymbol()
+                                )
                         )
-                )
-                );
+                        );
 
-            }
+                    }
 
-            Element elem = node.getOwnerDocument().createElementNS(itemdef.getNamespace().toString(), itemdef.getSymbol());
+                }
+
+                boolean isInstanceID = item.getKey().equals(INSTANCE_UID_ITEM_UL);
+                boolean isUniqueID = ((PropertyDefinition) itemdef).isUniqueIdentifier();
+
+                startElement(metacache.getNamespaceName(itemdef), itemdef.getSymbol());
+
+                /* capture the text content of the property if needed */
+                StringBuilder prevcapture = capture;
+
+                if (isInstanceID || isUniqueID) {
+                    capture = new StringBuilder();
+                }
 
-            objelem.appendChild(elem);
+                /* write the property */
+                try {
+
+                    applyRule4(acquireCursor(item.getValue()), itemdef);
+
+                } finally {
 
-            elem.setPrefix(getPrefix(itemdef.getNamespace()));
+                    releaseCursor();
 
-            /* write the property */
-            applyRule4(elem, new MXFInputStream(item.getValueAsStream()), itemdef);
+                }
+
+                String text = null;
 
-            /* detect cyclic references  */
-            if (item.getKey().equals(INSTANCE_UID_ITEM_UL)) {
+                if (isInstanceID || isUniqueID) {
+                    text = capture.toString();
+                    capture = prevcapture;
+                }
 
-                String iidns = objelem.getLastChild().getNamespaceURI();
-                String iidname = objelem.getLastChild().getLocalName();
-                String iid = objelem.getLastChild().getTextContent();
+                endElement();
 
-                /* look for identical instanceID in parent elements */
-                Node parent = node;
+                /* detect cyclic references  */
+                if (isInstanceID) {
 
-                while (parent.getNodeType() == Node.ELEMENT_NODE) {
+                    /* look for identical instanceID in parent objects */
+                    if (instanceIDs.subList(0, instanceIDs.size() - 1).contains(text)) {
 
-                    for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+                        /* the comment is attached to the parent of the object */
+                        endElement();
 
-                        if (n.getNodeType() == Node.ELEMENT_NODE
-                                && iidname.equals(n.getLocalName())
-                                && iidns.equals(n.getNamespaceURI())
-                                && iid.equals(n.getTextContent())) {
+                        if (isEventEnabled(EventCodes.CIRCULAR_STRONG_REFERENCE)) {
 
                             FragmentEvent evt = new FragmentEvent(
                                     EventCodes.CIRCULAR_STRONG_REFERENCE,
                                     String.format(
                                             "Circular Strong Reference to Set UID %s",
-                                            iid
+                                            text
                                     ),
                                     String.format(
                                             "Group %s",
@@ -580,36 +897,37 @@ public class FragmentBuilder {
 
                             handleEvent(evt);
 
-                            addInformativeComment(
-                                    (Element) node,
-                                    evt.getReason()
-                            );
+                            addInformativeComment(evt.getReason());
 
-                            return;
                         }
+
+                        return;
                     }
 
-                    parent = parent.getParentNode();
-                }
+                    instanceIDs.set(instanceIDs.size() - 1, text);
 
-            }
+                }
 
-            /* add reg:uid if property is a unique ID */
-            if (((PropertyDefinition) itemdef).isUniqueIdentifier()) {
+                /* add reg:uid if property is a unique ID */
+                if (isUniqueID) {
 
-                Attr attr = node.getOwnerDocument().createAttributeNS(REGXML_NS, UID_ATTR);
+                    setAttribute(REGXML_NS, UID_ATTR, text);
 
-                attr.setPrefix(getPrefix(REGXML_NS));
-                attr.setTextContent(objelem.getLastChild().getTextContent());
+                }
 
-                objelem.setAttributeNodeNS(attr);
             }
 
+            endElement();
+
+        } finally {
+
+            instanceIDs.remove(instanceIDs.size() - 1);
+
         }
 
     }
 
-    void applyRule4(Element element, MXFInputStream value, Definition propdef) throws RuleException {
+    void applyRule4(MXFValueCursor value, Definition propdef) throws RuleException {
 
         try {
 
@@ -622,22 +940,26 @@ public class FragmentBuilder {
                 /* ISSUE: ST 2001-1 inverses these constants */
                 if (byteorder == 0x4D4D) {
 
-                    element.setTextContent(BYTEORDER_BE);
+                    setTextContent(BYTEORDER_BE);
 
                 } else if (byteorder == 0x4949) {
 
-                    element.setTextContent(BYTEORDER_LE);
+                    setTextContent(BYTEORDER_LE);
 
-                    FragmentEvent evt = new FragmentEvent(
-                            EventCodes.UNEXPECTED_BYTE_ORDER,
-                            "ByteOrder property set to little-endian: either the property is set"
-                            + "incorrectly or the file does not conform to MXF. Processing will"
-                            + "assume a big-endian byte order going forward."
-                    );
+                    if (isEventEnabled(EventCodes.UNEXPECTED_BYTE_ORDER)) {
 
-                    handleEvent(evt);
+                        FragmentEvent evt = new FragmentEvent(
+                                EventCodes.UNEXPECTED_BYTE_ORDER,
+                                "ByteOrder property set to little-endian: either the property is set"
+                                + "incorrectly or the file does not conform to MXF. Processing will"
+                                + "assume a big-endian byte order going forward."
+                        );
+
+                        handleEvent(evt);
+
+                        addInformativeComment(evt.getReason());
 
-                    addInformativeComment(element, evt.getReason());
+                    }
 
                 } else {
                     throw new RuleException("Unknown ByteOrder value.");
@@ -649,27 +971,31 @@ public class FragmentBuilder {
                     propdef = defresolver.getDefinition(((PropertyAliasDefinition) propdef).getOriginalProperty());
                 }
 
-                Definition typedef = findBaseDefinition(defresolver.getDefinition(((PropertyDefinition) propdef).getType()));
+                Definition typedef = metacache.getBaseDefinition(((PropertyDefinition) propdef).getType());
 
                 /* return if no type definition is found */
                 if (typedef == null) {
 
-                    FragmentEvent evt = new FragmentEvent(
-                            EventCodes.UNKNOWN_TYPE,
-                            String.format(
-                                    "Type %s not found",
-                                    ((PropertyDefinition) propdef).getType().toString()
-                            ),
-                            String.format(
-                                    "Property %s at Element %s",
-                                    propdef.getSymbol(),
-                                    element.getLocalName()
-                            )
-                    );
+                    if (isEventEnabled(EventCodes.UNKNOWN_TYPE)) {
 
-                    handleEvent(evt);
+                        FragmentEvent evt = new FragmentEvent(
+                                EventCodes.UNKNOWN_TYPE,
+                                String.format(
+                                        "Type %s not found",
+                                        ((PropertyDefinition) propdef).getType().toString()
+                                ),
+                                String.format(
+                                        "Property %s at Element %s",
+                                        propdef.getSymbol(),
+                                        getLocalName()
+                                )
+                        );
+
+                        handleEvent(evt);
+
+                        addInformativeComment(evt.getReason());
 
-                    addInformativeComment(element, evt.getReason());
+                    }
 
                     return;
 
@@ -697,7 +1023,15 @@ public class FragmentBuilder {
                                     && itemdef instanceof PropertyDefinition
                                     && ((PropertyDefinition) itemdef).isUniqueIdentifier()) {
 
-                                applyRule4(element, new MXFInputStream(item.getValueAsStream()), itemdef);
+                                try {
+
+                                    applyRule4(acquireCursor(item.getValue()), itemdef);
+
+                                } finally {
+
+                                    releaseCursor();
+
+                                }
 
                                 foundUniqueID = true;
 
@@ -709,44 +1043,52 @@ public class FragmentBuilder {
 
                         if (foundUniqueID != true) {
 
+                            if (isEventEnabled(EventCodes.MISSING_UNIQUE)) {
+
+                                FragmentEvent evt = new FragmentEvent(
+                                        EventCodes.MISSING_UNIQUE,
+                                        String.format(
+                                                "Target Primary Package with Instance UID %s has no IsUnique element.",
+                                                uuid.toString()
+                                        ),
+                                        String.format(
+                                                "Property %s at Element %s",
+                                                propdef.getSymbol(),
+                                                getLocalName()
+                                        )
+                                );
+
+                                handleEvent(evt);
+
+                                addInformativeComment(evt.getReason());
+
+                            }
+
+                        }
+
+                    } else {
+
+                        if (isEventEnabled(EventCodes.MISSING_PRIMARY_PACKAGE)) {
+
                             FragmentEvent evt = new FragmentEvent(
-                                    EventCodes.MISSING_UNIQUE,
+                                    EventCodes.MISSING_PRIMARY_PACKAGE,
                                     String.format(
-                                            "Target Primary Package with Instance UID %s has no IsUnique element.",
+                                            "Target Primary Package with Instance UID %s not found",
                                             uuid.toString()
                                     ),
                                     String.format(
                                             "Property %s at Element %s",
                                             propdef.getSymbol(),
-                                            element.getLocalName()
+                                            getLocalName()
                                     )
                             );
 
                             handleEvent(evt);
 
-                            addInformativeComment(element, evt.getReason());
+                            addInformativeComment(evt.getReason());
 
                         }
 
-                    } else {
-
-                        FragmentEvent evt = new FragmentEvent(
-                                EventCodes.MISSING_PRIMARY_PACKAGE,
-                                String.format(
-                                        "Target Primary Package with Instance UID %s not found",
-                                        uuid.toString()
-                                ),
-                                String.format(
-                                        "Property %s at Element %s",
-                                        propdef.getSymbol(),
-                                        element.getLocalName()
-                                )
-                        );
-
-                        handleEvent(evt);
-
-                        addInformativeComment(element, evt.getReason());
-
                     }
 
                 } else {
@@ -760,25 +1102,29 @@ public class FragmentBuilder {
                         typedef = defresolver.getDefinition(new AUID(UUID_UL));
                     }
 
-                    applyRule5(element, value, typedef);
+                    applyRule5(value, typedef);
                 }
             }
 
         } catch (EOFException eof) {
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.VALUE_LENGTH_MISMATCH,
-                    "Value too short",
-                    String.format(
-                            "Property %s at Element %s",
-                            propdef.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+            if (isEventEnabled(EventCodes.VALUE_LENGTH_MISMATCH)) {
+
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.VALUE_LENGTH_MISMATCH,
+                        "Value too short",
+                        String.format(
+                                "Property %s at Element %s",
+                                propdef.getSymbol(),
+                                getLocalName()
+                        )
+                );
 
-            handleEvent(evt);
+                handleEvent(evt);
+
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
         } catch (IOException ioe) {
 
@@ -788,42 +1134,42 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5(Element element, MXFInputStream value, Definition definition) throws RuleException, IOException {
+    void applyRule5(MXFValueCursor value, Definition definition) throws RuleException, IOException {
 
         if (definition instanceof CharacterTypeDefinition) {
-            applyRule5_1(element, value, (CharacterTypeDefinition) definition);
+            applyRule5_1(value, (CharacterTypeDefinition) definition);
         } else if (definition instanceof EnumerationTypeDefinition) {
-            applyRule5_2(element, value, (EnumerationTypeDefinition) definition);
+            applyRule5_2(value, (EnumerationTypeDefinition) definition);
         } else if (definition instanceof ExtendibleEnumerationTypeDefinition) {
-            applyRule5_3(element, value, (ExtendibleEnumerationTypeDefinition) definition);
+            applyRule5_3(value, (ExtendibleEnumerationTypeDefinition) definition);
         } else if (definition instanceof FixedArrayTypeDefinition) {
-            applyRule5_4(element, value, (FixedArrayTypeDefinition) definition);
+            applyRule5_4(value, (FixedArrayTypeDefinition) definition);
         } else if (definition instanceof IndirectTypeDefinition) {
-            applyRule5_5(element, value, (IndirectTypeDefinition) definition);
+            applyRule5_5(value, (IndirectTypeDefinition) definition);
         } else if (definition instanceof IntegerTypeDefinition) {
-            applyRule5_6(element, value, (IntegerTypeDefinition) definition);
+            applyRule5_6(value, (IntegerTypeDefinition) definition);
         } else if (definition instanceof OpaqueTypeDefinition) {
-            applyRule5_7(element, value, (OpaqueTypeDefinition) definition);
+            applyRule5_7(value, (OpaqueTypeDefinition) definition);
         } else if (definition instanceof RecordTypeDefinition) {
-            applyRule5_8(element, value, (RecordTypeDefinition) definition);
+            applyRule5_8(value, (RecordTypeDefinition) definition);
         } else if (definition instanceof RenameTypeDefinition) {
-            applyRule5_9(element, value, (RenameTypeDefinition) definition);
+            applyRule5_9(value, (RenameTypeDefinition) definition);
         } else if (definition instanceof SetTypeDefinition) {
-            applyRule5_10(element, value, (SetTypeDefinition) definition);
+            applyRule5_10(value, (SetTypeDefinition) definition);
         } else if (definition instanceof StreamTypeDefinition) {
-            applyRule5_11(element, value, (StreamTypeDefinition) definition);
+            applyRule5_11(value, (StreamTypeDefinition) definition);
         } else if (definition instanceof StringTypeDefinition) {
-            applyRule5_12(element, value, (StringTypeDefinition) definition);
+            applyRule5_12(value, (StringTypeDefinition) definition);
         } else if (definition instanceof StrongReferenceTypeDefinition) {
-            applyRule5_13(element, value, (StrongReferenceTypeDefinition) definition);
+            applyRule5_13(value, (StrongReferenceTypeDefinition) definition);
         } else if (definition instanceof VariableArrayTypeDefinition) {
-            applyRule5_14(element, value, (VariableArrayTypeDefinition) definition);
+            applyRule5_14(value, (VariableArrayTypeDefinition) definition);
         } else if (definition instanceof WeakReferenceTypeDefinition) {
-            applyRule5_15(element, value, (WeakReferenceTypeDefinition) definition);
+            applyRule5_15(value, (WeakReferenceTypeDefinition) definition);
         } else if (definition instanceof FloatTypeDefinition) {
-            applyRule5_alpha(element, value, (FloatTypeDefinition) definition);
+            applyRule5_alpha(value, (FloatTypeDefinition) definition);
         } else if (definition instanceof LensSerialFloatTypeDefinition) {
-            applyRule5_beta(element, value, (LensSerialFloatTypeDefinition) definition);
+            applyRule5_beta(value, (LensSerialFloatTypeDefinition) definition);
         } else {
 
             throw new RuleException(
@@ -837,127 +1183,213 @@ public class FragmentBuilder {
 
     }
 
-    private void readCharacters(Element element, MXFInputStream value, CharacterTypeDefinition definition, boolean isSingleChar) throws RuleException, IOException {
+    private CharsetDecoder getCharsetDecoder(int index, Charset cs) {
 
-        StringBuilder sb = new StringBuilder();
+        CharsetDecoder decoder = decoders[index];
+
+        if (decoder == null) {
+
+            /* NOTE: malformed input is replaced, as InputStreamReader does */
+            decoder = cs.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            decoders[index] = decoder;
+        }
+
+        return decoder;
+    }
+
+    private void readCharacters(MXFValueCursor value, CharacterTypeDefinition definition, boolean isSingleChar) throws RuleException, IOException {
 
-        Reader in = null;
+        CharsetDecoder decoder;
 
         if (definition.getIdentification().equals(Character_UL)) {
 
             if (value.getByteOrder() == ByteOrder.BIG_ENDIAN) {
 
-                in = new InputStreamReader(value, "UTF-16BE");
+                decoder = getCharsetDecoder(UTF16BE_DECODER, StandardCharsets.UTF_16BE);
 
             } else {
 
-                in = new InputStreamReader(value, "UTF-16LE");
+                decoder = getCharsetDecoder(UTF16LE_DECODER, StandardCharsets.UTF_16LE);
 
             }
 
         } else if (definition.getIdentification().equals(Char_UL)) {
 
-            in = new InputStreamReader(value, "US-ASCII");
+            decoder = getCharsetDecoder(ASCII_DECODER, StandardCharsets.US_ASCII);
 
         } else if (definition.getIdentification().equals(UTF8Character_UL)) {
 
             /* NOTE: Use of UTF-8 character encoding is specified in RP 2057 */
-            in = new InputStreamReader(value, "UTF-8");
+            decoder = getCharsetDecoder(UTF8_DECODER, StandardCharsets.UTF_8);
 
         } else {
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.UNSUPPORTED_CHAR_TYPE,
-                    String.format(
-                            "Character type %s is not supported at Element %s",
-                            definition.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+            if (isEventEnabled(EventCodes.UNSUPPORTED_CHAR_TYPE)) {
+
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.UNSUPPORTED_CHAR_TYPE,
+                        String.format(
+                                "Character type %s is not supported at Element %s",
+                                definition.getSymbol(),
+                                getLocalName()
+                        )
+                );
+
+                handleEvent(evt);
 
-            handleEvent(evt);
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
             return;
 
         }
 
-        char[] chars = new char[32];
+        /* decode all remaining bytes */
+        CharBuffer cb = decoder.decode(ByteBuffer.wrap(value.array(), value.position(), value.remaining()));
 
-        for (int c; (c = in.read(chars)) != -1;) {
-            sb.append(chars, 0, c);
-        }
+        value.skip(value.remaining());
 
-        StringBuilder esb = new StringBuilder();
+        char[] chars = cb.array();
+        int offset = cb.arrayOffset() + cb.position();
+        int limit = cb.arrayOffset() + cb.limit();
 
         /* remove trailing zeroes if requested */
         /* and escape characters per ST 2001-1 */
-        boolean isescaped = false;
+        StringBuilder esb = null;
+        int start = offset;
 
-        for (int i = 0; i < sb.length(); i++) {
-            char c = sb.charAt(i);
-            
-            if (c == 0 && (! isSingleChar)) break;
+        for (int i = offset; i < limit; i++) {
+            char c = chars[i];
+
+            if (c == 0 && (!isSingleChar)) {
+                limit = i;
+                break;
+            }
 
-            if (c == 0x09 ||
-                c == 0x0A ||
-                (c >= 0x20 && c <= 0x23) ||
-                c >= 0x25) {
+            if (c == 0x09
+                    || c == 0x0A
+                    || (c >= 0x20 && c <= 0x23)
+                    || c >= 0x25) {
+                continue;
+            }
 
-                    esb.append(c);
+            /* only copy the string if at least one character is escaped */
+            if (esb == null) {
+                esb = new StringBuilder(limit - offset + 16);
+            }
 
-                } else {
-                
-                    isescaped = true;
+            esb.append(chars, start, i - start);
 
-                    esb.append("$#x");
-                    esb.append(Integer.toString(c, 16));
-                    esb.append(";");
+            esb.append("$#x");
+            esb.append(Integer.toString(c, 16));
+            esb.append(";");
 
-                }
+            start = i + 1;
         }
 
-        if (isescaped) {
+        if (esb != null) {
+
+            esb.append(chars, start, limit - start);
+
+            setAttribute(REGXML_NS, ESCAPE_ATTR, "true");
+
+            setTextContent(esb.toString());
+
+        } else {
+
+            setTextContent(new String(chars, offset, limit - offset));
 
-            Attr attr = element.getOwnerDocument().createAttributeNS(REGXML_NS, ESCAPE_ATTR);
-            attr.setPrefix(getPrefix(REGXML_NS));
-            attr.setTextContent("true");
-            element.setAttributeNodeNS(attr);
-            
         }
-        
-        element.setTextContent(esb.toString());
 
     }
 
-    void applyRule5_1(Element element, MXFInputStream value, CharacterTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_1(MXFValueCursor value, CharacterTypeDefinition definition) throws RuleException, IOException {
+
+        readCharacters(value, definition, true /* do not remove trailing zeroes for a single char */);
+
+    }
+
+    /**
+     * Reads the big-endian representation of an integer into the integer
+     * buffer. Bytes that cannot be read are set to zero.
+     *
+     * @return Number of bytes read, or -1 if no bytes are available
+     */
+    private int readIntegerBytes(MXFValueCursor value, int len) throws IOException {
+
+        Arrays.fill(intbuf, 0, len, (byte) 0);
+
+        return value.read(intbuf, 0, len);
+    }
+
+    /**
+     * @return Value of the integer held in the integer buffer
+     */
+    private long getIntegerValue(int len, boolean isSigned) {
+
+        long val = 0;
+
+        for (int i = 0; i < len; i++) {
+            val = (val << 8) | (intbuf[i] & 0xFF);
+        }
 
-        readCharacters(element, value, definition, true /* do not remove trailing zeroes for a single char */);
+        /* sign-extend */
+        if (isSigned && len > 0 && len < 8) {
+            val = (val << (64 - 8 * len)) >> (64 - 8 * len);
+        }
 
+        return val;
     }
 
-    void applyRule5_2(Element element, MXFInputStream value, EnumerationTypeDefinition definition) throws RuleException, IOException {
+    private String toDecimalString(long val) {
+
+        if (val == 0) {
+            return "0";
+        }
+
+        int pos = numbuf.length;
+
+        /* digits are computed on the negative value to accommodate Long.MIN_VALUE */
+        for (long n = val < 0 ? val : -val; n != 0; n /= 10) {
+            numbuf[--pos] = (char) ('0' - (n % 10));
+        }
+
+        if (val < 0) {
+            numbuf[--pos] = '-';
+        }
+
+        return new String(numbuf, pos, numbuf.length - pos);
+    }
+
+    void applyRule5_2(MXFValueCursor value, EnumerationTypeDefinition definition) throws RuleException, IOException {
 
         try {
 
-            Definition bdef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
+            Definition bdef = metacache.getBaseDefinition(definition.getElementType());
 
             if (!(bdef instanceof IntegerTypeDefinition)) {
 
-                FragmentEvent evt = new FragmentEvent(
-                        EventCodes.UNSUPPORTED_ENUM_TYPE,
-                        "Enum does not have an Integer base type.",
-                        String.format(
-                                "Enum %s at Element %s",
-                                definition.getSymbol(),
-                                element.getLocalName()
-                        )
-                );
+                if (isEventEnabled(EventCodes.UNSUPPORTED_ENUM_TYPE)) {
 
-                handleEvent(evt);
+                    FragmentEvent evt = new FragmentEvent(
+                            EventCodes.UNSUPPORTED_ENUM_TYPE,
+                            "Enum does not have an Integer base type.",
+                            String.format(
+                                    "Enum %s at Element %s",
+                                    definition.getSymbol(),
+                                    getLocalName()
+                            )
+                    );
+
+                    handleEvent(evt);
+
+                    addInformativeComment(evt.getReason());
 
-                addInformativeComment(element, evt.getReason());
+                }
 
                 return;
             }
@@ -989,52 +1421,47 @@ public class FragmentBuilder {
                 }
             }
 
-            byte[] val = new byte[len];
-
-            int br = value.read(val);
+            int br = readIntegerBytes(value, len);
 
             String str = null;
 
-            if (br == 0) {
+            if (br <= 0) {
 
                 str = "ERROR";
 
-                FragmentEvent evt = new FragmentEvent(
-                        EventCodes.VALUE_LENGTH_MISMATCH,
-                        "No data",
-                        String.format(
-                                "Enum %s at Element %s",
-                                definition.getSymbol(),
-                                element.getLocalName()
-                        )
-                );
+                if (isEventEnabled(EventCodes.VALUE_LENGTH_MISMATCH)) {
 
-                handleEvent(evt);
+                    FragmentEvent evt = new FragmentEvent(
+                            EventCodes.VALUE_LENGTH_MISMATCH,
+                            "No data",
+                            String.format(
+                                    "Enum %s at Element %s",
+                                    definition.getSymbol(),
+                                    getLocalName()
+                            )
+                    );
 
-                addInformativeComment(element, evt.getReason());
+                    handleEvent(evt);
+
+                    addInformativeComment(evt.getReason());
+
+                }
 
             } else {
 
                 /* always try to read the value even if the length is not as expected */
-                BigInteger bi = idef.isSigned() ? new BigInteger(val) : new BigInteger(1, val);
+                long ival = getIntegerValue(len, idef.isSigned());
 
                 if (definition.getElementType().equals(Boolean_UL)) {
 
                     /* find the "true" enum element */
                     /* MXF can encode "true" as any value other than 0 */
-                    for (EnumerationTypeDefinition.Element e : definition.getElements()) {
-                        if ((bi.intValue() == 0 && e.getValue() == 0) || (bi.intValue() != 0 && e.getValue() == 1)) {
-                            str = e.getName();
-                        }
-                    }
+                    str = definition.getElementName(ival == 0 ? 0 : 1);
 
-                } else {
+                } else if (ival == (int) ival && (idef.isSigned() || ival >= 0)) {
 
-                    for (EnumerationTypeDefinition.Element e : definition.getElements()) {
-                        if (e.getValue() == bi.intValue()) {
-                            str = e.getName();
-                        }
-                    }
+                    /* values that do not fit in an int match no element */
+                    str = definition.getElementName((int) ival);
 
                 }
 
@@ -1042,124 +1469,124 @@ public class FragmentBuilder {
 
                     str = "UNDEFINED";
 
-                    FragmentEvent evt = new FragmentEvent(
-                            EventCodes.UNKNOWN_ENUM_VALUE,
-                            String.format(
-                                    "Undefined value %d",
-                                    bi.intValue()
-                            ),
-                            String.format(
-                                    "Enum %s at Element %s",
-                                    definition.getSymbol(),
-                                    element.getLocalName()
-                            )
-                    );
+                    if (isEventEnabled(EventCodes.UNKNOWN_ENUM_VALUE)) {
 
-                    handleEvent(evt);
+                        FragmentEvent evt = new FragmentEvent(
+                                EventCodes.UNKNOWN_ENUM_VALUE,
+                                String.format(
+                                        "Undefined value %s",
+                                        len == 8 && !idef.isSigned() ? Long.toUnsignedString(ival) : Long.toString(ival)
+                                ),
+                                String.format(
+                                        "Enum %s at Element %s",
+                                        definition.getSymbol(),
+                                        getLocalName()
+                                )
+                        );
 
-                    addInformativeComment(element, evt.getReason());
+                        handleEvent(evt);
+
+                        addInformativeComment(evt.getReason());
+
+                    }
 
                 } else if (br != len) {
 
-                    FragmentEvent evt = new FragmentEvent(
-                            EventCodes.VALUE_LENGTH_MISMATCH,
-                            String.format(
-                                    "Incorrect length: expected %d and received %d",
-                                    len,
-                                    br
-                            ),
-                            String.format(
-                                    "Enumeration %s at Element %s",
-                                    definition.getSymbol(),
-                                    element.getLocalName()
-                            )
-                    );
+                    if (isEventEnabled(EventCodes.VALUE_LENGTH_MISMATCH)) {
 
-                    handleEvent(evt);
+                        FragmentEvent evt = new FragmentEvent(
+                                EventCodes.VALUE_LENGTH_MISMATCH,
+                                String.format(
+                                        "Incorrect length: expected %d and received %d",
+                                        len,
+                                        br
+                                ),
+                                String.format(
+                                        "Enumeration %s at Element %s",
+                                        definition.getSymbol(),
+                                        getLocalName()
+                                )
+                        );
+
+                        handleEvent(evt);
 
-                    addInformativeComment(element, evt.getReason());
+                        addInformativeComment(evt.getReason());
+
+                    }
 
                 }
             }
 
-            element.setTextContent(str);
+            setTextContent(str);
 
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         }
     }
 
-    void appendCommentWithAUIDName(AUIDNameResolver anr, AUID auid, Element elem) {
+    void appendCommentWithAUIDName(AUIDNameResolver anr, AUID auid) throws RuleException {
         if (this.anameresolver != null) {
 
             String ename = this.anameresolver.getLocalName(auid);
 
             if (ename != null) {
-                elem.appendChild(elem.getOwnerDocument().createComment(ename));
+                addInformativeComment(ename);
             }
 
         }
     }
 
-    void applyRule5_3(Element element, MXFInputStream value, ExtendibleEnumerationTypeDefinition definition) throws RuleException, IOException {
-
-        try {
-
-            UL ul = value.readUL();
+    void applyRule5_3(MXFValueCursor value, ExtendibleEnumerationTypeDefinition definition) throws RuleException, IOException {
 
-            /* NOTE: ST 2001-1 XML Schema does not allow ULs as values for Extendible Enumerations, which
-             defeats the purpose of the type. This issue could be addressed at the next revision opportunity. */
-            element.setTextContent(ul.toString());
+        UL ul = value.readUL();
 
-            appendCommentWithAUIDName(anameresolver, new AUID(ul), element);
+        /* NOTE: ST 2001-1 XML Schema does not allow ULs as values for Extendible Enumerations, which
+         defeats the purpose of the type. This issue could be addressed at the next revision opportunity. */
+        setTextContent(ul.toString());
 
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
-        }
+        appendCommentWithAUIDName(anameresolver, new AUID(ul));
     }
 
-    void applyRule5_4(Element element, MXFInputStream value, FixedArrayTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_4(MXFValueCursor value, FixedArrayTypeDefinition definition) throws RuleException, IOException {
 
         if (definition.getIdentification().equals(UUID_UL)) {
 
             UUID uuid = value.readUUID();
 
-            element.setTextContent(uuid.toString());
+            setTextContent(uuid.toString());
 
         } else {
 
-            Definition typedef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
+            Definition typedef = metacache.getBaseDefinition(definition.getElementType());
 
-            applyCoreRule5_4(element, value, typedef, definition.getElementCount());
+            applyCoreRule5_4(value, typedef, definition.getElementCount());
 
         }
     }
 
-    void applyCoreRule5_4(Element element, MXFInputStream value, Definition typedef, int elementcount) throws RuleException, IOException {
+    void applyCoreRule5_4(MXFValueCursor value, Definition typedef, int elementcount) throws RuleException, IOException {
 
         for (int i = 0; i < elementcount; i++) {
 
             if (typedef instanceof StrongReferenceTypeDefinition) {
 
                 /* Rule 5.4.1 */
-                applyRule5_13(element, value, (StrongReferenceTypeDefinition) typedef);
+                applyRule5_13(value, (StrongReferenceTypeDefinition) typedef);
 
             } else {
 
                 /* Rule 5.4.2 */
-                Element elem = element.getOwnerDocument().createElementNS(typedef.getNamespace().toString(), typedef.getSymbol());
+                startElement(metacache.getNamespaceName(typedef), typedef.getSymbol());
 
-                elem.setPrefix(getPrefix(typedef.getNamespace()));
+                applyRule5(value, typedef);
 
-                applyRule5(elem, value, typedef);
-
-                element.appendChild(elem);
+                endElement();
 
             }
         }
     }
 
-    void applyRule5_5(Element element, MXFInputStream value, IndirectTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_5(MXFValueCursor value, IndirectTypeDefinition definition) throws RuleException, IOException {
 
         /* see https://github.com/sandflow/regxmllib/issues/74 for a discussion on Indirect Type */
         ByteOrder bo;
@@ -1175,66 +1602,87 @@ public class FragmentBuilder {
                 throw new RuleException("Unknown Indirect Byte Order value.");
         }
 
-        MXFInputStream orderedval = new MXFInputStream(value, bo);
+        ByteOrder prevbo = value.getByteOrder();
+
+        value.setByteOrder(bo);
+
+        try {
+
+            applyCoreRule5_5(value, definition);
+
+        } finally {
+
+            value.setByteOrder(prevbo);
+
+        }
+
+    }
+
+    private void applyCoreRule5_5(MXFValueCursor value, IndirectTypeDefinition definition) throws RuleException, IOException {
 
-        IDAU idau = orderedval.readIDAU();
+        IDAU idau = value.readIDAU();
 
         if (idau == null) {
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.INVALID_IDAU,
-                    "Invalid IDAU",
-                    String.format(
-                            "Indirect Type %s at Element %s",
-                            definition.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+            if (isEventEnabled(EventCodes.INVALID_IDAU)) {
+
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.INVALID_IDAU,
+                        "Invalid IDAU",
+                        String.format(
+                                "Indirect Type %s at Element %s",
+                                definition.getSymbol(),
+                                getLocalName()
+                        )
+                );
+
+                handleEvent(evt);
 
-            handleEvent(evt);
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
             return;
         }
 
         AUID auid = idau.asAUID();
 
-        Definition def = (Definition) defresolver.getDefinition(auid);
+        Definition def = defresolver.getDefinition(auid);
 
         if (def == null) {
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.UNKNOWN_TYPE,
-                    String.format(
-                            "No definition found for indirect type %s.",
-                            auid.toString()
-                    ),
-                    String.format(
-                            "Indirect Type %s at Element %s",
-                            definition.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+            if (isEventEnabled(EventCodes.UNKNOWN_TYPE)) {
+
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.UNKNOWN_TYPE,
+                        String.format(
+                                "No definition found for indirect type %s.",
+                                auid.toString()
+                        ),
+                        String.format(
+                                "Indirect Type %s at Element %s",
+                                definition.getSymbol(),
+                                getLocalName()
+                        )
+                );
 
-            handleEvent(evt);
+                handleEvent(evt);
+
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
             return;
         }
 
         // create reg:actualType attribute
-        Attr attr = element.getOwnerDocument().createAttributeNS(REGXML_NS, ACTUALTYPE_ATTR);
-        attr.setPrefix(getPrefix(REGXML_NS));
-        attr.setTextContent(def.getSymbol());
-        element.setAttributeNodeNS(attr);
+        setAttribute(REGXML_NS, ACTUALTYPE_ATTR, def.getSymbol());
 
-        applyRule5(element, orderedval, def);
+        applyRule5(value, def);
 
     }
 
-    void applyRule5_6(Element element, MXFInputStream value, IntegerTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_6(MXFValueCursor value, IntegerTypeDefinition definition) throws RuleException, IOException {
 
         try {
 
@@ -1255,37 +1703,43 @@ public class FragmentBuilder {
                     break;
             }
 
-            byte[] val = new byte[len];
+            int br = readIntegerBytes(value, len);
 
-            int br = value.read(val);
+            if (br <= 0) {
 
-            if (br == 0) {
+                setTextContent("NaN");
 
-                element.setTextContent("NaN");
+                if (isEventEnabled(EventCodes.VALUE_LENGTH_MISMATCH)) {
 
-                FragmentEvent evt = new FragmentEvent(
-                        EventCodes.VALUE_LENGTH_MISMATCH,
-                        "No data",
-                        String.format(
-                                "Integer %s at Element %s",
-                                definition.getSymbol(),
-                                element.getLocalName()
-                        )
-                );
+                    FragmentEvent evt = new FragmentEvent(
+                            EventCodes.VALUE_LENGTH_MISMATCH,
+                            "No data",
+                            String.format(
+                                    "Integer %s at Element %s",
+                                    definition.getSymbol(),
+                                    getLocalName()
+                            )
+                    );
 
-                handleEvent(evt);
+                    handleEvent(evt);
 
-                addInformativeComment(element, evt.getReason());
+                    addInformativeComment(evt.getReason());
+
+                }
 
             } else {
 
-                try {
+                long ival = getIntegerValue(len, definition.isSigned());
 
-                    BigInteger bi = definition.isSigned() ? new BigInteger(val) : new BigInteger(1, val);
+                if (len == 8 && !definition.isSigned()) {
+                    setTextContent(Long.toUnsignedString(ival));
+                } else {
+                    setTextContent(toDecimalString(ival));
+                }
 
-                    element.setTextContent(bi.toString());
+                if (br != len) {
 
-                    if (br != len) {
+                    if (isEventEnabled(EventCodes.VALUE_LENGTH_MISMATCH)) {
 
                         FragmentEvent evt = new FragmentEvent(
                                 EventCodes.VALUE_LENGTH_MISMATCH,
@@ -1297,31 +1751,16 @@ public class FragmentBuilder {
                                 String.format(
                                         "Integer %s at Element %s",
                                         definition.getSymbol(),
-                                        element.getLocalName()
+                                        getLocalName()
                                 )
                         );
 
                         handleEvent(evt);
 
-                        addInformativeComment(element, evt.getReason());
+                        addInformativeComment(evt.getReason());
 
                     }
 
-                } catch (NumberFormatException e) {
-
-                    FragmentEvent evt = new FragmentEvent(
-                            EventCodes.INVALID_INTEGER_VALUE,
-                            "Invalid integer value",
-                            String.format(
-                                    "Integer %s at Element %s",
-                                    definition.getSymbol(),
-                                    element.getLocalName()
-                            )
-                    );
-
-                    handleEvent(evt);
-
-                    addInformativeComment(element, evt.getReason());
                 }
 
             }
@@ -1332,7 +1771,7 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5_7(Element element, MXFInputStream value, OpaqueTypeDefinition definition) throws RuleException {
+    void applyRule5_7(MXFValueCursor value, OpaqueTypeDefinition definition) throws RuleException {
 
         /* NOTE: Opaque Types are not used in MXF */
         throw new RuleException("Opaque types are not supported.");
@@ -1357,15 +1796,15 @@ public class FragmentBuilder {
         return String.format("%04d-%02d-%02d", year, month, day);
     }
 
-    void applyRule5_8(Element element, MXFInputStream value, RecordTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_8(MXFValueCursor value, RecordTypeDefinition definition) throws RuleException, IOException {
 
         if (definition.getIdentification().equals(AUID_UL)) {
 
             AUID auid = value.readAUID();
 
-            element.setTextContent(auid.toString());
+            setTextContent(auid.toString());
 
-            appendCommentWithAUIDName(anameresolver, auid, element);
+            appendCommentWithAUIDName(anameresolver, auid);
 
         } else if (definition.getIdentification().equals(DateStruct_UL)) {
 
@@ -1373,20 +1812,20 @@ public class FragmentBuilder {
             int month = value.readUnsignedByte();
             int day = value.readUnsignedByte();
 
-            element.setTextContent(generateISO8601Date(year, month, day));
+            setTextContent(generateISO8601Date(year, month, day));
 
         } else if (definition.getIdentification().equals(PackageID_UL)) {
 
             UMID umid = value.readUMID();
 
-            element.setTextContent(umid.toString());
+            setTextContent(umid.toString());
 
         } else if (definition.getIdentification().equals(Rational_UL)) {
 
             int numerator = value.readInt();
             int denominator = value.readInt();
 
-            element.setTextContent(String.format("%d/%d", numerator, denominator));
+            setTextContent(String.format("%d/%d", numerator, denominator));
 
         } else if (definition.getIdentification().equals(TimeStruct_UL)) {
 
@@ -1397,7 +1836,7 @@ public class FragmentBuilder {
             int second = value.readUnsignedByte();
             int fraction = value.readUnsignedByte();
 
-            element.setTextContent(generateISO8601Time(hour, minute, second, 4 * fraction));
+            setTextContent(generateISO8601Time(hour, minute, second, 4 * fraction));
 
         } else if (definition.getIdentification().equals(TimeStamp_UL)) {
 
@@ -1409,7 +1848,7 @@ public class FragmentBuilder {
             int second = value.readUnsignedByte();
             int fraction = value.readUnsignedByte();
 
-            element.setTextContent(generateISO8601Date(year, month, day) + "T" + generateISO8601Time(hour, minute, second, 4 * fraction));
+            setTextContent(generateISO8601Date(year, month, day) + "T" + generateISO8601Time(hour, minute, second, 4 * fraction));
 
         } else if (definition.getIdentification().equals(VersionType_UL)) {
 
@@ -1417,46 +1856,42 @@ public class FragmentBuilder {
             int major = value.readUnsignedByte();
             int minor = value.readUnsignedByte();
 
-            element.setTextContent(String.format("%d.%d", major, minor));
+            setTextContent(String.format("%d.%d", major, minor));
 
         } else {
 
             for (RecordTypeDefinition.Member member : definition.getMembers()) {
 
-                Definition itemdef = findBaseDefinition(defresolver.getDefinition(member.getType()));
-
-                Element elem = element.getOwnerDocument().createElementNS(definition.getNamespace().toString(), member.getName());
+                Definition itemdef = metacache.getBaseDefinition(member.getType());
 
-                elem.setPrefix(getPrefix(definition.getNamespace()));
+                startElement(metacache.getNamespaceName(definition), member.getName());
 
-                applyRule5(elem, value, itemdef);
+                applyRule5(value, itemdef);
 
-                element.appendChild(elem);
+                endElement();
             }
         }
 
     }
 
-    void applyRule5_9(Element element, MXFInputStream value, RenameTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_9(MXFValueCursor value, RenameTypeDefinition definition) throws RuleException, IOException {
 
         Definition rdef = defresolver.getDefinition(definition.getRenamedType());
 
-        applyRule5(element, value, rdef);
+        applyRule5(value, rdef);
 
     }
 
-    void applyRule5_10(Element element, MXFInputStream value, SetTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_10(MXFValueCursor value, SetTypeDefinition definition) throws RuleException, IOException {
 
-        Definition typedef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
+        Definition typedef = metacache.getBaseDefinition(definition.getElementType());
 
         try {
 
-            DataInputStream dis = new DataInputStream(value);
+            long itemcount = readBigEndianInt(value) & 0xfffffffL;
+            long itemlength = readBigEndianInt(value) & 0xfffffffL;
 
-            long itemcount = dis.readInt() & 0xfffffffL;
-            long itemlength = dis.readInt() & 0xfffffffL;
-
-            applyCoreRule5_4(element, value, typedef, (int) itemcount);
+            applyCoreRule5_4(value, typedef, (int) itemcount);
 
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
@@ -1464,44 +1899,47 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5_11(Element element, MXFInputStream value, StreamTypeDefinition definition) throws RuleException {
+    void applyRule5_11(MXFValueCursor value, StreamTypeDefinition definition) throws RuleException {
 
         throw new RuleException("Rule 5.11 is not supported yet.");
 
     }
 
-    void applyRule5_12(Element element, MXFInputStream value, StringTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_12(MXFValueCursor value, StringTypeDefinition definition) throws RuleException, IOException {
 
         /* Rule 5.12 */
-        Definition chrdef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
+        Definition chrdef = metacache.getBaseDefinition(definition.getElementType());
 
         /* NOTE: ST 2001-1 implies that integer-based strings are supported, but
          does not described semantics.
          */
         if (!(chrdef instanceof CharacterTypeDefinition)) {
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.UNSUPPORTED_STRING_TYPE,
-                    String.format(
-                            "Unsupported String with Element %s",
-                            chrdef.getSymbol()
-                    ),
-                    String.format(
-                            "String %s at Element %s",
-                            definition.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+            if (isEventEnabled(EventCodes.UNSUPPORTED_STRING_TYPE)) {
+
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.UNSUPPORTED_STRING_TYPE,
+                        String.format(
+                                "Unsupported String with Element %s",
+                                chrdef.getSymbol()
+                        ),
+                        String.format(
+                                "String %s at Element %s",
+                                definition.getSymbol(),
+                                getLocalName()
+                        )
+                );
+
+                handleEvent(evt);
 
-            handleEvent(evt);
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
             return;
         }
 
         readCharacters(
-                element,
                 value,
                 (CharacterTypeDefinition) chrdef,
                 false /* remove trailing zeroes */
@@ -1509,28 +1947,32 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5_13(Element element, MXFInputStream value, StrongReferenceTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_13(MXFValueCursor value, StrongReferenceTypeDefinition definition) throws RuleException, IOException {
 
-        Definition typedef = findBaseDefinition(defresolver.getDefinition(definition.getReferencedType()));
+        Definition typedef = metacache.getBaseDefinition(definition.getReferencedType());
 
         if (!(typedef instanceof ClassDefinition)) {
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.INVALID_STRONG_REFERENCE_TYPE,
-                    String.format(
-                            "Target %s of Strong Reference Type is not a class",
-                            typedef.getSymbol()
-                    ),
-                    String.format(
-                            "Type %s at Element %s",
-                            definition.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+            if (isEventEnabled(EventCodes.INVALID_STRONG_REFERENCE_TYPE)) {
+
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.INVALID_STRONG_REFERENCE_TYPE,
+                        String.format(
+                                "Target %s of Strong Reference Type is not a class",
+                                typedef.getSymbol()
+                        ),
+                        String.format(
+                                "Type %s at Element %s",
+                                definition.getSymbol(),
+                                getLocalName()
+                        )
+                );
+
+                handleEvent(evt);
 
-            handleEvent(evt);
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
             return;
 
@@ -1542,54 +1984,69 @@ public class FragmentBuilder {
 
         if (g != null) {
 
-            applyRule3(element, g);
+            if (pool != null && capture == null) {
+
+                /* build the referenced subtree concurrently */
+                SubtreeTask task = new SubtreeTask(g, new ArrayList<String>(instanceIDs), getLocalName());
+
+                task.fork();
+
+                recorder.subtree(task);
+
+            } else {
+
+                applyRule3(g);
+
+            }
 
         } else {
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.STRONG_REFERENCE_NOT_FOUND,
-                    String.format(
-                            "Strong Reference target %s is not found",
-                            uuid.toString()
-                    ),
-                    String.format(
-                            "Type %s at Element %s",
-                            definition.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+            if (isEventEnabled(EventCodes.STRONG_REFERENCE_NOT_FOUND)) {
+
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.STRONG_REFERENCE_NOT_FOUND,
+                        String.format(
+                                "Strong Reference target %s is not found",
+                                uuid.toString()
+                        ),
+                        String.format(
+                                "Type %s at Element %s",
+                                definition.getSymbol(),
+                                getLocalName()
+                        )
+                );
+
+                handleEvent(evt);
 
-            handleEvent(evt);
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
         }
 
     }
 
-    void applyRule5_alpha(Element element, MXFInputStream value, FloatTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_alpha(MXFValueCursor value, FloatTypeDefinition definition) throws RuleException, IOException {
 
         try {
 
-            DataInputStream dis = new DataInputStream(value);
-
             double val = 0;
 
             switch (definition.getSize()) {
                 case HALF:
 
-                    val = HalfFloat.toDouble(dis.readUnsignedShort());
+                    val = HalfFloat.toDouble(readBigEndianInt(value, 2));
 
                     break;
                 case SINGLE:
-                    val = dis.readFloat();
+                    val = Float.intBitsToFloat(readBigEndianInt(value));
                     break;
                 case DOUBLE:
-                    val = dis.readDouble();
+                    val = Double.longBitsToDouble(((long) readBigEndianInt(value) << 32) | (readBigEndianInt(value) & 0xFFFFFFFFL));
                     break;
             }
 
-            element.setTextContent(Double.toString(val));
+            setTextContent(Double.toString(val));
 
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
@@ -1597,92 +2054,68 @@ public class FragmentBuilder {
 
     }
 
-    void applyRule5_beta(Element element, MXFInputStream value, LensSerialFloatTypeDefinition definition) throws RuleException {
+    void applyRule5_beta(MXFValueCursor value, LensSerialFloatTypeDefinition definition) throws RuleException {
 
         throw new RuleException("Lens serial floats not supported.");
 
     }
 
-    Definition findBaseDefinition(Definition definition) {
-
-        while (definition instanceof RenameTypeDefinition) {
-            definition = defresolver.getDefinition(((RenameTypeDefinition) definition).getRenamedType());
-        }
+    final static char[] HEXMAP = "0123456789abcdef".toCharArray();
 
-        return definition;
+    private String bytesToString(byte[] buffer) {
+        return bytesToString(buffer, 0, buffer.length);
     }
 
-    private Collection<PropertyDefinition> getAllMembersOf(ClassDefinition definition) {
-        ClassDefinition cdef = definition;
-
-        ArrayList<PropertyDefinition> props = new ArrayList<>();
+    private String bytesToString(byte[] buffer, int offset, int length) {
 
-        while (cdef != null) {
-
-            for (AUID auid : defresolver.getMembersOf(cdef)) {
-                props.add((PropertyDefinition) defresolver.getDefinition(auid));
-            }
+        char[] out = new char[2 * length];
 
-            if (cdef.getParentClass() != null) {
-                cdef = (ClassDefinition) defresolver.getDefinition(cdef.getParentClass());
-            } else {
-                cdef = null;
-            }
+        for (int j = 0; j < length; j++) {
 
+            int v = buffer[offset + j] & 0xFF;
+            out[j * 2] = HEXMAP[v >>> 4];
+            out[j * 2 + 1] = HEXMAP[v & 0x0F];
         }
 
-        return props;
+        return new String(out);
     }
 
-    final static char[] HEXMAP = "0123456789abcdef".toCharArray();
-
-    private String bytesToString(byte[] buffer) {
+    /**
+     * Reads a big-endian integer regardless of the byte order of the value,
+     * as a DataInputStream does.
+     */
+    private static int readBigEndianInt(MXFValueCursor value) throws IOException {
+        return readBigEndianInt(value, 4);
+    }
 
-        char[] out = new char[2 * buffer.length];
+    private static int readBigEndianInt(MXFValueCursor value, int len) throws IOException {
 
-        for (int j = 0; j < buffer.length; j++) {
+        int val = 0;
 
-            int v = buffer[j] & 0xFF;
-            out[j * 2] = HEXMAP[v >>> 4];
-            out[j * 2 + 1] = HEXMAP[v & 0x0F];
+        for (int i = 0; i < len; i++) {
+            val = (val << 8) | value.readUnsignedByte();
         }
 
-        return new String(out);
+        return val;
     }
 
-    void applyRule5_14(Element element, MXFInputStream value, VariableArrayTypeDefinition definition) throws RuleException, IOException {
+    void applyRule5_14(MXFValueCursor value, VariableArrayTypeDefinition definition) throws RuleException, IOException {
 
-        Definition typedef = findBaseDefinition(defresolver.getDefinition(definition.getElementType()));
+        Definition typedef = metacache.getBaseDefinition(definition.getElementType());
 
         try {
 
-            DataInputStream dis = new DataInputStream(value);
-
             if (definition.getSymbol().equals("DataValue")) {
 
                 /* RULE 5.14.2 */
                 /* DataValue is string of octets, without number of elements or size of elements */
-                byte[] buffer = new byte[32];
-
-                StringBuilder sb = new StringBuilder();
-
-                for (int sz = 0; (sz = dis.read(buffer)) > -1;) {
-
-                    for (int j = 0; j < sz; j++) {
-
-                        int v = buffer[j] & 0xFF;
-                        sb.append(HEXMAP[v >>> 4]);
-                        sb.append(HEXMAP[v & 0x0F]);
-                    }
-                }
+                setTextContent(bytesToString(value.array(), value.position(), value.remaining()));
 
-                element.setTextContent(sb.toString());
+                value.skip(value.remaining());
 
             } else {
 
-                Definition base = findBaseDefinition(typedef);
-
-                if (base instanceof CharacterTypeDefinition || base.getName().contains("StringArray")) {
+                if (typedef instanceof CharacterTypeDefinition || typedef.getName().contains("StringArray")) {
 
                     /* RULE 5.14.1 */
                     /* INFO: StringArray is not used in MXF (ST 377-1) */
@@ -1690,10 +2123,10 @@ public class FragmentBuilder {
 
                 } else {
 
-                    long itemcount = dis.readInt() & 0xfffffffL;
-                    long itemlength = dis.readInt() & 0xfffffffL;
+                    long itemcount = readBigEndianInt(value) & 0xfffffffL;
+                    long itemlength = readBigEndianInt(value) & 0xfffffffL;
 
-                    applyCoreRule5_4(element, value, typedef, (int) itemcount);
+                    applyCoreRule5_4(value, typedef, (int) itemcount);
                 }
 
             }
@@ -1704,61 +2137,61 @@ public class FragmentBuilder {
 
         } catch (EOFException eof) {
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.VALUE_LENGTH_MISMATCH,
-                    "Value too short",
-                    String.format(
-                            "Array %s at Element %s",
-                            definition.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+            if (isEventEnabled(EventCodes.VALUE_LENGTH_MISMATCH)) {
+
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.VALUE_LENGTH_MISMATCH,
+                        "Value too short",
+                        String.format(
+                                "Array %s at Element %s",
+                                definition.getSymbol(),
+                                getLocalName()
+                        )
+                );
 
-            handleEvent(evt);
+                handleEvent(evt);
+
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
         }
 
     }
 
-    void applyRule5_15(Element element, MXFInputStream value, WeakReferenceTypeDefinition typedefinition) throws RuleException {
+    void applyRule5_15(MXFValueCursor value, WeakReferenceTypeDefinition typedefinition) throws RuleException {
 
         ClassDefinition classdef = (ClassDefinition) defresolver.getDefinition(typedefinition.getReferencedType());
 
-        PropertyDefinition uniquepropdef = null;
+        PropertyDefinition uniquepropdef = metacache.getUniqueIdentifierOf(classdef);
 
-        for (PropertyDefinition propdef : getAllMembersOf(classdef)) {
+        if (uniquepropdef == null) {
 
-            if (propdef.isUniqueIdentifier()) {
-                uniquepropdef = propdef;
-                break;
-            }
-        }
+            if (isEventEnabled(EventCodes.MISSING_UNIQUE)) {
 
-        if (uniquepropdef == null) {
+                FragmentEvent evt = new FragmentEvent(
+                        EventCodes.MISSING_UNIQUE,
+                        String.format(
+                                "Weak reference target %s has no IsUnique element.",
+                                classdef.getSymbol()
+                        ),
+                        String.format(
+                                "Type %s at Element %s",
+                                typedefinition.getSymbol(),
+                                getLocalName()
+                        )
+                );
 
-            FragmentEvent evt = new FragmentEvent(
-                    EventCodes.MISSING_UNIQUE,
-                    String.format(
-                            "Weak reference target %s has no IsUnique element.",
-                            classdef.getSymbol()
-                    ),
-                    String.format(
-                            "Type %s at Element %s",
-                            typedefinition.getSymbol(),
-                            element.getLocalName()
-                    )
-            );
+                handleEvent(evt);
 
-            handleEvent(evt);
+                addInformativeComment(evt.getReason());
 
-            addInformativeComment(element, evt.getReason());
+            }
 
             return;
         }
 
-        applyRule4(element, value, uniquepropdef);
+        applyRule4(value, uniquepropdef);
 
     }
 
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+
+/**
+ * Replays a binary cache created by {@link FragmentCacheWriter} to a
+ * {@link FragmentWriter}, e.g. a {@link DOMFragmentWriter} or a
+ * {@link JSONFragmentWriter}. Events raised when the cache was created are not
+ * raised again.
+ */
+public class FragmentCacheReader {
+
+    /* largest array size supported by common VMs */
+    private static final int MAX_STRING_LENGTH = Integer.MAX_VALUE - 8;
+
+    /* strings are read incrementally so that a corrupt length does not cause a large allocation */
+    private static final int INITIAL_STRING_BUFFER_SIZE = 64 * 1024;
+
+    private FragmentCacheReader() {
+    }
+
+    private static int readVarInt(DataInputStream dis) throws IOException {
+
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+
+            int b = dis.readUnsignedByte();
+
+            /* the fifth byte carries only the top 4 bits of the value */
+            if (shift == 28 && (b & 0x70) != 0) {
+                break;
+            }
+
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+
+                if (value < 0) {
+                    break;
+                }
+
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed integer in Fragment cache");
+    }
+
+    private static String readString(DataInputStream dis) throws IOException {
+
+        int length = readVarInt(dis);
+
+        if (length > MAX_STRING_LENGTH) {
+            throw new IOException("String too long in Fragment cache");
+        }
+
+        byte[] b = new byte[Math.min(length, INITIAL_STRING_BUFFER_SIZE)];
+
+        int count = 0;
+
+        while (count < length) {
+
+            if (count == b.length) {
+                b = Arrays.copyOf(b, (int) Math.min((long) b.length * 2, length));
+            }
+
+            dis.readFully(b, count, b.length - count);
+
+            count = b.length;
+        }
+
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static String readName(DataInputStream dis, ArrayList<String> names) throws IOException {
+
+        int index = readVarInt(dis);
+
+        if (index == names.size()) {
+
+            /* name defined on first use */
+            names.add(readString(dis));
+
+        } else if (index > names.size()) {
+
+            throw new IOException("Undefined name in Fragment cache");
+
+        }
+
+        return names.get(index);
+    }
+
+    /**
+     * Replays a cache to a DOM Document Fragment.
+     *
+     * @param is Cache, as written by {@link FragmentCacheWriter}. Must not be
+     * null. Should be buffered.
+     * @param document Document from which the XML DOM Document Fragment will be
+     * created. Must not be null.
+     *
+     * @return XML DOM Document Fragment containing the last RegXML Fragment of
+     * the cache, or null if the cache contains no Fragment
+     *
+     * @throws IOException
+     */
+    public static DocumentFragment read(InputStream is, Document document) throws IOException {
+
+        DOMFragmentWriter writer = new DOMFragmentWriter(document);
+
+        read(is, writer);
+
+        return writer.getFragment();
+    }
+
+    /**
+     * Replays all the Fragments contained in a cache.
+     *
+     * @param is Cache, as written by {@link FragmentCacheWriter}. Must not be
+     * null. Should be buffered.
+     * @param writer Receives the Fragments. Must not be null.
+     *
+     * @throws IOException
+     */
+    public static void read(InputStream is, FragmentWriter writer) throws IOException {
+
+        if (is == null || writer == null) {
+            throw new IllegalArgumentException();
+        }
+
+        DataInputStream dis = new DataInputStream(is);
+
+        byte[] magic = new byte[FragmentCacheWriter.MAGIC.length];
+
+        dis.readFully(magic);
+
+        if (!Arrays.equals(magic, FragmentCacheWriter.MAGIC)) {
+            throw new IOException("Not a Fragment cache");
+        }
+
+        byte version = dis.readByte();
+
+        if (version != FragmentCacheWriter.VERSION) {
+            throw new IOException(
+                    String.format(
+                            "Unsupported Fragment cache version %d",
+                            version
+                    )
+            );
+        }
+
+        ArrayList<String> names = new ArrayList<>();
+
+        try {
+
+            while (true) {
+
+                byte op = dis.readByte();
+
+                switch (op) {
+                    case FragmentCacheWriter.START_FRAGMENT:
+                        writer.startFragment();
+                        break;
+                    case FragmentCacheWriter.END_FRAGMENT:
+                        writer.endFragment();
+                        break;
+                    case FragmentCacheWriter.START_ELEMENT: {
+                        String ns = readName(dis, names);
+                        writer.startElement(ns, readName(dis, names));
+                        break;
+                    }
+                    case FragmentCacheWriter.END_ELEMENT:
+                        writer.endElement();
+                        break;
+                    case FragmentCacheWriter.ATTRIBUTE: {
+                        String ns = readName(dis, names);
+                        String name = readName(dis, names);
+                        writer.attribute(ns, name, readString(dis));
+                        break;
+                    }
+                    case FragmentCacheWriter.TEXT:
+                        writer.text(readString(dis));
+                        break;
+                    case FragmentCacheWriter.COMMENT:
+                        writer.comment(readString(dis));
+                        break;
+                    case FragmentCacheWriter.END:
+                        return;
+                    default:
+                        throw new IOException(
+                                String.format(
+                                        "Unknown operation %d in Fragment cache",
+                                        op
+                                )
+                        );
+                }
+
+            }
+
+        } catch (EOFException e) {
+
+            throw new IOException("Truncated Fragment cache", e);
+
+        }
+
+    }
+
+}
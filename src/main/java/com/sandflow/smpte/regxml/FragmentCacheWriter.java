@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Writes a RegXML Fragment to a compact binary cache that can later be
+ * replayed to any {@link FragmentWriter} using {@link FragmentCacheReader},
+ * without decoding the KLV structures or consulting the MetaDictionaries again.
+ * <p>
+ * The cache starts with the 4-byte {@link #MAGIC} signature and a 1-byte
+ * {@link #VERSION}, and is followed by a sequence of operations, each
+ * identified by a single byte, and terminated by {@link #END}. Integers are
+ * encoded as unsigned LEB128 and strings as a length-prefixed UTF-8 sequence.
+ * Namespaces and local names are written once and referenced by index
+ * afterwards: a reference equal to the number of names already defined is
+ * followed by the definition of a new name.</p>
+ * <p>
+ * Multiple Fragments can be written to the same cache. {@link #close()} must be
+ * called once all Fragments have been written.</p>
+ */
+public class FragmentCacheWriter implements FragmentWriter, AutoCloseable {
+
+    /**
+     * Signature at the start of every cache
+     */
+    public static final byte[] MAGIC = {'R', 'X', 'M', 'C'};
+
+    /**
+     * Version of the cache format
+     */
+    public static final byte VERSION = 1;
+
+    static final byte START_FRAGMENT = 0;
+    static final byte END_FRAGMENT = 1;
+    static final byte START_ELEMENT = 2;
+    static final byte END_ELEMENT = 3;
+    static final byte ATTRIBUTE = 4;
+    static final byte TEXT = 5;
+    static final byte COMMENT = 6;
+    static final byte END = 7;
+
+    private final DataOutputStream dos;
+    private final HashMap<String, Integer> names = new HashMap<>();
+
+    /**
+     * Instantiates a FragmentCacheWriter and writes the cache header
+     *
+     * @param os Receives the cache. Must not be null.
+     * @throws IOException
+     */
+    public FragmentCacheWriter(OutputStream os) throws IOException {
+
+        if (os == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dos = new DataOutputStream(new BufferedOutputStream(os));
+
+        dos.write(MAGIC);
+        dos.writeByte(VERSION);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+
+        while ((value & ~0x7F) != 0) {
+            dos.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        dos.writeByte(value);
+    }
+
+    private void writeString(String str) throws IOException {
+
+        byte[] b = str.getBytes(StandardCharsets.UTF_8);
+
+        writeVarInt(b.length);
+        dos.write(b);
+    }
+
+    private void writeName(String name) throws IOException {
+
+        Integer index = names.get(name);
+
+        if (index == null) {
+
+            /* define the name on first use */
+            writeVarInt(names.size());
+            writeString(name);
+
+            names.put(name, names.size());
+
+        } else {
+
+            writeVarInt(index);
+
+        }
+    }
+
+    @Override
+    public void startFragment() throws IOException {
+        dos.writeByte(START_FRAGMENT);
+    }
+
+    @Override
+    public void endFragment() throws IOException {
+        dos.writeByte(END_FRAGMENT);
+    }
+
+    @Override
+    public void startElement(String namespace, String localName) throws IOException {
+        dos.writeByte(START_ELEMENT);
+        writeName(namespace);
+        writeName(localName);
+    }
+
+    @Override
+    public void endElement() throws IOException {
+        dos.writeByte(END_ELEMENT);
+    }
+
+    @Override
+    public void attribute(String namespace, String localName, String value) throws IOException {
+        dos.writeByte(ATTRIBUTE);
+        writeName(namespace);
+        writeName(localName);
+        writeString(value);
+    }
+
+    @Override
+    public void text(String text) throws IOException {
+        dos.writeByte(TEXT);
+        writeString(text);
+    }
+
+    @Override
+    public void comment(String comment) throws IOException {
+        dos.writeByte(COMMENT);
+        writeString(comment);
+    }
+
+    /**
+     * Terminates the cache and flushes the underlying stream, which is not
+     * closed.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        dos.writeByte(END);
+        dos.flush();
+    }
+
+}
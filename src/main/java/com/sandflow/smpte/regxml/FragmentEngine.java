@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.mxf.Set;
+import com.sandflow.smpte.regxml.FragmentBuilder.AUIDNameResolver;
+import com.sandflow.smpte.regxml.FragmentBuilder.RuleException;
+import com.sandflow.smpte.regxml.dict.DefinitionMetadataCache;
+import com.sandflow.smpte.regxml.dict.DefinitionResolver;
+import com.sandflow.smpte.util.UUID;
+import com.sandflow.util.events.EventHandler;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+
+/**
+ * Holds the state derived from MetaDictionaries that is needed to generate
+ * RegXML Fragments, i.e. the definitions, the metadata computed from them and
+ * the AUID name resolver.
+ *
+ * A FragmentEngine is immutable and thread-safe: a single instance can be
+ * shared by any number of concurrent conversions. Each conversion uses its
+ * own {@link FragmentBuilder}, created by
+ * {@link #newBuilder(java.util.Map, com.sandflow.util.events.EventHandler)},
+ * which holds the state specific to an MXF file, i.e. the Sets, the namespace
+ * prefixes and the event handler. A FragmentBuilder must not be used by more
+ * than one thread at a time.
+ */
+public class FragmentEngine {
+
+    private final DefinitionResolver defresolver;
+    private final DefinitionMetadataCache metacache;
+    private final AUIDNameResolver anameresolver;
+    private final ForkJoinPool pool;
+
+    /**
+     * Instantiates a FragmentEngine.
+     *
+     * @param defresolver Maps Group Keys to MetaDictionary definitions. Must
+     * not be null. Must not be modified while the FragmentEngine is in use.
+     * @param anameresolver Resolves a AUID to a human-readable symbol. May be
+     * null. Must be thread-safe if the FragmentEngine is shared between
+     * threads.
+     */
+    public FragmentEngine(DefinitionResolver defresolver, AUIDNameResolver anameresolver) {
+        this(defresolver, anameresolver, null);
+    }
+
+    /**
+     * Instantiates a FragmentEngine whose builders build the subtrees of
+     * strongly referenced groups concurrently using a ForkJoinPool.
+     *
+     * @param defresolver Maps Group Keys to MetaDictionary definitions. Must
+     * not be null. Must not be modified while the FragmentEngine is in use.
+     * @param anameresolver Resolves a AUID to a human-readable symbol. May be
+     * null. Must be thread-safe if the FragmentEngine is shared between
+     * threads or if pool is not null.
+     * @param pool Pool used to build subtrees concurrently. If null, Fragments
+     * are built sequentially.
+     */
+    public FragmentEngine(DefinitionResolver defresolver, AUIDNameResolver anameresolver, ForkJoinPool pool) {
+
+        if (defresolver == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.defresolver = defresolver;
+        this.metacache = DefinitionMetadataCache.getInstance(defresolver);
+        this.anameresolver = anameresolver;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a FragmentBuilder that holds the state of the conversion of a
+     * single MXF file.
+     *
+     * @param setresolver Resolves Strong References to groups. Must not be
+     * null.
+     * @param evthandler Calls back the caller when an event occurs. May be
+     * null.
+     *
+     * @return FragmentBuilder that uses this FragmentEngine
+     */
+    public FragmentBuilder newBuilder(Map<UUID, Set> setresolver, EventHandler evthandler) {
+        return new FragmentBuilder(this, setresolver, evthandler);
+    }
+
+    /**
+     * Creates a RegXML Fragment and writes it to a FragmentWriter
+     *
+     * @param group KLV Group for which the Fragment will be generated.
+     * @param setresolver Resolves Strong References to groups. Must not be
+     * null.
+     * @param evthandler Calls back the caller when an event occurs. May be
+     * null.
+     * @param writer Receives the RegXML Fragment. Must not be null.
+     *
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public void fromTriplet(Group group, Map<UUID, Set> setresolver, EventHandler evthandler, FragmentWriter writer) throws KLVException, RuleException {
+        newBuilder(setresolver, evthandler).fromTriplet(group, writer);
+    }
+
+    /**
+     * Creates a RegXML Fragment, represented an XML DOM Document Fragment
+     *
+     * @param group KLV Group for which the Fragment will be generated.
+     * @param setresolver Resolves Strong References to groups. Must not be
+     * null.
+     * @param evthandler Calls back the caller when an event occurs. May be
+     * null.
+     * @param document Document from which the XML DOM Document Fragment will be
+     * created.
+     *
+     * @return XML DOM Document Fragment containing a single RegXML Fragment
+     *
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public DocumentFragment fromTriplet(Group group, Map<UUID, Set> setresolver, EventHandler evthandler, Document document) throws KLVException, RuleException {
+        return newBuilder(setresolver, evthandler).fromTriplet(group, document);
+    }
+
+    /**
+     * @return MetaDictionary definitions used by this FragmentEngine
+     */
+    public DefinitionResolver getDefinitionResolver() {
+        return defresolver;
+    }
+
+    /**
+     * @return Resolver of AUID names, or null
+     */
+    public AUIDNameResolver getAUIDNameResolver() {
+        return anameresolver;
+    }
+
+    /**
+     * @return Pool used to build subtrees concurrently, or null
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    DefinitionMetadataCache getMetadataCache() {
+        return metacache;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.io.IOException;
+
+/**
+ * Receives the RegXML Fragment generated by a {@link FragmentBuilder}. Every
+ * call to startElement is matched by a call to endElement. Attributes, text and
+ * comments apply to the innermost element that has been started but not yet
+ * ended. Unlike SAX, an attribute can be received after the children of its
+ * element, e.g. the reg:uid attribute is written once the unique identifier
+ * property of the object has been processed.
+ */
+public interface FragmentWriter {
+
+    /**
+     * Called before any other method when a new Fragment is started.
+     *
+     * @throws IOException
+     */
+    void startFragment() throws IOException;
+
+    /**
+     * Called after all other methods when the Fragment is complete.
+     *
+     * @throws IOException
+     */
+    void endFragment() throws IOException;
+
+    /**
+     * Starts a new element as the last child of the current element.
+     *
+     * @param namespace Namespace of the element
+     * @param localName Local name of the element
+     * @throws IOException
+     */
+    void startElement(String namespace, String localName) throws IOException;
+
+    /**
+     * Ends the current element.
+     *
+     * @throws IOException
+     */
+    void endElement() throws IOException;
+
+    /**
+     * Sets an attribute on the current element.
+     *
+     * @param namespace Namespace of the attribute
+     * @param localName Local name of the attribute
+     * @param value Value of the attribute
+     * @throws IOException
+     */
+    void attribute(String namespace, String localName, String value) throws IOException;
+
+    /**
+     * Sets the text content of the current element.
+     *
+     * @param text Text content
+     * @throws IOException
+     */
+    void text(String text) throws IOException;
+
+    /**
+     * Appends an informative comment to the current element.
+     *
+     * @param comment Comment
+     * @throws IOException
+     */
+    void comment(String comment) throws IOException;
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Writes a RegXML Fragment as JSON to a Writer in a single streaming pass.
+ * <p>
+ * The mapping follows the structure of the RegXML Fragment:</p>
+ * <ul>
+ * <li>each element is a JSON object with a <code>name</code> member containing
+ * the qualified name of the element, e.g. <code>"r1:Preface"</code>;</li>
+ * <li>child elements and comments, if any, are listed in document order in a
+ * <code>children</code> array member, where a comment is a JSON object with a
+ * single <code>comment</code> member;</li>
+ * <li>the text content of the element, if any, is the <code>text</code>
+ * member;</li>
+ * <li>the attributes of the element, if any, are members of an
+ * <code>attributes</code> object, keyed by qualified name;</li>
+ * <li>the root element has an additional <code>namespaces</code> object that
+ * maps each prefix to its namespace name.</li>
+ * </ul>
+ * <p>
+ * Prefixes are generated as in {@link DOMFragmentWriter}. Unlike the DOM,
+ * comments that precede the text content of an element are retained. Each
+ * Fragment is written as a single JSON value followed by a newline. A Fragment
+ * without a root element, e.g. because the root class is not defined in the
+ * MetaDictionaries, is written as <code>null</code>.</p>
+ */
+public class JSONFragmentWriter implements FragmentWriter {
+
+    private static class Frame {
+
+        boolean hasChildren = false;
+        String text = null;
+        ArrayList<String> attributes = null;
+    }
+
+    private final Writer writer;
+    private final QualifiedNames qnames = new QualifiedNames();
+    private final ArrayList<Frame> frames = new ArrayList<>();
+    private boolean isEmpty = true;
+
+    /**
+     * Instantiates a JSONFragmentWriter
+     *
+     * @param writer Receives the JSON output. Must not be null.
+     */
+    public JSONFragmentWriter(Writer writer) {
+
+        if (writer == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.writer = writer;
+    }
+
+    private void writeString(String str) throws IOException {
+
+        writer.write('"');
+
+        int start = 0;
+
+        for (int i = 0; i < str.length(); i++) {
+
+            char c = str.charAt(i);
+
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+
+            writer.write(str, start, i - start);
+
+            start = i + 1;
+
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    writer.write(String.format("\\u%04x", (int) c));
+            }
+        }
+
+        writer.write(str, start, str.length() - start);
+
+        writer.write('"');
+    }
+
+    /* starts a new member of the children array of the current element */
+    private void startChild() throws IOException {
+
+        if (frames.isEmpty()) {
+            isEmpty = false;
+            return;
+        }
+
+        Frame parent = frames.get(frames.size() - 1);
+
+        if (parent.hasChildren) {
+            writer.write(',');
+        } else {
+            writer.write(",\"children\":[");
+            parent.hasChildren = true;
+        }
+
+    }
+
+    @Override
+    public void startFragment() throws IOException {
+        frames.clear();
+        isEmpty = true;
+    }
+
+    @Override
+    public void endFragment() throws IOException {
+
+        if (isEmpty) {
+            writer.write("null");
+        }
+
+        writer.write('\n');
+        writer.flush();
+    }
+
+    @Override
+    public void startElement(String namespace, String localName) throws IOException {
+
+        startChild();
+
+        writer.write("{\"name\":");
+        writeString(qnames.getQualifiedName(namespace, localName));
+
+        frames.add(new Frame());
+    }
+
+    @Override
+    public void endElement() throws IOException {
+
+        Frame frame = frames.remove(frames.size() - 1);
+
+        if (frame.hasChildren) {
+            writer.write(']');
+        }
+
+        if (frame.text != null) {
+            writer.write(",\"text\":");
+            writeString(frame.text);
+        }
+
+        if (frame.attributes != null) {
+
+            writer.write(",\"attributes\":{");
+
+            for (int i = 0; i < frame.attributes.size(); i += 2) {
+
+                if (i > 0) {
+                    writer.write(',');
+                }
+
+                writeString(frame.attributes.get(i));
+                writer.write(':');
+                writeString(frame.attributes.get(i + 1));
+            }
+
+            writer.write('}');
+        }
+
+        /* declare the namespaces on the root element */
+        if (frames.isEmpty()) {
+
+            writer.write(",\"namespaces\":{");
+
+            boolean first = true;
+
+            for (QualifiedNames.Namespace ns : qnames.getNamespaces()) {
+
+                if (!first) {
+                    writer.write(',');
+                }
+
+                writeString(ns.prefix);
+                writer.write(':');
+                writeString(ns.name);
+
+                first = false;
+            }
+
+            writer.write('}');
+        }
+
+        writer.write('}');
+    }
+
+    @Override
+    public void attribute(String namespace, String localName, String value) throws IOException {
+
+        Frame frame = frames.get(frames.size() - 1);
+
+        if (frame.attributes == null) {
+            frame.attributes = new ArrayList<>();
+        }
+
+        frame.attributes.add(qnames.getQualifiedName(namespace, localName));
+        frame.attributes.add(value);
+    }
+
+    @Override
+    public void text(String text) throws IOException {
+        frames.get(frames.size() - 1).text = text;
+    }
+
+    @Override
+    public void comment(String comment) throws IOException {
+
+        startChild();
+
+        writer.write("{\"comment\":");
+        writeString(comment);
+        writer.write('}');
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.register.LabelsRegister;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.smpte.util.ULTrie;
+import java.util.HashMap;
+
+/**
+ * Resolves AUIDs to the symbols of a Labels Register. An AUID is first matched
+ * exactly and, if no label matches, matched while ignoring the bytes specified
+ * by a mask, e.g. the version byte. Lookups do not allocate memory, and
+ * nothing is retained across lookups. This class is thread-safe.
+ */
+public class LabelsRegisterNameResolver implements FragmentBuilder.AUIDNameResolver {
+
+    private final ULTrie<String> symbols;
+    private final int bytemask;
+
+    /**
+     * Instantiates a resolver that ignores the version byte of labels if no
+     * exact match is found.
+     *
+     * @param lr Labels Register. Must not be null.
+     */
+    public LabelsRegisterNameResolver(LabelsRegister lr) {
+        this(lr, ULTrie.IGNORE_VERSION_MASK);
+    }
+
+    /**
+     * Instantiates a resolver
+     *
+     * @param lr Labels Register. Must not be null.
+     * @param bytemask 16-bit mask, where byte[n] is ignored if bit[15 - n] is
+     * 0, used if no exact match is found
+     */
+    public LabelsRegisterNameResolver(LabelsRegister lr, int bytemask) {
+
+        if (lr == null) {
+            throw new IllegalArgumentException();
+        }
+
+        HashMap<UL, String> entries = new HashMap<>();
+
+        for (LabelsRegister.Entry e : lr.getEntries()) {
+            entries.put(e.getUL(), e.getSymbol());
+        }
+
+        this.symbols = new ULTrie<>(entries);
+        this.bytemask = bytemask;
+    }
+
+    @Override
+    public String getLocalName(AUID enumid) {
+
+        if (!enumid.isUL()) {
+            return null;
+        }
+
+        String symbol = symbols.get(enumid.getValue());
+
+        if (symbol == null) {
+            symbol = symbols.get(enumid.getValue(), bytemask);
+        }
+
+        return symbol;
+    }
+
+}
@@ -36,8 +36,6 @@ import com.sandflow.smpte.mxf.PartitionPack;
 import com.sandflow.smpte.mxf.PrimerPack;
 import com.sandflow.smpte.mxf.Set;
 import com.sandflow.smpte.regxml.dict.DefinitionResolver;
-import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
-import com.sandflow.smpte.regxml.dict.definitions.Definition;
 import com.sandflow.smpte.util.AUID;
 import com.sandflow.smpte.util.CountingInputStream;
 import com.sandflow.smpte.util.UL;
@@ -45,11 +43,18 @@ import com.sandflow.smpte.util.UUID;
 import com.sandflow.util.events.BasicEvent;
 import com.sandflow.util.events.Event;
 import com.sandflow.util.events.EventHandler;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.DocumentFragment;
@@ -67,6 +72,18 @@ public class MXFFragmentBuilder {
     private static final UL PREFACE_KEY
         = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01012f00");
 
+    /**
+     * Header Metadata up to this size is read with a single bulk read and
+     * parsed in memory; larger Header Metadata is parsed from the stream.
+     */
+    private static final long MAX_BULK_HEADER_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Initial size of the buffer into which Header Metadata is bulk read. The
+     * buffer grows as bytes are read.
+     */
+    private static final int INITIAL_BULK_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Defines all events raised by this class
      */
@@ -112,6 +129,23 @@ public class MXFFragmentBuilder {
 
     }
 
+    /**
+     * Indicates whether an event of a given kind would be handled, in which
+     * case it is constructed and passed to handleEvent().
+     */
+    static boolean isEventEnabled(EventHandler handler, EventCodes kind) {
+
+        if (handler == null) {
+
+            /* if no event handler was provided, only FATAL and ERROR events matter */
+            return kind.severity == Event.Severity.ERROR
+                || kind.severity == Event.Severity.FATAL;
+
+        }
+
+        return kind.severity == Event.Severity.FATAL || handler.isEnabled(kind.severity);
+    }
+
     static void handleEvent(EventHandler handler, com.sandflow.util.events.Event evt) throws MXFException {
 
         if (handler != null) {
@@ -249,6 +283,356 @@ public class MXFFragmentBuilder {
         Document document
     ) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
 
+        return fromInputStream(mxfpartition,
+            defresolver,
+            enumnameresolver,
+            evthandler,
+            rootclasskey,
+            document,
+            null);
+    }
+
+    /**
+     * Returns a DOM Document Fragment containing a RegXML Fragment rooted at
+     * the first Header Metadata object with a class that descends from the
+     * specified class. The subtrees of strongly referenced objects are built
+     * concurrently if a ForkJoinPool is provided.
+     *
+     * @param mxfpartition MXF partition, including the Partition Pack. Must not be null.
+     * @param defresolver MetaDictionary definitions. Must not be null.
+     * @param enumnameresolver Allows the local name of extendible enumeration
+     * values to be inserted as comments. May be null. Must be thread-safe if
+     * pool is not null.
+     * @param evthandler Calls back the caller when an event occurs. Must not be null.
+     * @param rootclasskey Root class of Fragment. The Preface class is used if null.
+     * @param document DOM for which the Document Fragment is created. Must not be null.
+     * @param pool Pool used to build the Fragment. The Fragment is built
+     * sequentially if null.
+     *
+     * @return Document Fragment containing a single RegXML Fragment
+     *
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static DocumentFragment fromInputStream(
+        InputStream mxfpartition,
+        DefinitionResolver defresolver,
+        FragmentBuilder.AUIDNameResolver enumnameresolver,
+        EventHandler evthandler,
+        UL rootclasskey,
+        Document document,
+        ForkJoinPool pool
+    ) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        DOMFragmentWriter writer = new DOMFragmentWriter(document);
+
+        fromInputStream(mxfpartition,
+            defresolver,
+            enumnameresolver,
+            evthandler,
+            rootclasskey,
+            writer,
+            pool);
+
+        return writer.getFragment();
+    }
+
+    /**
+     * Writes a RegXML Fragment rooted at the first Header Metadata object with
+     * a class that descends from the specified class to a FragmentWriter, e.g.
+     * a {@link JSONFragmentWriter}.
+     *
+     * @param mxfpartition MXF partition, including the Partition Pack. Must not be null.
+     * @param defresolver MetaDictionary definitions. Must not be null.
+     * @param enumnameresolver Allows the local name of extendible enumeration
+     * values to be inserted as comments. May be null. Must be thread-safe if
+     * pool is not null.
+     * @param evthandler Calls back the caller when an event occurs. Must not be null.
+     * @param rootclasskey Root class of Fragment. The Preface class is used if null.
+     * @param writer Receives the RegXML Fragment. Must not be null.
+     * @param pool Pool used to build the Fragment. The Fragment is built
+     * sequentially if null.
+     *
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static void fromInputStream(
+        InputStream mxfpartition,
+        DefinitionResolver defresolver,
+        FragmentBuilder.AUIDNameResolver enumnameresolver,
+        EventHandler evthandler,
+        UL rootclasskey,
+        FragmentWriter writer,
+        ForkJoinPool pool
+    ) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        fromInputStream(mxfpartition,
+            new FragmentEngine(defresolver, enumnameresolver, pool),
+            evthandler,
+            rootclasskey,
+            writer);
+    }
+
+    /**
+     * Writes a RegXML Fragment rooted at the first Header Metadata object with
+     * a class that descends from the specified class to a FragmentWriter. The
+     * FragmentEngine is thread-safe and can be shared by concurrent calls.
+     *
+     * @param mxfpartition MXF partition, including the Partition Pack. Must not be null.
+     * @param engine MetaDictionary-derived state. Must not be null.
+     * @param evthandler Calls back the caller when an event occurs. Must not be null.
+     * @param rootclasskey Root class of Fragment. The Preface class is used if null.
+     * @param writer Receives the RegXML Fragment. Must not be null.
+     *
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static void fromInputStream(
+        InputStream mxfpartition,
+        FragmentEngine engine,
+        EventHandler evthandler,
+        UL rootclasskey,
+        FragmentWriter writer
+    ) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        HeaderMetadata header = readHeaderMetadata(mxfpartition, evthandler);
+
+        ArrayList<Group> gs = header.groups;
+
+        /* create the fragment */
+        FragmentBuilder fb = engine.newBuilder(header.sets, evthandler);
+
+        Group rootgroup = null;
+
+        if (rootclasskey != null) {
+
+            /* find the first instance of the requested root class */
+            for (Group g : gs) {
+
+                if (engine.getMetadataCache().isInstanceOf(g.getKey(), rootclasskey)) {
+                    rootgroup = g;
+                    break;
+                }
+
+            }
+
+        } else {
+
+            rootgroup = gs.get(0);
+
+        }
+
+        if (rootgroup == null) {
+
+            if (isEventEnabled(evthandler, EventCodes.MISSING_ROOT_OBJECT)) {
+
+                MXFEvent evt = new MXFEvent(
+                    EventCodes.MISSING_ROOT_OBJECT,
+                    "No Root Object found"
+                );
+
+                handleEvent(evthandler, evt);
+
+            }
+
+        }
+
+        fb.fromTriplet(rootgroup, writer);
+
+    }
+
+    /**
+     * Selects which instances of a root class are used as roots of RegXML
+     * Fragments
+     */
+    public static enum RootSelection {
+
+        /**
+         * Only the first instance of each root class is selected
+         */
+        FIRST,
+        /**
+         * All instances of each root class are selected, in the order in which
+         * they appear in the Header Metadata
+         */
+        ALL
+    }
+
+    /**
+     * Returns DOM Document Fragments rooted at the instances of each of the
+     * specified classes, all built from a single parse of the Header Metadata.
+     * No event is raised if a root class has no instance.
+     *
+     * @param mxfpartition MXF partition, including the Partition Pack. Must not be null.
+     * @param engine MetaDictionary-derived state. Must not be null.
+     * @param evthandler Calls back the caller when an event occurs. May be null.
+     * @param rootclasskeys Root classes of the Fragments. Must not be null.
+     * @param selection Selects the instances of each root class. Must not be null.
+     * @param document DOM for which the Document Fragments are created. Must not be null.
+     *
+     * @return For each root class, in the order of rootclasskeys, the Document
+     * Fragments of its selected instances. The list is empty if the class has
+     * no instance.
+     *
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static Map<UL, List<DocumentFragment>> fromInputStream(
+        InputStream mxfpartition,
+        FragmentEngine engine,
+        EventHandler evthandler,
+        Collection<UL> rootclasskeys,
+        RootSelection selection,
+        Document document
+    ) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        if (rootclasskeys == null || selection == null || document == null) {
+            throw new IllegalArgumentException();
+        }
+
+        HeaderMetadata header = readHeaderMetadata(mxfpartition, evthandler);
+
+        FragmentBuilder fb = engine.newBuilder(header.sets, evthandler);
+
+        LinkedHashMap<UL, List<DocumentFragment>> fragments = new LinkedHashMap<>();
+
+        for (UL rootclasskey : rootclasskeys) {
+
+            ArrayList<DocumentFragment> dfs = new ArrayList<>();
+
+            for (Group rootgroup : selectRoots(engine, header, rootclasskey, selection)) {
+                dfs.add(fb.fromTriplet(rootgroup, document));
+            }
+
+            fragments.put(rootclasskey, dfs);
+        }
+
+        return fragments;
+    }
+
+    /**
+     * Writes RegXML Fragments rooted at the instances of each of the specified
+     * classes to a FragmentWriter, all built from a single parse of the Header
+     * Metadata. The Fragments are written one after the other, grouped by root
+     * class in the order of rootclasskeys.
+     *
+     * @param mxfpartition MXF partition, including the Partition Pack. Must not be null.
+     * @param engine MetaDictionary-derived state. Must not be null.
+     * @param evthandler Calls back the caller when an event occurs. May be null.
+     * @param rootclasskeys Root classes of the Fragments. Must not be null.
+     * @param selection Selects the instances of each root class. Must not be null.
+     * @param writer Receives the RegXML Fragments. Must not be null.
+     *
+     * @return Number of Fragments written
+     *
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     * @throws com.sandflow.smpte.regxml.FragmentBuilder.RuleException
+     */
+    public static int fromInputStream(
+        InputStream mxfpartition,
+        FragmentEngine engine,
+        EventHandler evthandler,
+        Collection<UL> rootclasskeys,
+        RootSelection selection,
+        FragmentWriter writer
+    ) throws IOException, KLVException, MXFException, FragmentBuilder.RuleException {
+
+        if (rootclasskeys == null || selection == null || writer == null) {
+            throw new IllegalArgumentException();
+        }
+
+        HeaderMetadata header = readHeaderMetadata(mxfpartition, evthandler);
+
+        FragmentBuilder fb = engine.newBuilder(header.sets, evthandler);
+
+        int count = 0;
+
+        for (UL rootclasskey : rootclasskeys) {
+
+            for (Group rootgroup : selectRoots(engine, header, rootclasskey, selection)) {
+                fb.fromTriplet(rootgroup, writer);
+                count++;
+            }
+
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the keys of the groups found in the Header Metadata of a
+     * partition and the keys of their items, i.e. the identifications of the
+     * classes and properties used by the partition.
+     *
+     * @param mxfpartition MXF partition, including the Partition Pack. Must
+     * not be null.
+     * @param evthandler Calls back the caller when an event occurs. May be
+     * null.
+     * @return Keys, in the order in which they are first encountered
+     *
+     * @throws IOException
+     * @throws KLVException
+     * @throws com.sandflow.smpte.regxml.MXFFragmentBuilder.MXFException
+     */
+    public static Collection<AUID> getHeaderMetadataKeys(InputStream mxfpartition, EventHandler evthandler) throws IOException, KLVException, MXFException {
+
+        HeaderMetadata header = readHeaderMetadata(mxfpartition, evthandler);
+
+        LinkedHashSet<AUID> keys = new LinkedHashSet<>();
+
+        for (Group group : header.groups) {
+
+            keys.add(new AUID(group.getKey()));
+
+            for (Triplet item : group.getItems()) {
+                keys.add(item.getKey());
+            }
+        }
+
+        return keys;
+    }
+
+    private static List<Group> selectRoots(FragmentEngine engine, HeaderMetadata header, UL rootclasskey, RootSelection selection) {
+
+        List<Group> roots = engine.getMetadataCache().getInstancesOf(header.groups, rootclasskey);
+
+        if (selection == RootSelection.FIRST && roots.size() > 1) {
+            roots = roots.subList(0, 1);
+        }
+
+        return roots;
+    }
+
+    /**
+     * Groups read from the Header Metadata of a partition, and the Sets among
+     * them indexed by Instance UID
+     */
+    private static class HeaderMetadata {
+
+        final ArrayList<Group> groups = new ArrayList<>();
+        final HashMap<UUID, Set> sets = new HashMap<>();
+
+    }
+
+    /**
+     * Reads the Header Metadata of a partition, from the Partition Pack to the
+     * last byte indicated by its HeaderByteCount.
+     */
+    private static HeaderMetadata readHeaderMetadata(
+        InputStream mxfpartition,
+        EventHandler evthandler
+    ) throws IOException, KLVException, MXFException {
+
         CountingInputStream cis = new CountingInputStream(mxfpartition);
 
         /* look for the partition pack */
@@ -265,12 +649,16 @@ public class MXFFragmentBuilder {
 
         if (pp == null) {
 
-            MXFEvent evt = new MXFEvent(
-                EventCodes.MISSING_PARTITION_PACK,
-                "No Partition Pack found"
-            );
+            if (isEventEnabled(evthandler, EventCodes.MISSING_PARTITION_PACK)) {
 
-            handleEvent(evthandler, evt);
+                MXFEvent evt = new MXFEvent(
+                    EventCodes.MISSING_PARTITION_PACK,
+                    "No Partition Pack found"
+                );
+
+                handleEvent(evthandler, evt);
+
+            }
 
         }
 
@@ -292,31 +680,58 @@ public class MXFFragmentBuilder {
 
         if (localreg == null) {
 
-            MXFEvent evt = new MXFEvent(
-                EventCodes.MISSING_PRIMER_PACK,
-                "No Primer Pack found"
-            );
+            if (isEventEnabled(evthandler, EventCodes.MISSING_PRIMER_PACK)) {
+
+                MXFEvent evt = new MXFEvent(
+                    EventCodes.MISSING_PRIMER_PACK,
+                    "No Primer Pack found"
+                );
+
+                handleEvent(evthandler, evt);
 
-            handleEvent(evthandler, evt);
+            }
         }
 
         /* capture all local sets within the header metadata */
-        ArrayList<Group> gs = new ArrayList<>();
-        HashMap<UUID, Set> setresolver = new HashMap<>();
+        HeaderMetadata header = new HeaderMetadata();
+        ArrayList<Group> gs = header.groups;
+        HashMap<UUID, Set> setresolver = header.sets;
+
+        /* header metadata bytes that follow the primer pack */
+        long remaining = pp.getHeaderByteCount() - cis.getCount();
+
+        CountingInputStream hcis = cis;
+        KLVInputStream hkis = kis;
+
+        if (remaining <= MAX_BULK_HEADER_SIZE) {
+
+            /* read the rest of the header metadata at once and parse it in memory */
+            hcis = new CountingInputStream(readBulk(kis, (int) Math.max(remaining, 0)));
+            hkis = new KLVInputStream(hcis);
+
+        } else {
+
+            cis.resetCount();
+
+        }
 
         for (Triplet t;
-            cis.getCount() < pp.getHeaderByteCount()
-            && (t = kis.readTriplet()) != null;) {
+            hcis.getCount() < remaining
+            && (t = hkis.readTriplet()) != null;) {
 
             if (INDEX_TABLE_SEGMENT_UL.equalsIgnoreVersion(t.getKey())) {
 
                 /* stop if Index Table reached */
-                MXFEvent evt = new MXFEvent(
-                    EventCodes.UNEXPECTED_STRUCTURE,
-                    "Index Table Segment encountered before Header Byte Count bytes read"
-                );
+                if (isEventEnabled(evthandler, EventCodes.UNEXPECTED_STRUCTURE)) {
 
-                handleEvent(evthandler, evt);
+                    MXFEvent evt = new MXFEvent(
+                        EventCodes.UNEXPECTED_STRUCTURE,
+                        "Index Table Segment encountered before Header Byte Count bytes read"
+                    );
+
+                    handleEvent(evthandler, evt);
+
+                }
 
                 break;
 
@@ -341,29 +756,37 @@ public class MXFFragmentBuilder {
 
                 } else {
 
+                    if (isEventEnabled(evthandler, EventCodes.GROUP_READ_FAILED)) {
+
+                        MXFEvent evt = new MXFEvent(
+                            EventCodes.GROUP_READ_FAILED,
+                            String.format(
+                                "Failed to read Group: {0}",
+                                t.getKey().toString()
+                            )
+                        );
+
+                        handleEvent(evthandler, evt);
+
+                    }
+
+                }
+            } catch (KLVException ke) {
+
+                if (isEventEnabled(evthandler, EventCodes.GROUP_READ_FAILED)) {
+
                     MXFEvent evt = new MXFEvent(
                         EventCodes.GROUP_READ_FAILED,
                         String.format(
-                            "Failed to read Group: {0}",
-                            t.getKey().toString()
+                            "Failed to read Group %s with error %s",
+                            t.getKey().toString(),
+                            ke.getMessage()
                         )
                     );
 
                     handleEvent(evthandler, evt);
 
                 }
-            } catch (KLVException ke) {
-
-                MXFEvent evt = new MXFEvent(
-                    EventCodes.GROUP_READ_FAILED,
-                    String.format(
-                        "Failed to read Group %s with error %s",
-                        t.getKey().toString(),
-                        ke.getMessage()
-                    )
-                );
-
-                handleEvent(evthandler, evt);
 
             }
         }
@@ -380,16 +803,20 @@ public class MXFFragmentBuilder {
 
             } else if (!agroup.getKey().isClass14()) {
 
-                MXFEvent evt = new MXFEvent(
-                    EventCodes.UNEXPECTED_STRUCTURE,
-                    String.format(
-                        "At least one non-class 14 Set %s was found between"
-                        + " the Primer Pack and the Preface Set.",
-                        agroup.getKey()
-                    )
-                );
+                if (isEventEnabled(evthandler, EventCodes.UNEXPECTED_STRUCTURE)) {
 
-                handleEvent(evthandler, evt);
+                    MXFEvent evt = new MXFEvent(
+                        EventCodes.UNEXPECTED_STRUCTURE,
+                        String.format(
+                            "At least one non-class 14 Set %s was found between"
+                            + " the Primer Pack and the Preface Set.",
+                            agroup.getKey()
+                        )
+                    );
+
+                    handleEvent(evthandler, evt);
+
+                }
 
                 break;
 
@@ -397,65 +824,40 @@ public class MXFFragmentBuilder {
 
         }
 
-        /* create the fragment */
-        FragmentBuilder fb = new FragmentBuilder(defresolver, setresolver, enumnameresolver, evthandler);
-
-        Group rootgroup = null;
-
-        if (rootclasskey != null) {
-
-            Iterator<Group> iter = gs.iterator();
-
-            /* find first essence descriptor */
-            while (rootgroup == null && iter.hasNext()) {
-
-                Group g = iter.next();
-
-                AUID gid = new AUID(g.getKey());
-
-                /* go up the class hierarchy */
-                while (rootgroup == null && gid != null) {
-
-                    Definition def = defresolver.getDefinition(gid);
+        return header;
+    }
 
-                    /* skip if not a class instance */
-                    if (!(def instanceof ClassDefinition)) {
-                        break;
-                    }
+    /**
+     * Reads up to length bytes, stopping short only at the end of the stream.
+     * The buffer is not sized from length, which is derived from the untrusted
+     * Header Byte Count, but grows as bytes are read, so that a stream that
+     * ends early results in an allocation no larger than twice the number of
+     * bytes actually read.
+     *
+     * @return Stream over the bytes read
+     */
+    private static ByteArrayInputStream readBulk(InputStream is, int length) throws IOException {
 
-                    /* is it an instance of the requested root object */
-                    UL gul = def.getIdentification().asUL();
+        byte[] buffer = new byte[Math.min(length, INITIAL_BULK_BUFFER_SIZE)];
 
-                    if (gul.equalsWithMask(rootclasskey, 0b1111101011111111 /* ignore version and Group coding */)) {
-                        rootgroup = g;
+        int len = 0;
 
-                    } else {
-                        /* get parent class */
-                        gid = ((ClassDefinition) def).getParentClass();
-                    }
-                }
+        while (len < length) {
 
+            if (len == buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(2L * buffer.length, length));
             }
 
-        } else {
+            int n = is.read(buffer, len, buffer.length - len);
 
-            rootgroup = gs.get(0);
-
-        }
-
-        if (rootgroup == null) {
-
-            MXFEvent evt = new MXFEvent(
-                EventCodes.MISSING_ROOT_OBJECT,
-                "No Root Object found"
-            );
-
-            handleEvent(evthandler, evt);
+            if (n < 0) {
+                break;
+            }
 
+            len += n;
         }
 
-        return fb.fromTriplet(rootgroup, document);
-
+        return new ByteArrayInputStream(buffer, 0, len);
     }
 
     public static class MXFException extends Exception {
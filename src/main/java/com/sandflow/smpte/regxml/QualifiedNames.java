@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Assigns a prefix to each namespace, in the order in which namespaces are
+ * first encountered, and memoizes the qualified names built from them.
+ * Namespace names are first compared by reference, which is fast when they are
+ * obtained from
+ * {@link com.sandflow.smpte.regxml.dict.DefinitionMetadataCache#getNamespaceName(com.sandflow.smpte.regxml.dict.definitions.Definition)}.
+ */
+final class QualifiedNames {
+
+    static final class Namespace {
+
+        final String name;
+        final String prefix;
+        private final HashMap<String, String> qnames = new HashMap<>();
+
+        Namespace(String name, String prefix) {
+            this.name = name;
+            this.prefix = prefix;
+        }
+
+        String getQualifiedName(String localName) {
+
+            String qname = qnames.get(localName);
+
+            if (qname == null) {
+                qname = prefix + ":" + localName;
+
+                qnames.put(localName, qname);
+            }
+
+            return qname;
+        }
+    }
+
+    private final LinkedHashMap<String, Namespace> namespaces = new LinkedHashMap<>();
+    private Namespace last;
+
+    /**
+     * Returns a namespace, creating a prefix for it if necessary.
+     *
+     * @param name Namespace name
+     * @return Namespace
+     */
+    Namespace getNamespace(String name) {
+
+        if (last != null && last.name == name) {
+            return last;
+        }
+
+        Namespace ns = namespaces.get(name);
+
+        /* if prefix does not exist, create one */
+        if (ns == null) {
+            ns = new Namespace(name, "r" + namespaces.size());
+
+            namespaces.put(name, ns);
+        }
+
+        last = ns;
+
+        return ns;
+    }
+
+    String getPrefix(String name) {
+        return getNamespace(name).prefix;
+    }
+
+    String getQualifiedName(String name, String localName) {
+        return getNamespace(name).getQualifiedName(localName);
+    }
+
+    /**
+     * @return All namespaces, in the order in which they were first
+     * encountered
+     */
+    Collection<Namespace> getNamespaces() {
+        return namespaces.values();
+    }
+
+}
@@ -26,6 +26,7 @@
 package com.sandflow.smpte.regxml;
 
 import com.sandflow.smpte.klv.exceptions.KLVException;
+import com.sandflow.smpte.regxml.dict.DefinitionMetadataCache;
 import com.sandflow.smpte.regxml.dict.DefinitionResolver;
 import com.sandflow.smpte.regxml.dict.MetaDictionary;
 import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
@@ -54,14 +55,13 @@ import com.sandflow.smpte.util.UL;
 import com.sandflow.util.events.BasicEvent;
 import com.sandflow.util.events.Event;
 import com.sandflow.util.events.EventHandler;
+import com.sandflow.util.xml.XMLPool;
 import java.io.IOException;
 import java.net.URI;
 import java.security.InvalidParameterException;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -96,6 +96,7 @@ public class XMLSchemaBuilder {
     private static final AUID InstanceID_AUID = new AUID(UL.fromURN("urn:smpte:ul:060e2b34.01010101.01011502.00000000"));
 
     private DefinitionResolver resolver;
+    private final DefinitionMetadataCache metacache;
     private final NamespacePrefixMapper prefixes = new NamespacePrefixMapper();
     private final EventHandler evthandler;
 
@@ -150,6 +151,17 @@ public class XMLSchemaBuilder {
         element.appendChild(element.getOwnerDocument().createComment(comment));
     }
 
+    /**
+     * Indicates whether an event of a given kind would be handled. Events, and
+     * the informative comments that accompany them, are not constructed
+     * otherwise.
+     */
+    boolean isEventEnabled(EventCodes code) {
+        return evthandler == null
+            || code.severity == Event.Severity.FATAL
+            || evthandler.isEnabled(code.severity);
+    }
+
     void handleEvent(SchemaEvent evt) throws RuleException {
 
         if (evthandler != null) {
@@ -187,6 +199,7 @@ public class XMLSchemaBuilder {
         }
 
         this.resolver = resolver;
+        this.metacache = DefinitionMetadataCache.getInstance(resolver);
         this.evthandler = handler;
     }
 
@@ -253,13 +266,7 @@ public class XMLSchemaBuilder {
         this.prefixes.clear();
 
         /* create the DOM from the STD_DECL template */
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-
-        factory.setNamespaceAware(true);
-
-        DocumentBuilder builder = factory.newDocumentBuilder();
-
-        Document doc = builder.newDocument();
+        Document doc = XMLPool.newDocument();
 
         doc.setXmlStandalone(true);
 
@@ -347,43 +354,25 @@ public class XMLSchemaBuilder {
         Element all = root.getOwnerDocument().createElementNS(XSD_NS, "xs:all");
         complexType.appendChild(all);
 
-        boolean hasUID = false;
-        ClassDefinition cdef = definition;
-
-        while (cdef != null) {
-
-            for (AUID auid : resolver.getMembersOf(cdef)) {
-
-                PropertyDefinition pdef
-                    = (PropertyDefinition) resolver.getDefinition(auid);
-
-                element = root.getOwnerDocument().createElementNS(XSD_NS, "xs:element");
-                element.setAttribute("ref", createQName(pdef.getNamespace(), pdef.getSymbol()));
-
-                if (pdef.isOptional() || pdef.getIdentification().equals(ObjectClass_AUID)) {
-                    element.setAttribute("minOccurs", "0");
-                }
+        for (PropertyDefinition pdef : metacache.getAllMembersOf(definition)) {
 
-                /* NOTE: require reg:uid only if the object has one property
-                 with IsUniqueIdentifier */
-                hasUID |= pdef.isUniqueIdentifier();
-
-                all.appendChild(element);
+            element = root.getOwnerDocument().createElementNS(XSD_NS, "xs:element");
+            element.setAttribute("ref", createQName(pdef.getNamespace(), pdef.getSymbol()));
 
+            if (pdef.isOptional() || pdef.getIdentification().equals(ObjectClass_AUID)) {
+                element.setAttribute("minOccurs", "0");
             }
 
-            if (cdef.getParentClass() != null) {
-                cdef = (ClassDefinition) resolver.getDefinition(cdef.getParentClass());
-            } else {
-                cdef = null;
-            }
+            all.appendChild(element);
 
         }
 
         Element attribute = null;
 
         /* @reg:uid */
-        if (hasUID) {
+        /* NOTE: require reg:uid only if the object has one property
+         with IsUniqueIdentifier */
+        if (metacache.getUniqueIdentifierOf(definition) != null) {
             attribute = root.getOwnerDocument().createElementNS(XSD_NS, "xs:attribute");
             attribute.setAttribute("ref", "reg:uid");
             attribute.setAttribute("use", "required");
@@ -679,22 +668,26 @@ public class XMLSchemaBuilder {
 
             if (parent == null) {
 
-                SchemaEvent evt = new SchemaEvent(
-                    EventCodes.UNKNOWN_TYPE,
-                    String.format(
-                        "Cannot resolve referenced type %s",
-                        ((StrongReferenceTypeDefinition) elemdef).getReferencedType().toString()
-                    ),
-                    String.format(
-                        "Definition %s at ComplexType %s",
-                        elemdef.getSymbol(),
-                        complexType.getLocalName()
-                    )
-                );
+                if (isEventEnabled(EventCodes.UNKNOWN_TYPE)) {
 
-                handleEvent(evt);
+                    SchemaEvent evt = new SchemaEvent(
+                        EventCodes.UNKNOWN_TYPE,
+                        String.format(
+                            "Cannot resolve referenced type %s",
+                            ((StrongReferenceTypeDefinition) elemdef).getReferencedType().toString()
+                        ),
+                        String.format(
+                            "Definition %s at ComplexType %s",
+                            elemdef.getSymbol(),
+                            complexType.getLocalName()
+                        )
+                    );
 
-                addInformativeComment(choice, evt.getReason());
+                    handleEvent(evt);
+
+                    addInformativeComment(choice, evt.getReason());
+
+                }
 
             } else {
 
@@ -731,42 +724,53 @@ public class XMLSchemaBuilder {
 
     void applyRule6_4_1a(Element root, ClassDefinition cdef) throws RuleException {
 
-        if (cdef.isConcrete()) {
-            Element element = root.getOwnerDocument().createElementNS(XSD_NS, "xs:element");
-            element.setAttribute("ref", createQName(cdef.getNamespace(), cdef.getSymbol()));
-            root.appendChild(element);
-        }
+        applyRule6_4_1aElement(root, cdef);
 
-        for (AUID auid : resolver.getSubclassesOf(cdef)) {
+        /* transitive subclasses, each listed after its parent class */
+        for (AUID auid : metacache.getAllSubclassesOf(cdef)) {
             ClassDefinition child
                 = (ClassDefinition) resolver.getDefinition(auid);
 
             if (child == null) {
 
-                SchemaEvent evt = new SchemaEvent(
-                    EventCodes.UNKNOWN_TYPE,
-                    String.format(
-                        "Cannot resolve subclass %s",
-                        auid.toString()
-                    ),
-                    String.format(
-                        "Class %s",
-                        cdef.getIdentification().toString()
-                    )
-                );
+                if (isEventEnabled(EventCodes.UNKNOWN_TYPE)) {
 
-                handleEvent(evt);
+                    SchemaEvent evt = new SchemaEvent(
+                        EventCodes.UNKNOWN_TYPE,
+                        String.format(
+                            "Cannot resolve subclass %s",
+                            auid.toString()
+                        ),
+                        String.format(
+                            "Class %s",
+                            cdef.getIdentification().toString()
+                        )
+                    );
 
-                addInformativeComment(root, evt.getReason());
+                    handleEvent(evt);
+
+                    addInformativeComment(root, evt.getReason());
+
+                }
 
             } else {
 
-                applyRule6_4_1a(root, child);
+                applyRule6_4_1aElement(root, child);
             }
         }
 
     }
 
+    private void applyRule6_4_1aElement(Element root, ClassDefinition cdef) {
+
+        if (cdef.isConcrete()) {
+            Element element = root.getOwnerDocument().createElementNS(XSD_NS, "xs:element");
+            element.setAttribute("ref", createQName(cdef.getNamespace(), cdef.getSymbol()));
+            root.appendChild(element);
+        }
+
+    }
+
     void applyRule6_5(Element root, IndirectTypeDefinition definition) throws RuleException {
 
         /*
@@ -1198,22 +1202,26 @@ public class XMLSchemaBuilder {
 
             if (parent == null) {
 
-                SchemaEvent evt = new SchemaEvent(
-                    EventCodes.UNKNOWN_TYPE,
-                    String.format(
-                        "Cannot resolve referenced type %s",
-                        ((StrongReferenceTypeDefinition) elemdef).getReferencedType().toString()
-                    ),
-                    String.format(
-                        "Definition %s at ComplexType %s",
-                        elemdef.getSymbol(),
-                        complexType.getLocalName()
-                    )
-                );
+                if (isEventEnabled(EventCodes.UNKNOWN_TYPE)) {
 
-                handleEvent(evt);
+                    SchemaEvent evt = new SchemaEvent(
+                        EventCodes.UNKNOWN_TYPE,
+                        String.format(
+                            "Cannot resolve referenced type %s",
+                            ((StrongReferenceTypeDefinition) elemdef).getReferencedType().toString()
+                        ),
+                        String.format(
+                            "Definition %s at ComplexType %s",
+                            elemdef.getSymbol(),
+                            complexType.getLocalName()
+                        )
+                    );
 
-                addInformativeComment(choice, evt.getReason());
+                    handleEvent(evt);
+
+                    addInformativeComment(choice, evt.getReason());
+
+                }
 
             } else {
 
@@ -1296,22 +1304,26 @@ public class XMLSchemaBuilder {
 
         if (parent == null) {
 
-            SchemaEvent evt = new SchemaEvent(
-                EventCodes.UNKNOWN_TYPE,
-                String.format(
-                    "Cannot resolve referenced type %s",
-                    definition.getReferencedType().toString()
-                ),
-                String.format(
-                    "Definition %s at ComplexType %s",
-                    definition.getSymbol(),
-                    complexType.getLocalName()
-                )
-            );
+            if (isEventEnabled(EventCodes.UNKNOWN_TYPE)) {
+
+                SchemaEvent evt = new SchemaEvent(
+                    EventCodes.UNKNOWN_TYPE,
+                    String.format(
+                        "Cannot resolve referenced type %s",
+                        definition.getReferencedType().toString()
+                    ),
+                    String.format(
+                        "Definition %s at ComplexType %s",
+                        definition.getSymbol(),
+                        complexType.getLocalName()
+                    )
+                );
+
+                handleEvent(evt);
 
-            handleEvent(evt);
+                addInformativeComment(choice, evt.getReason());
 
-            addInformativeComment(choice, evt.getReason());
+            }
 
         } else {
 
@@ -1364,22 +1376,26 @@ public class XMLSchemaBuilder {
 
             if (parent == null) {
 
-                SchemaEvent evt = new SchemaEvent(
-                    EventCodes.UNKNOWN_TYPE,
-                    String.format(
-                        "Cannot resolve referenced type %s",
-                        ((StrongReferenceTypeDefinition) elemdef).getReferencedType().toString()
-                    ),
-                    String.format(
-                        "Definition %s at ComplextType %s",
-                        elemdef.getSymbol(),
-                        complexType.getLocalName()
-                    )
-                );
+                if (isEventEnabled(EventCodes.UNKNOWN_TYPE)) {
 
-                handleEvent(evt);
+                    SchemaEvent evt = new SchemaEvent(
+                        EventCodes.UNKNOWN_TYPE,
+                        String.format(
+                            "Cannot resolve referenced type %s",
+                            ((StrongReferenceTypeDefinition) elemdef).getReferencedType().toString()
+                        ),
+                        String.format(
+                            "Definition %s at ComplextType %s",
+                            elemdef.getSymbol(),
+                            complexType.getLocalName()
+                        )
+                    );
 
-                addInformativeComment(root, evt.getReason());
+                    handleEvent(evt);
+
+                    addInformativeComment(root, evt.getReason());
+
+                }
 
             } else {
 
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.ImmutableLongPairMap;
+import com.sandflow.smpte.util.LongPairMap;
+import com.sandflow.smpte.util.MutableLongPairMap;
+import java.util.Collection;
+
+/**
+ * Immutable index of the definitions of one or more MetaDictionaries, keyed by
+ * the normalized value of their identification. Lookups perform a single
+ * probe sequence in an {@link ImmutableLongPairMap} and do not allocate: the
+ * normalization applied by {@link MetaDictionary#createNormalizedAUID(com.sandflow.smpte.util.AUID)}
+ * is applied directly to the two 64-bit halves of the identification.
+ */
+final class DefinitionIndex {
+
+    private final ImmutableLongPairMap<Definition> definitions;
+
+    /**
+     * Creates an index of the definitions of MetaDictionaries. If several
+     * MetaDictionaries define the same identification, the definition from
+     * the first MetaDictionary in iteration order is retained.
+     *
+     * @param dicts MetaDictionaries to be indexed
+     */
+    DefinitionIndex(Collection<MetaDictionary> dicts) {
+
+        int count = 0;
+
+        for (MetaDictionary md : dicts) {
+            count += md.getIdentifiedDefinitions().size();
+        }
+
+        MutableLongPairMap<Definition> map = new MutableLongPairMap<>(count);
+
+        for (MetaDictionary md : dicts) {
+
+            for (Definition def : md.getIdentifiedDefinitions()) {
+
+                byte[] id = def.getIdentification().getValue();
+
+                map.putIfAbsent(
+                    MetaDictionary.createNormalizedHigh(id),
+                    LongPairMap.low(id),
+                    def
+                );
+
+            }
+        }
+
+        this.definitions = map.toImmutable();
+    }
+
+    /**
+     * Retrieves a definition
+     *
+     * @param identification Identification of the definition
+     * @return Definition, or null if none exists
+     */
+    Definition get(AUID identification) {
+        return MetaDictionary.getNormalized(definitions, identification);
+    }
+
+    /**
+     * @return Number of definitions in the index
+     */
+    int size() {
+        return definitions.size();
+    }
+
+}
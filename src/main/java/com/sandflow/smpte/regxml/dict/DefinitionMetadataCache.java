@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RenameTypeDefinition;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.LongPairMap;
+import com.sandflow.smpte.util.MutableLongPairMap;
+import com.sandflow.smpte.util.UL;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lazily memoizes information derived from the definitions of a
+ * {@link DefinitionResolver}, such as the flattened list of members of a class,
+ * the transitive subclasses of a class, the base definition of a type, the
+ * unique identifier property of a class and the namespace name of a
+ * definition. The ancestry of all classes is computed at once on first use.
+ * Information about the class hierarchy of a {@link DefinitionSnapshot} is
+ * instead precomputed by the snapshot.
+ * Instances are safe for use by multiple threads. The definitions held by the
+ * underlying resolver must not change once the cache is in use.
+ */
+public class DefinitionMetadataCache {
+
+    /**
+     * Returns the cache associated with a resolver. Snapshots, collections and
+     * MetaDictionaries own their cache, which is shared by all their users.
+     * Other resolvers, including third-party implementations, are not
+     * shared: a new cache, which is owned by the caller, is created on each
+     * call. Such callers should retain the returned cache for as long as they
+     * use the resolver.
+     *
+     * @param resolver Resolver for which the cache is sought. Must not be null.
+     * @return Cache associated with the resolver
+     */
+    public static DefinitionMetadataCache getInstance(DefinitionResolver resolver) {
+
+        if (resolver == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (resolver instanceof DefinitionSnapshot) {
+            return ((DefinitionSnapshot) resolver).getMetadataCache();
+        }
+
+        if (resolver instanceof MetaDictionaryCollection) {
+            return ((MetaDictionaryCollection) resolver).getMetadataCache();
+        }
+
+        if (resolver instanceof MetaDictionary) {
+            return ((MetaDictionary) resolver).getMetadataCache();
+        }
+
+        return new DefinitionMetadataCache(resolver);
+    }
+
+    private final DefinitionResolver resolver;
+    private final DefinitionSnapshot snapshot;
+    private final ConcurrentHashMap<AUID, List<PropertyDefinition>> allMembers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AUID, List<AUID>> allSubclasses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AUID, Definition> baseDefinitions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AUID, PropertyDefinition> uniqueIdentifiers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<URI, String> namespaceNames = new ConcurrentHashMap<>();
+    private final Collection<MetaDictionary> dictionaries;
+
+    /* ancestry of every class of the dictionaries, built on first use */
+    private volatile LongPairMap<long[]> ancestries;
+
+    /**
+     * Instantiates a cache that is not shared with other users of the resolver.
+     *
+     * @param resolver Resolver from which definitions are retrieved. Must not
+     * be null.
+     */
+    public DefinitionMetadataCache(DefinitionResolver resolver) {
+
+        if (resolver == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.resolver = resolver;
+
+        /* snapshots precompute the class hierarchy */
+        this.snapshot = resolver instanceof DefinitionSnapshot ? (DefinitionSnapshot) resolver : null;
+
+        /* the class definitions of other resolvers cannot be enumerated */
+        if (resolver instanceof MetaDictionaryCollection) {
+            this.dictionaries = ((MetaDictionaryCollection) resolver).getDictionaries();
+        } else if (resolver instanceof MetaDictionary) {
+            this.dictionaries = Collections.singletonList((MetaDictionary) resolver);
+        } else {
+            this.dictionaries = null;
+        }
+    }
+
+    /**
+     * @return Resolver from which definitions are retrieved
+     */
+    public DefinitionResolver getResolver() {
+        return resolver;
+    }
+
+    /**
+     * Returns all the properties of a class, including those inherited from
+     * its parent classes. The properties of the class itself are listed first,
+     * followed by those of its parent class, and so on.
+     *
+     * @param definition Class definition for which members are sought
+     * @return Immutable list of property definitions
+     */
+    public List<PropertyDefinition> getAllMembersOf(ClassDefinition definition) {
+
+        if (snapshot != null) {
+            return snapshot.getAllMembersOf(definition);
+        }
+
+        List<PropertyDefinition> props = allMembers.get(definition.getIdentification());
+
+        if (props == null) {
+
+            props = collectAllMembersOf(resolver, definition);
+
+            List<PropertyDefinition> prev = allMembers.putIfAbsent(definition.getIdentification(), props);
+
+            if (prev != null) {
+                props = prev;
+            }
+
+        }
+
+        return props;
+    }
+
+    /**
+     * Returns the first property of a class, including inherited properties,
+     * that is a unique identifier.
+     *
+     * @param definition Class definition for which the unique identifier is
+     * sought
+     * @return Property definition, or null if the class has no unique
+     * identifier
+     */
+    public PropertyDefinition getUniqueIdentifierOf(ClassDefinition definition) {
+
+        if (snapshot != null) {
+            return snapshot.getUniqueIdentifierOf(definition);
+        }
+
+        PropertyDefinition uniquepropdef = uniqueIdentifiers.get(definition.getIdentification());
+
+        if (uniquepropdef == null) {
+
+            uniquepropdef = findUniqueIdentifier(getAllMembersOf(definition));
+
+            if (uniquepropdef != null) {
+                uniqueIdentifiers.putIfAbsent(definition.getIdentification(), uniquepropdef);
+            }
+        }
+
+        return uniquepropdef;
+    }
+
+    /**
+     * Returns the identifications of all the subclasses of a class, including
+     * the subclasses of its subclasses. Each subclass is listed before its own
+     * subclasses, and the subclasses of a class are listed in the order
+     * returned by {@link DefinitionResolver#getSubclassesOf(com.sandflow.smpte.regxml.dict.definitions.ClassDefinition)}.
+     * Subclasses that cannot be resolved are listed, but have no subclasses.
+     *
+     * @param definition Class definition for which subclasses are sought
+     * @return Immutable list of identifications
+     */
+    public List<AUID> getAllSubclassesOf(ClassDefinition definition) {
+
+        if (snapshot != null) {
+            return snapshot.getAllSubclassesOf(definition);
+        }
+
+        List<AUID> ids = allSubclasses.get(definition.getIdentification());
+
+        if (ids == null) {
+
+            ids = collectAllSubclassesOf(resolver, definition);
+
+            List<AUID> prev = allSubclasses.putIfAbsent(definition.getIdentification(), ids);
+
+            if (prev != null) {
+                ids = prev;
+            }
+
+        }
+
+        return ids;
+    }
+
+    /**
+     * Returns the definition of a type after all Rename types have been
+     * resolved.
+     *
+     * @param identification Identification of the type
+     * @return Base definition of the type, or null if no definition is found
+     */
+    public Definition getBaseDefinition(AUID identification) {
+
+        Definition definition = baseDefinitions.get(identification);
+
+        if (definition == null) {
+
+            definition = resolver.getDefinition(identification);
+
+            while (definition instanceof RenameTypeDefinition) {
+                definition = resolver.getDefinition(((RenameTypeDefinition) definition).getRenamedType());
+            }
+
+            /* NOTE: missing definitions are not cached since they are not expected in practice */
+            if (definition != null) {
+                baseDefinitions.putIfAbsent(identification, definition);
+            }
+        }
+
+        return definition;
+    }
+
+    /**
+     * Returns the namespace name of a definition. The same String instance is
+     * returned for all definitions that share a namespace, which allows
+     * writers to compare namespaces by reference.
+     *
+     * @param definition Definition. Must not be null.
+     * @return Namespace name of the definition
+     */
+    public String getNamespaceName(Definition definition) {
+
+        URI ns = definition.getNamespace();
+
+        String name = namespaceNames.get(ns);
+
+        if (name == null) {
+
+            name = ns.toString();
+
+            String prev = namespaceNames.putIfAbsent(ns, name);
+
+            if (prev != null) {
+                name = prev;
+            }
+        }
+
+        return name;
+    }
+
+    /**
+     * Indicates whether a group is an instance of a class, i.e. whether the
+     * class of the group is the class or one of its subclasses. The version
+     * and group coding bytes of the keys are ignored. The ancestry of every
+     * class is computed once, after which the test takes constant time and
+     * does not allocate memory, unless the definitions of the resolver cannot
+     * be enumerated, in which case the ancestry is computed on every call.
+     *
+     * @param groupKey Key of the group, e.g. the key of a Local Set
+     * @param classKey Key of the class
+     * @return true if the group is an instance of the class
+     */
+    public boolean isInstanceOf(UL groupKey, UL classKey) {
+        byte[] key = classKey.getValue();
+
+        return contains(getAncestryOf(groupKey), MetaDictionary.createNormalizedHigh(key), LongPairMap.low(key));
+    }
+
+    /**
+     * Returns the groups that are instances of a class, as determined by
+     * {@link #isInstanceOf(com.sandflow.smpte.util.UL, com.sandflow.smpte.util.UL)}.
+     *
+     * @param <T> Type of the groups
+     * @param groups Groups to be searched
+     * @param classKey Key of the class
+     * @return Instances of the class, in the order in which they are listed
+     * in groups
+     */
+    public <T extends Group> List<T> getInstancesOf(Collection<T> groups, UL classKey) {
+
+        byte[] key = classKey.getValue();
+        long hi = MetaDictionary.createNormalizedHigh(key);
+        long lo = LongPairMap.low(key);
+
+        ArrayList<T> instances = new ArrayList<>();
+
+        for (T group : groups) {
+            if (contains(getAncestryOf(group.getKey()), hi, lo)) {
+                instances.add(group);
+            }
+        }
+
+        return instances;
+    }
+
+    /**
+     * Returns the normalized keys of the class of a group and of all its
+     * ancestors, or null if the key does not identify a class
+     */
+    private long[] getAncestryOf(UL groupKey) {
+
+        if (snapshot != null) {
+            return snapshot.getAncestryOf(groupKey);
+        }
+
+        if (dictionaries == null) {
+            Definition def = resolver.getDefinition(new AUID(groupKey));
+
+            return def instanceof ClassDefinition ? collectAncestry(resolver, (ClassDefinition) def) : null;
+        }
+
+        LongPairMap<long[]> index = this.ancestries;
+
+        if (index == null) {
+
+            MutableLongPairMap<long[]> m = new MutableLongPairMap<>();
+
+            for (MetaDictionary md : dictionaries) {
+
+                for (Definition def : md.getIdentifiedDefinitions()) {
+
+                    if (!(def instanceof ClassDefinition)) {
+                        continue;
+                    }
+
+                    byte[] id = def.getIdentification().getValue();
+                    long hi = MetaDictionary.createNormalizedHigh(id);
+                    long lo = LongPairMap.low(id);
+
+                    if (!m.containsKey(hi, lo)) {
+                        m.put(hi, lo, collectAncestry(resolver, (ClassDefinition) def));
+                    }
+                }
+            }
+
+            index = m.toImmutable();
+
+            this.ancestries = index;
+        }
+
+        byte[] key = groupKey.getValue();
+
+        return index.get(MetaDictionary.createNormalizedHigh(key), LongPairMap.low(key));
+    }
+
+    private static boolean contains(long[] ancestry, long hi, long lo) {
+
+        if (ancestry != null) {
+            for (int i = 0; i < ancestry.length; i += 2) {
+                if (ancestry[i] == hi && ancestry[i + 1] == lo) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Walks a class and its ancestors, and returns their normalized keys as
+     * consecutive pairs of most and least significant 64 bits
+     */
+    static long[] collectAncestry(DefinitionResolver resolver, ClassDefinition definition) {
+
+        ArrayList<AUID> ids = new ArrayList<>();
+
+        for (Definition def = definition; def instanceof ClassDefinition;) {
+
+            ids.add(def.getIdentification());
+
+            AUID parent = ((ClassDefinition) def).getParentClass();
+
+            def = parent == null ? null : resolver.getDefinition(parent);
+        }
+
+        long[] ancestry = new long[2 * ids.size()];
+
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] id = ids.get(i).getValue();
+
+            ancestry[2 * i] = MetaDictionary.createNormalizedHigh(id);
+            ancestry[2 * i + 1] = LongPairMap.low(id);
+        }
+
+        return ancestry;
+    }
+
+    /**
+     * Walks a class and its ancestors, and returns their members
+     */
+    static List<PropertyDefinition> collectAllMembersOf(DefinitionResolver resolver, ClassDefinition definition) {
+
+        ArrayList<PropertyDefinition> al = new ArrayList<>();
+
+        for (ClassDefinition cdef = definition; cdef != null;) {
+
+            Collection<AUID> members = resolver.getMembersOf(cdef);
+
+            if (members != null) {
+                for (AUID auid : members) {
+                    al.add((PropertyDefinition) resolver.getDefinition(auid));
+                }
+            }
+
+            if (cdef.getParentClass() != null) {
+                cdef = (ClassDefinition) resolver.getDefinition(cdef.getParentClass());
+            } else {
+                cdef = null;
+            }
+
+        }
+
+        al.trimToSize();
+
+        return Collections.unmodifiableList(al);
+    }
+
+    /**
+     * Walks the descendants of a class, and returns their identifications in
+     * pre-order
+     */
+    static List<AUID> collectAllSubclassesOf(DefinitionResolver resolver, ClassDefinition definition) {
+
+        ArrayList<AUID> al = new ArrayList<>();
+
+        collectSubclassesOf(resolver, definition, al);
+
+        if (al.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        al.trimToSize();
+
+        return Collections.unmodifiableList(al);
+    }
+
+    private static void collectSubclassesOf(DefinitionResolver resolver, ClassDefinition definition, List<AUID> ids) {
+
+        Collection<AUID> subclasses = resolver.getSubclassesOf(definition);
+
+        if (subclasses == null) {
+            return;
+        }
+
+        for (AUID auid : subclasses) {
+
+            ids.add(auid);
+
+            Definition child = resolver.getDefinition(auid);
+
+            if (child instanceof ClassDefinition) {
+                collectSubclassesOf(resolver, (ClassDefinition) child, ids);
+            }
+        }
+    }
+
+    /**
+     * Returns the first property that is a unique identifier, or null
+     */
+    static PropertyDefinition findUniqueIdentifier(List<PropertyDefinition> members) {
+
+        for (PropertyDefinition propdef : members) {
+
+            if (propdef.isUniqueIdentifier()) {
+                return propdef;
+            }
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Holds the current {@link DefinitionSnapshot} of a set of MetaDictionaries,
+ * and replaces it atomically when the MetaDictionaries are reloaded.
+ *
+ * Readers retrieve the current snapshot using {@link #getSnapshot()}, which
+ * never blocks, and keep using it for the duration of a unit of work, e.g.
+ * the conversion of an MXF file. Replacing the snapshot does not affect
+ * work that is in progress, which completes with the snapshot it started
+ * with.
+ */
+public class DefinitionRegistry {
+
+    private final AtomicReference<DefinitionSnapshot> snapshot;
+
+    /**
+     * Instantiates a registry
+     *
+     * @param snapshot Initial snapshot. Must not be null.
+     */
+    public DefinitionRegistry(DefinitionSnapshot snapshot) {
+
+        if (snapshot == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.snapshot = new AtomicReference<>(snapshot);
+    }
+
+    /**
+     * @return Current snapshot
+     */
+    public DefinitionSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Replaces the current snapshot
+     *
+     * @param newSnapshot New snapshot. Must not be null.
+     * @return Snapshot that was replaced
+     */
+    public DefinitionSnapshot update(DefinitionSnapshot newSnapshot) {
+
+        if (newSnapshot == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return snapshot.getAndSet(newSnapshot);
+    }
+
+    /**
+     * Replaces the current snapshot only if it has not been replaced since
+     * it was retrieved, e.g. to avoid overwriting the outcome of a concurrent
+     * reload.
+     *
+     * @param expected Snapshot expected to be current
+     * @param newSnapshot New snapshot. Must not be null.
+     * @return true if the snapshot was replaced
+     */
+    public boolean update(DefinitionSnapshot expected, DefinitionSnapshot newSnapshot) {
+
+        if (newSnapshot == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return snapshot.compareAndSet(expected, newSnapshot);
+    }
+
+    /**
+     * Loads MetaDictionaries from XML files using the StAX parser, which does
+     * not require JAXB, and replaces the current snapshot with a snapshot of
+     * the MetaDictionaries. The current snapshot is left untouched if loading
+     * fails.
+     *
+     * @see MetaDictionaryCollection#loadStAX(java.util.Collection, java.util.concurrent.Executor)
+     *
+     * @param paths XML files, each containing a single MetaDictionary
+     * @param executor Executor used to parse the files, or null if the files
+     * are to be parsed by the calling thread
+     * @return New snapshot
+     * @throws IOException
+     * @throws IllegalDefinitionException
+     * @throws IllegalDictionaryException
+     */
+    public DefinitionSnapshot reload(Collection<Path> paths, Executor executor) throws IOException, IllegalDefinitionException, IllegalDictionaryException {
+
+        DefinitionSnapshot newSnapshot = DefinitionSnapshot.of(
+            MetaDictionaryCollection.loadStAX(paths, executor)
+        );
+
+        snapshot.set(newSnapshot);
+
+        return newSnapshot;
+    }
+
+    /**
+     * Loads MetaDictionaries from XML files using the specified parser and
+     * replaces the current snapshot with a snapshot of the MetaDictionaries.
+     * The current snapshot is left untouched if loading fails.
+     *
+     * @see MetaDictionaryCollection#load(java.util.Collection, java.util.concurrent.Executor, com.sandflow.smpte.regxml.dict.MetaDictionary.XMLParser)
+     *
+     * @param paths XML files, each containing a single MetaDictionary
+     * @param executor Executor used to parse the files, or null if the files
+     * are to be parsed by the calling thread
+     * @param parser XML parser used to read the files
+     * @return New snapshot
+     * @throws IOException
+     * @throws JAXBException
+     * @throws IllegalDefinitionException
+     * @throws IllegalDictionaryException
+     */
+    public DefinitionSnapshot reload(Collection<Path> paths, Executor executor, MetaDictionary.XMLParser parser) throws IOException, JAXBException, IllegalDefinitionException, IllegalDictionaryException {
+
+        DefinitionSnapshot newSnapshot = DefinitionSnapshot.of(
+            MetaDictionaryCollection.load(paths, executor, parser)
+        );
+
+        snapshot.set(newSnapshot);
+
+        return newSnapshot;
+    }
+
+}
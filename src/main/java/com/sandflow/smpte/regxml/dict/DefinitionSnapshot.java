@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.ImmutableLongPairMap;
+import com.sandflow.smpte.util.LongPairMap;
+import com.sandflow.smpte.util.MutableLongPairMap;
+import com.sandflow.smpte.util.UL;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the definitions of a {@link MetaDictionaryCollection}.
+ * The snapshot copies the indexes of the collection when it is created, so
+ * that the collection can be modified or discarded afterwards without
+ * affecting the snapshot. Definitions themselves are shared with the
+ * collection and must not be modified.
+ *
+ * The class hierarchy is flattened when the snapshot is created: the
+ * members of each class including inherited ones, its transitive subclasses,
+ * its ancestors and its unique identifier property are retrieved without
+ * walking the hierarchy.
+ *
+ * A snapshot is safe for use by any number of threads without
+ * synchronization, and carries its own {@link DefinitionMetadataCache}.
+ *
+ * @see DefinitionRegistry
+ */
+public final class DefinitionSnapshot implements DefinitionResolver {
+
+    private final DefinitionIndex definitions;
+    private final ImmutableLongPairMap<List<AUID>> membersOf;
+    private final ImmutableLongPairMap<List<AUID>> subclassesOf;
+    private final Map<URI, Map<String, Definition>> definitionsBySymbol;
+    private final ImmutableLongPairMap<ClassHierarchy> hierarchies;
+    private final DefinitionMetadataCache metacache;
+
+    /**
+     * Creates a snapshot of the current state of a collection of
+     * MetaDictionaries. The collection must not be modified while the
+     * snapshot is being created.
+     *
+     * @param mds Collection of MetaDictionaries. Must not be null.
+     * @return Snapshot of the collection
+     */
+    public static DefinitionSnapshot of(MetaDictionaryCollection mds) {
+        return new DefinitionSnapshot(mds.getDictionaries());
+    }
+
+    /**
+     * Creates a snapshot of MetaDictionaries. If several MetaDictionaries
+     * define the same identification, the definition from the first
+     * MetaDictionary in iteration order is retained.
+     *
+     * @param dicts MetaDictionaries. Must not be null.
+     */
+    public DefinitionSnapshot(Collection<MetaDictionary> dicts) {
+
+        this.definitions = new DefinitionIndex(dicts);
+
+        MutableLongPairMap<List<AUID>> members = new MutableLongPairMap<>();
+        MutableLongPairMap<List<AUID>> subclasses = new MutableLongPairMap<>();
+        HashMap<URI, Map<String, Definition>> symbols = new HashMap<>();
+
+        for (MetaDictionary md : dicts) {
+
+            HashMap<String, Definition> mdsymbols = new HashMap<>();
+
+            for (Definition def : md.getIdentifiedDefinitions()) {
+
+                mdsymbols.put(def.getSymbol(), def);
+
+                if (!(def instanceof ClassDefinition)) {
+                    continue;
+                }
+
+                byte[] id = def.getIdentification().getValue();
+                long hi = MetaDictionary.createNormalizedHigh(id);
+                long lo = LongPairMap.low(id);
+
+                if (members.containsKey(hi, lo)) {
+                    continue;
+                }
+
+                /* members and subclasses can be defined in any MetaDictionary */
+                ArrayList<AUID> classmembers = new ArrayList<>();
+                ArrayList<AUID> classsubclasses = new ArrayList<>();
+
+                for (MetaDictionary md2 : dicts) {
+
+                    Collection<AUID> ids = md2.getMembersOf((ClassDefinition) def);
+
+                    if (ids != null) {
+                        classmembers.addAll(ids);
+                    }
+
+                    ids = md2.getSubclassesOf((ClassDefinition) def);
+
+                    if (ids != null) {
+                        classsubclasses.addAll(ids);
+                    }
+                }
+
+                members.put(hi, lo, freeze(classmembers));
+                subclasses.put(hi, lo, freeze(classsubclasses));
+            }
+
+            symbols.put(md.getSchemeURI(), Collections.unmodifiableMap(mdsymbols));
+        }
+
+        this.membersOf = members.toImmutable();
+        this.subclassesOf = subclasses.toImmutable();
+        this.definitionsBySymbol = Collections.unmodifiableMap(symbols);
+
+        /* flatten the hierarchy once the direct members and subclasses are available */
+        MutableLongPairMap<ClassHierarchy> hs = new MutableLongPairMap<>(subclassesOf.size());
+
+        for (MetaDictionary md : dicts) {
+
+            for (Definition def : md.getIdentifiedDefinitions()) {
+
+                if (!(def instanceof ClassDefinition)) {
+                    continue;
+                }
+
+                byte[] id = def.getIdentification().getValue();
+
+                hs.putIfAbsent(
+                    MetaDictionary.createNormalizedHigh(id),
+                    LongPairMap.low(id),
+                    new ClassHierarchy(this, (ClassDefinition) def)
+                );
+            }
+        }
+
+        this.hierarchies = hs.toImmutable();
+        this.metacache = new DefinitionMetadataCache(this);
+    }
+
+    /**
+     * Flattened view of the hierarchy of a single class
+     */
+    private static final class ClassHierarchy {
+
+        final List<PropertyDefinition> allMembers;
+        final List<AUID> allSubclasses;
+        final PropertyDefinition uniqueIdentifier;
+        final long[] ancestry;
+
+        ClassHierarchy(DefinitionResolver resolver, ClassDefinition definition) {
+            this.allMembers = DefinitionMetadataCache.collectAllMembersOf(resolver, definition);
+            this.allSubclasses = DefinitionMetadataCache.collectAllSubclassesOf(resolver, definition);
+            this.uniqueIdentifier = DefinitionMetadataCache.findUniqueIdentifier(allMembers);
+            this.ancestry = DefinitionMetadataCache.collectAncestry(resolver, definition);
+        }
+    }
+
+    /* definitions that are not part of the snapshot are flattened on each call */
+    private ClassHierarchy getHierarchy(ClassDefinition definition) {
+        ClassHierarchy h = MetaDictionary.getNormalized(hierarchies, definition.getIdentification());
+
+        return h == null ? new ClassHierarchy(this, definition) : h;
+    }
+
+    private static List<AUID> freeze(ArrayList<AUID> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        ids.trimToSize();
+
+        return Collections.unmodifiableList(ids);
+    }
+
+    @Override
+    public Definition getDefinition(AUID identification) {
+        return definitions.get(identification);
+    }
+
+    /**
+     * Retrieves a definition based on its symbol
+     *
+     * @param namespace Namespace of the definition
+     * @param symbol Symbol of the definition
+     * @return Definition, or null if none found
+     */
+    public Definition getDefinition(URI namespace, String symbol) {
+        Map<String, Definition> symbols = definitionsBySymbol.get(namespace);
+
+        return symbols == null ? null : symbols.get(symbol);
+    }
+
+    /**
+     * @return Namespaces of the MetaDictionaries captured by the snapshot
+     */
+    public Collection<URI> getNamespaces() {
+        return definitionsBySymbol.keySet();
+    }
+
+    /**
+     * @return Number of definitions that can be retrieved by identification
+     */
+    public int size() {
+        return definitions.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Immutable list of identifications
+     */
+    @Override
+    public Collection<AUID> getSubclassesOf(ClassDefinition definition) {
+        List<AUID> ids = MetaDictionary.getNormalized(subclassesOf, definition.getIdentification());
+
+        return ids == null ? Collections.<AUID>emptyList() : ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Immutable list of identifications
+     */
+    @Override
+    public Collection<AUID> getMembersOf(ClassDefinition definition) {
+        List<AUID> ids = MetaDictionary.getNormalized(membersOf, definition.getIdentification());
+
+        return ids == null ? Collections.<AUID>emptyList() : ids;
+    }
+
+    /**
+     * Returns all the properties of a class, including those inherited from
+     * its parent classes. The properties of the class itself are listed first,
+     * followed by those of its parent class, and so on.
+     *
+     * @param definition Class definition for which members are sought
+     * @return Immutable list of property definitions
+     */
+    public List<PropertyDefinition> getAllMembersOf(ClassDefinition definition) {
+        return getHierarchy(definition).allMembers;
+    }
+
+    /**
+     * Returns the identifications of all the subclasses of a class, including
+     * the subclasses of its subclasses, in the order specified by
+     * {@link DefinitionMetadataCache#getAllSubclassesOf(com.sandflow.smpte.regxml.dict.definitions.ClassDefinition)}.
+     *
+     * @param definition Class definition for which subclasses are sought
+     * @return Immutable list of identifications
+     */
+    public List<AUID> getAllSubclassesOf(ClassDefinition definition) {
+        return getHierarchy(definition).allSubclasses;
+    }
+
+    /**
+     * Returns the first property of a class, including inherited properties,
+     * that is a unique identifier.
+     *
+     * @param definition Class definition for which the unique identifier is
+     * sought
+     * @return Property definition, or null if the class has no unique
+     * identifier
+     */
+    public PropertyDefinition getUniqueIdentifierOf(ClassDefinition definition) {
+        return getHierarchy(definition).uniqueIdentifier;
+    }
+
+    /**
+     * Returns the normalized keys of the class identified by a key and of
+     * all its ancestors, as consecutive pairs of most and least significant
+     * 64 bits.
+     *
+     * @param key Key of the class or of one of its groups
+     * @return Ancestry of the class, or null if the key does not identify a
+     * class of the snapshot
+     */
+    long[] getAncestryOf(UL key) {
+        byte[] value = key.getValue();
+
+        ClassHierarchy h = hierarchies.get(MetaDictionary.createNormalizedHigh(value), LongPairMap.low(value));
+
+        return h == null ? null : h.ancestry;
+    }
+
+    /**
+     * @return Metadata cache associated with the snapshot
+     */
+    public DefinitionMetadataCache getMetadataCache() {
+        return metacache;
+    }
+
+}
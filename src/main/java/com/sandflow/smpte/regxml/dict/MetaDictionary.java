@@ -49,6 +49,8 @@ import com.sandflow.smpte.regxml.dict.definitions.WeakReferenceTypeDefinition;
 import com.sandflow.smpte.regxml.dict.exceptions.DuplicateSymbolException;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
 import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.LongPairMap;
+import com.sandflow.smpte.util.MutableLongPairMap;
 import com.sandflow.smpte.util.UL;
 import com.sandflow.smpte.util.UUID;
 import com.sandflow.smpte.util.xml.UUIDAdapter;
@@ -60,10 +62,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
@@ -71,8 +70,6 @@ import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlElements;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Document;
 
 /**
@@ -112,6 +109,32 @@ public class MetaDictionary implements DefinitionResolver {
         return new UL(value);
     }
 
+    /**
+     * Returns the most significant 64 bits of the normalized value of an
+     * AUID, as computed by {@link #createNormalizedAUID(com.sandflow.smpte.util.AUID)}
+     * but without allocation. The least significant 64 bits are not affected
+     * by normalization.
+     */
+    static long createNormalizedHigh(byte[] auid) {
+        long hi = LongPairMap.high(auid);
+
+        /* ULs have the MSB of the first byte clear */
+        if ((auid[0] & 0x80) == 0) {
+
+            /* set version to 0 */
+            hi &= ~0xFFL;
+
+            if (auid[4] == 2) {
+
+                /* set byte 6 to 0x7f */
+                hi = (hi & ~(0xFFL << 16)) | (0x7FL << 16);
+
+            }
+        }
+
+        return hi;
+    }
+
     static String createQualifiedSymbol(String namespace, String symbol) {
         if (namespace == null || namespace.length() == 0) {
             return symbol;
@@ -121,7 +144,23 @@ public class MetaDictionary implements DefinitionResolver {
     }
     
     /**
-     * Reads a MetaDictionary from an XML document.
+     * Parser used to read the XML representation of a MetaDictionary
+     */
+    public static enum XMLParser {
+        
+        /**
+         * JAXB bindings of the MetaDictionary classes
+         */
+        JAXB,
+        /**
+         * Streaming StAX parser, which avoids the initialization cost of JAXB
+         * and does not require the javax.xml.bind package
+         */
+        STAX
+    }
+    
+    /**
+     * Reads a MetaDictionary from an XML document using JAXB.
      * 
      * @param reader Reader from which a single MetaDictionary in XML form will be read
      * @return a MetaDictionary
@@ -130,10 +169,27 @@ public class MetaDictionary implements DefinitionResolver {
      * @throws IllegalDefinitionException 
      */
     public static MetaDictionary fromXML(Reader reader) throws JAXBException, IOException, IllegalDefinitionException {
-        JAXBContext ctx = JAXBContext.newInstance(MetaDictionary.class);
+        return fromXML(reader, XMLParser.JAXB);
+    }
+    
+    /**
+     * Reads a MetaDictionary from an XML document. Both parsers create the
+     * same definitions.
+     * 
+     * @param reader Reader from which a single MetaDictionary in XML form will be read
+     * @param parser Parser used to read the document
+     * @return a MetaDictionary
+     * @throws JAXBException
+     * @throws IOException
+     * @throws IllegalDefinitionException 
+     */
+    public static MetaDictionary fromXML(Reader reader, XMLParser parser) throws JAXBException, IOException, IllegalDefinitionException {
+        
+        if (parser == XMLParser.STAX) {
+            return fromXMLStAX(reader);
+        }
         
-        Unmarshaller m = ctx.createUnmarshaller();
-        MetaDictionary md = (MetaDictionary) m.unmarshal(reader);
+        MetaDictionary md = MetaDictionaryBinding.unmarshal(reader);
         
         for (Definition def : md.definitions) {
             
@@ -145,6 +201,20 @@ public class MetaDictionary implements DefinitionResolver {
         return md;
     }
 
+    /**
+     * Reads a MetaDictionary from an XML document using the StAX parser.
+     * Unlike {@link #fromXML(java.io.Reader, com.sandflow.smpte.regxml.dict.MetaDictionary.XMLParser)},
+     * this method does not require the javax.xml.bind package.
+     * 
+     * @param reader Reader from which a single MetaDictionary in XML form will be read
+     * @return a MetaDictionary
+     * @throws IOException
+     * @throws IllegalDefinitionException 
+     */
+    public static MetaDictionary fromXMLStAX(Reader reader) throws IOException, IllegalDefinitionException {
+        return MetaDictionaryStreamParser.parse(reader);
+    }
+
     
 
     @XmlJavaTypeAdapter(value = UUIDAdapter.class)
@@ -158,10 +228,13 @@ public class MetaDictionary implements DefinitionResolver {
     private String description;
 
     private final ArrayList<Definition> definitions = new ArrayList<>();
-    private final HashMap<AUID, Definition> definitionsByAUID = new HashMap<>();
+    private final MutableLongPairMap<Definition> definitionsByAUID = new MutableLongPairMap<>();
     private final HashMap<String, Definition> definitionsBySymbol = new HashMap<>();
-    private final HashMap<AUID, Set<AUID>> membersOf = new HashMap<>();
-    private final HashMap<AUID, Set<AUID>> subclassesOf = new HashMap<>();
+    private final MutableLongPairMap<Set<AUID>> membersOf = new MutableLongPairMap<>();
+    private final MutableLongPairMap<Set<AUID>> subclassesOf = new MutableLongPairMap<>();
+
+    /* metadata derived from the definitions, discarded after a change */
+    private volatile DefinitionMetadataCache metacache;
 
     private MetaDictionary() {
     }
@@ -176,13 +249,32 @@ public class MetaDictionary implements DefinitionResolver {
         this.schemeID = UUID.fromURIName(schemeURI);
         this.schemeURI = schemeURI;
     }
+
+    MetaDictionary(UUID schemeID, URI schemeURI, String description) {
+        this.schemeID = schemeID;
+        this.schemeURI = schemeURI;
+        this.description = description;
+    }
+
+    /* retrieves a value keyed by the normalized value of an AUID */
+    static <V> V getNormalized(LongPairMap<V> map, AUID auid) {
+        byte[] value = auid.getValue();
+        
+        return map.get(createNormalizedHigh(value), LongPairMap.low(value));
+    }
     
+    private static <V> void putNormalized(MutableLongPairMap<V> map, AUID auid, V v) {
+        byte[] value = auid.getValue();
+        
+        map.put(createNormalizedHigh(value), LongPairMap.low(value), v);
+    }
+
     void indexDefinition(Definition def) throws IllegalDefinitionException {
         AUID defid = createNormalizedAUID(def.getIdentification());
         
         if (def.getClass() != PropertyAliasDefinition.class) {
             
-            if (this.definitionsByAUID.containsKey(defid)) {
+            if (getNormalized(this.definitionsByAUID, defid) != null) {
                 throw new IllegalDefinitionException("Duplicate AUID: " + def.getIdentification());
             }
             
@@ -190,20 +282,20 @@ public class MetaDictionary implements DefinitionResolver {
                 throw new DuplicateSymbolException("Duplicate Symbol: " + def.getSymbol());
             }
             
-            this.definitionsByAUID.put(defid, def);
+            putNormalized(this.definitionsByAUID, defid, def);
             this.definitionsBySymbol.put(def.getSymbol(), def);
             
         }
         
         if (def instanceof PropertyDefinition) {
             
-            AUID parentauid = createNormalizedAUID(((PropertyDefinition) def).getMemberOf());
+            AUID parentauid = ((PropertyDefinition) def).getMemberOf();
             
-            Set<AUID> hs = this.membersOf.get(parentauid);
+            Set<AUID> hs = getNormalized(this.membersOf, parentauid);
             
             if (hs == null) {
                 hs = new HashSet<>();
-                this.membersOf.put(parentauid, hs);
+                putNormalized(this.membersOf, parentauid, hs);
             }
             
             hs.add(defid);
@@ -212,13 +304,13 @@ public class MetaDictionary implements DefinitionResolver {
         
         if (def instanceof ClassDefinition && ((ClassDefinition) def).getParentClass() != null) {
             
-            AUID parentauid = createNormalizedAUID(((ClassDefinition) def).getParentClass());
+            AUID parentauid = ((ClassDefinition) def).getParentClass();
             
-            Set<AUID> hs = this.subclassesOf.get(parentauid);
+            Set<AUID> hs = getNormalized(this.subclassesOf, parentauid);
             
             if (hs == null) {
                 hs = new HashSet<>();
-                this.subclassesOf.put(parentauid, hs);
+                putNormalized(this.subclassesOf, parentauid, hs);
             }
             
             hs.add(defid);
@@ -241,6 +333,25 @@ public class MetaDictionary implements DefinitionResolver {
         indexDefinition(def);
 
         this.definitions.add(def);
+
+        this.metacache = null;
+    }
+
+    /**
+     * Returns the metadata cache associated with the MetaDictionary. A new
+     * cache is created after a definition is added.
+     *
+     * @return Metadata cache associated with the MetaDictionary
+     */
+    public DefinitionMetadataCache getMetadataCache() {
+        DefinitionMetadataCache cache = this.metacache;
+
+        if (cache == null) {
+            cache = new DefinitionMetadataCache(this);
+            this.metacache = cache;
+        }
+
+        return cache;
     }
 
     /**
@@ -313,7 +424,15 @@ public class MetaDictionary implements DefinitionResolver {
 
     @Override
     public Definition getDefinition(AUID id) {
-        return definitionsByAUID.get(createNormalizedAUID(id));
+        return getNormalized(definitionsByAUID, id);
+    }
+
+    /**
+     * @return Definitions that can be retrieved by their identification, i.e.
+     * excluding property aliases
+     */
+    Collection<Definition> getIdentifiedDefinitions() {
+        return definitionsByAUID.values();
     }
 
     /**
@@ -330,33 +449,18 @@ public class MetaDictionary implements DefinitionResolver {
      * @return The XML DOM
      */
     public Document toXML() {
-
-        Document doc = null;
-
-        try {
-
-            doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            Marshaller m = JAXBContext.newInstance(MetaDictionary.class).createMarshaller();
-            m.marshal(this, doc);
-
-        } catch (JAXBException | ParserConfigurationException e) {
-
-            throw new RuntimeException(e);
-
-        }
-
-        return doc;
+        return MetaDictionaryBinding.marshal(this);
     }
 
     @Override
     public Collection<AUID> getSubclassesOf(ClassDefinition parent) {
 
-        return subclassesOf.get(createNormalizedAUID(parent.getIdentification()));
+        return getNormalized(subclassesOf, parent.getIdentification());
     }
 
     @Override
     public Collection<AUID> getMembersOf(ClassDefinition parent) {
-        return membersOf.get(createNormalizedAUID(parent.getIdentification()));
+        return getNormalized(membersOf, parent.getIdentification());
     }
 
 
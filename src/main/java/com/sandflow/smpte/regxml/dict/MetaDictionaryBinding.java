@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.util.xml.XMLPool;
+import java.io.Reader;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+
+/**
+ * JAXB bindings of {@link MetaDictionary}. All references to the
+ * javax.xml.bind package are confined to this class so that MetaDictionary,
+ * MetaDictionaryCollection and the StAX parser can be loaded on platforms
+ * that do not provide JAXB.
+ */
+final class MetaDictionaryBinding {
+
+    private MetaDictionaryBinding() {
+    }
+
+    /**
+     * Unmarshals a MetaDictionary. The definitions are neither namespaced nor
+     * indexed.
+     *
+     * @param reader Reader from which a single MetaDictionary in XML form will be read
+     * @return MetaDictionary
+     * @throws JAXBException
+     */
+    static MetaDictionary unmarshal(Reader reader) throws JAXBException {
+
+        Unmarshaller m = XMLPool.getJAXBContext(MetaDictionary.class).createUnmarshaller();
+
+        return (MetaDictionary) m.unmarshal(reader);
+    }
+
+    /**
+     * Marshals a MetaDictionary to a new DOM Document.
+     *
+     * @param md MetaDictionary
+     * @return The XML DOM
+     */
+    static Document marshal(MetaDictionary md) {
+
+        try {
+
+            Document doc = XMLPool.newDocument();
+            Marshaller m = XMLPool.getJAXBContext(MetaDictionary.class).createMarshaller();
+            m.marshal(md, doc);
+
+            return doc;
+
+        } catch (JAXBException | ParserConfigurationException e) {
+
+            throw new RuntimeException(e);
+
+        }
+
+    }
+
+    /**
+     * Rethrows the cause of a failed JAXB load.
+     *
+     * @param cause Checked exception thrown while unmarshalling
+     * @return RuntimeException wrapping the cause, if it is not a JAXBException
+     * @throws JAXBException if the cause is a JAXBException
+     */
+    static RuntimeException rethrow(Throwable cause) throws JAXBException {
+
+        if (cause instanceof JAXBException) {
+            throw (JAXBException) cause;
+        }
+
+        return new RuntimeException(cause);
+    }
+
+}
@@ -30,29 +30,204 @@ import com.sandflow.smpte.regxml.dict.definitions.Definition;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
 import com.sandflow.smpte.util.AUID;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import javax.xml.bind.JAXBException;
 
 /**
- * A collection of multiple RegXML Metadictionary as specified in SMPTE ST 2001-1
+ * A collection of multiple RegXML Metadictionary as specified in SMPTE ST 2001-1.
+ * Definitions are retrieved from a single index that merges all the
+ * MetaDictionaries of the collection, so MetaDictionaries must only be
+ * modified through the collection once they have been added to it.
  */
 public class MetaDictionaryCollection implements DefinitionResolver {
 
     final private HashMap<URI, MetaDictionary> dicts = new HashMap<>();
 
+    /* merged index of the definitions of all dictionaries, rebuilt on first use after a change */
+    private volatile DefinitionIndex index;
+
+    /* metadata derived from the definitions, discarded after a change */
+    private volatile DefinitionMetadataCache metacache;
+
+    /**
+     * Loads a collection of MetaDictionaries from XML files. The files are
+     * parsed concurrently, and then added to the collection in the order in
+     * which they are listed, so that the outcome, including the reporting of
+     * duplicate MetaDictionaries, does not depend on the order in which the
+     * files are parsed.
+     *
+     * @param paths XML files, each containing a single MetaDictionary
+     * @param executor Executor used to parse the files, or null if the files
+     * are to be parsed by the calling thread
+     * @return Collection containing the MetaDictionaries
+     * @throws IOException
+     * @throws JAXBException
+     * @throws IllegalDefinitionException
+     * @throws IllegalDictionaryException If two files contain a MetaDictionary
+     * with the same Scheme URI
+     */
+    public static MetaDictionaryCollection load(Collection<Path> paths, Executor executor) throws IOException, JAXBException, IllegalDefinitionException, IllegalDictionaryException {
+        return load(paths, executor, MetaDictionary.XMLParser.JAXB);
+    }
+
+    /**
+     * Loads a collection of MetaDictionaries from XML files using the
+     * specified parser.
+     *
+     * @see #load(java.util.Collection, java.util.concurrent.Executor)
+     *
+     * @param paths XML files, each containing a single MetaDictionary
+     * @param executor Executor used to parse the files, or null if the files
+     * are to be parsed by the calling thread
+     * @param parser Parser used to read the files
+     * @return Collection containing the MetaDictionaries
+     * @throws IOException
+     * @throws JAXBException
+     * @throws IllegalDefinitionException
+     * @throws IllegalDictionaryException If two files contain a MetaDictionary
+     * with the same Scheme URI
+     */
+    public static MetaDictionaryCollection load(Collection<Path> paths, Executor executor, final MetaDictionary.XMLParser parser) throws IOException, JAXBException, IllegalDefinitionException, IllegalDictionaryException {
+
+        if (parser == MetaDictionary.XMLParser.STAX) {
+            return loadStAX(paths, executor);
+        }
+
+        try {
+
+            return loadAll(paths, executor, parser);
+
+        } catch (ExecutionException e) {
+
+            throw MetaDictionaryBinding.rethrow(e.getCause());
+
+        }
+    }
+
+    /**
+     * Loads a collection of MetaDictionaries from XML files using the StAX
+     * parser. Unlike {@link #load(java.util.Collection, java.util.concurrent.Executor, com.sandflow.smpte.regxml.dict.MetaDictionary.XMLParser)},
+     * this method does not require the javax.xml.bind package.
+     *
+     * @see #load(java.util.Collection, java.util.concurrent.Executor)
+     *
+     * @param paths XML files, each containing a single MetaDictionary
+     * @param executor Executor used to parse the files, or null if the files
+     * are to be parsed by the calling thread
+     * @return Collection containing the MetaDictionaries
+     * @throws IOException
+     * @throws IllegalDefinitionException
+     * @throws IllegalDictionaryException If two files contain a MetaDictionary
+     * with the same Scheme URI
+     */
+    public static MetaDictionaryCollection loadStAX(Collection<Path> paths, Executor executor) throws IOException, IllegalDefinitionException, IllegalDictionaryException {
+
+        try {
+
+            return loadAll(paths, executor, MetaDictionary.XMLParser.STAX);
+
+        } catch (ExecutionException e) {
+
+            /* the StAX parser throws no other checked exception */
+            throw new RuntimeException(e.getCause());
+
+        }
+    }
+
+    /* throws ExecutionException if a file fails with a checked exception other than those declared */
+    private static MetaDictionaryCollection loadAll(Collection<Path> paths, Executor executor, final MetaDictionary.XMLParser parser) throws IOException, IllegalDefinitionException, IllegalDictionaryException, ExecutionException {
+
+        ArrayList<FutureTask<MetaDictionary>> tasks = new ArrayList<>(paths.size());
+
+        for (final Path path : paths) {
+
+            FutureTask<MetaDictionary> task = new FutureTask<>(new Callable<MetaDictionary>() {
+
+                @Override
+                public MetaDictionary call() throws Exception {
+                    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                        if (parser == MetaDictionary.XMLParser.STAX) {
+                            return MetaDictionary.fromXMLStAX(reader);
+                        }
+                        return MetaDictionary.fromXML(reader, parser);
+                    }
+                }
+            });
+
+            if (executor == null) {
+                task.run();
+            } else {
+                executor.execute(task);
+            }
+
+            tasks.add(task);
+        }
+
+        MetaDictionaryCollection mds = new MetaDictionaryCollection();
+
+        try {
+
+            for (FutureTask<MetaDictionary> task : tasks) {
+                mds.addDictionary(task.get());
+            }
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException();
+
+        } catch (ExecutionException e) {
+
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof IllegalDefinitionException) {
+                throw (IllegalDefinitionException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw e;
+
+        } finally {
+
+            /* do not leave unneeded work behind if loading fails */
+            for (FutureTask<MetaDictionary> task : tasks) {
+                task.cancel(false);
+            }
+
+        }
+
+        return mds;
+    }
+
     @Override
     public Definition getDefinition(AUID auid) {
-        Definition def = null;
+        DefinitionIndex di = this.index;
 
-        for (MetaDictionary md : dicts.values()) {
-            if ((def = md.getDefinition(auid)) != null) {
-                break;
-            }
+        if (di == null) {
+            di = new DefinitionIndex(dicts.values());
+            this.index = di;
         }
 
-        return def;
+        return di.get(auid);
     }
     
     /**
@@ -84,6 +259,9 @@ public class MetaDictionaryCollection implements DefinitionResolver {
 
         if (oldmd == null) {
             dicts.put(metadictionary.getSchemeURI(), metadictionary);
+
+            index = null;
+            metacache = null;
         } else {
             throw new IllegalDictionaryException("Metadictionary already present in group.");
         }
@@ -107,6 +285,26 @@ public class MetaDictionaryCollection implements DefinitionResolver {
         }
 
         md.add(def);
+
+        index = null;
+        metacache = null;
+    }
+
+    /**
+     * Returns the metadata cache associated with the collection. A new cache
+     * is created after the collection is modified.
+     *
+     * @return Metadata cache associated with the collection
+     */
+    public DefinitionMetadataCache getMetadataCache() {
+        DefinitionMetadataCache cache = this.metacache;
+
+        if (cache == null) {
+            cache = new DefinitionMetadataCache(this);
+            this.metacache = cache;
+        }
+
+        return cache;
     }
 
     /**
@@ -0,0 +1,813 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.DefinitionVisitor;
+import com.sandflow.smpte.regxml.dict.definitions.EnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ExtendibleEnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.FixedArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.FloatTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IndirectTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IntegerTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.LensSerialFloatTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.OpaqueTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyAliasDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RecordTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RenameTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.SetTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StreamTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StringTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StrongReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.VariableArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.WeakReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UUID;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compact binary image of a {@link MetaDictionaryCollection}, which can be
+ * loaded without the cost of parsing and binding the XML representation of the
+ * RegXML Metadictionaries specified in SMPTE ST 2001-1. The image records the
+ * XML files it was compiled from, together with a SHA-256 checksum of their
+ * contents, so that an image that no longer matches its sources can be
+ * detected using {@link #isStale()}.
+ */
+public class MetaDictionaryImage {
+
+    /**
+     * Magic number at the start of every image ("RXDI")
+     */
+    private static final int MAGIC = 0x52584449;
+
+    /**
+     * Version of the image format. Images of any other version are rejected.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Conventional extension of image files
+     */
+    public static final String FILE_EXTENSION = ".rxd";
+
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+    private static final byte CLASS = 1;
+    private static final byte PROPERTY = 2;
+    private static final byte PROPERTY_ALIAS = 3;
+    private static final byte CHARACTER = 4;
+    private static final byte ENUMERATION = 5;
+    private static final byte EXTENDIBLE_ENUMERATION = 6;
+    private static final byte FIXED_ARRAY = 7;
+    private static final byte INDIRECT = 8;
+    private static final byte INTEGER = 9;
+    private static final byte OPAQUE = 10;
+    private static final byte RECORD = 11;
+    private static final byte RENAME = 12;
+    private static final byte SET = 13;
+    private static final byte STREAM = 14;
+    private static final byte STRING = 15;
+    private static final byte STRONG_REFERENCE = 16;
+    private static final byte VARIABLE_ARRAY = 17;
+    private static final byte WEAK_REFERENCE = 18;
+    private static final byte FLOAT = 19;
+    private static final byte LENS_SERIAL_FLOAT = 20;
+
+    private final MetaDictionaryCollection dictionaries;
+    private final List<File> sources;
+    private final byte[] checksum;
+
+    private MetaDictionaryImage(MetaDictionaryCollection dictionaries, List<File> sources, byte[] checksum) {
+        this.dictionaries = dictionaries;
+        this.sources = sources;
+        this.checksum = checksum;
+    }
+
+    /**
+     * @return Collection of MetaDictionaries contained in the image
+     */
+    public MetaDictionaryCollection getDictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * @return XML files from which the image was compiled, as absolute paths
+     */
+    public List<File> getSources() {
+        return sources;
+    }
+
+    /**
+     * @return Checksum of the XML files from which the image was compiled
+     */
+    public byte[] getChecksum() {
+        return checksum.clone();
+    }
+
+    /**
+     * Determines whether the XML files from which the image was compiled have
+     * changed since.
+     *
+     * @return true if the checksum of the sources no longer matches the image
+     * @throws IOException if one of the sources cannot be read
+     */
+    public boolean isStale() throws IOException {
+        return !Arrays.equals(checksum, checksum(sources));
+    }
+
+    /**
+     * Computes the checksum of a list of XML RegXML Metadictionary files, as
+     * recorded in an image. The checksum covers the name and contents of each
+     * file, in the order listed.
+     *
+     * @param sources XML files
+     * @return SHA-256 checksum
+     * @throws IOException
+     */
+    public static byte[] checksum(List<File> sources) throws IOException {
+
+        MessageDigest md;
+
+        try {
+
+            md = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+
+        } catch (NoSuchAlgorithmException e) {
+
+            throw new RuntimeException(e);
+
+        }
+
+        for (File source : sources) {
+
+            md.update(source.getName().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(Files.readAllBytes(source.toPath()));
+
+        }
+
+        return md.digest();
+    }
+
+    /**
+     * Compiles XML RegXML Metadictionary files into an image.
+     *
+     * @param sources XML files, each containing a single MetaDictionary
+     * @param os Stream to which the image is written
+     * @throws IOException
+     * @throws IllegalDictionaryException
+     * @throws IllegalDefinitionException
+     */
+    public static void compile(List<File> sources, OutputStream os) throws IOException, IllegalDictionaryException, IllegalDefinitionException {
+
+        byte[] checksum = checksum(sources);
+
+        ArrayList<Path> paths = new ArrayList<>(sources.size());
+
+        for (File source : sources) {
+            paths.add(source.toPath());
+        }
+
+        MetaDictionaryCollection mds = MetaDictionaryCollection.loadStAX(paths, ForkJoinPool.commonPool());
+
+        write(mds, sources, checksum, os);
+    }
+
+    /**
+     * Writes an image of a collection of MetaDictionaries.
+     *
+     * @param mds MetaDictionaries to be written
+     * @param sources XML files from which the MetaDictionaries were read.
+     * Their absolute paths are recorded.
+     * @param checksum Checksum of the sources, as computed by
+     * {@link #checksum(java.util.List)}
+     * @param os Stream to which the image is written. The stream is not closed.
+     * @throws IOException
+     */
+    public static void write(MetaDictionaryCollection mds, List<File> sources, byte[] checksum, OutputStream os) throws IOException {
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os));
+
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+
+        dos.writeInt(checksum.length);
+        dos.write(checksum);
+
+        dos.writeInt(sources.size());
+
+        /* absolute paths, so that staleness does not depend on the working directory */
+        for (File source : sources) {
+            writeString(dos, source.toPath().toAbsolutePath().normalize().toString());
+        }
+
+        dos.writeInt(mds.getDictionaries().size());
+
+        DefinitionWriter writer = new DefinitionWriter(dos);
+
+        for (MetaDictionary md : mds.getDictionaries()) {
+
+            dos.write(md.getSchemeID().getValue());
+            writeString(dos, md.getSchemeURI().toString());
+            writeString(dos, md.getDescription());
+
+            dos.writeInt(md.getDefinitions().size());
+
+            for (Definition def : md.getDefinitions()) {
+
+                try {
+
+                    def.accept(writer);
+
+                } catch (DefinitionVisitor.VisitorException e) {
+
+                    throw new IOException(e.getCause() == null ? e : e.getCause());
+
+                }
+            }
+        }
+
+        dos.flush();
+    }
+
+    /**
+     * Reads an image.
+     *
+     * @param is Stream from which the image is read. The stream is not closed,
+     * but is read through a buffer, so bytes that follow the image may also be
+     * consumed.
+     * @return MetaDictionary image
+     * @throws IOException if the stream does not contain an image of the
+     * current version
+     * @throws IllegalDictionaryException
+     * @throws IllegalDefinitionException
+     */
+    public static MetaDictionaryImage read(InputStream is) throws IOException, IllegalDictionaryException, IllegalDefinitionException {
+
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(is));
+
+        if (dis.readInt() != MAGIC) {
+            throw new IOException("Not a MetaDictionary image");
+        }
+
+        int version = dis.readInt();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported MetaDictionary image version: " + version);
+        }
+
+        byte[] checksum = new byte[dis.readInt()];
+        dis.readFully(checksum);
+
+        int sourcecount = dis.readInt();
+
+        ArrayList<File> sources = new ArrayList<>(sourcecount);
+
+        for (int i = 0; i < sourcecount; i++) {
+            sources.add(new File(readString(dis)));
+        }
+
+        MetaDictionaryCollection mds = new MetaDictionaryCollection();
+
+        int dictcount = dis.readInt();
+
+        for (int i = 0; i < dictcount; i++) {
+
+            UUID schemeID = new UUID(readBytes(dis, 16));
+            URI schemeURI = URI.create(readString(dis));
+
+            MetaDictionary md = new MetaDictionary(schemeID, schemeURI, readString(dis));
+
+            int defcount = dis.readInt();
+
+            for (int j = 0; j < defcount; j++) {
+
+                Definition def = readDefinition(dis);
+
+                def.setNamespace(schemeURI);
+
+                md.add(def);
+            }
+
+            mds.addDictionary(md);
+        }
+
+        return new MetaDictionaryImage(mds, Collections.unmodifiableList(sources), checksum);
+    }
+
+    private static Definition readDefinition(DataInputStream dis) throws IOException {
+
+        byte kind = dis.readByte();
+
+        AUID identification = readAUID(dis);
+        String symbol = readString(dis);
+        String name = readString(dis);
+        String description = readString(dis);
+
+        Definition def;
+
+        switch (kind) {
+
+            case CLASS: {
+                ClassDefinition cdef = new ClassDefinition();
+                cdef.setParentClass(readAUID(dis));
+                cdef.setConcrete(dis.readBoolean());
+                def = cdef;
+                break;
+            }
+
+            case PROPERTY:
+            case PROPERTY_ALIAS: {
+                PropertyDefinition pdef = kind == PROPERTY ? new PropertyDefinition() : new PropertyAliasDefinition();
+                pdef.setType(readAUID(dis));
+                pdef.setOptional(dis.readBoolean());
+                pdef.setUniqueIdentifier(dis.readBoolean());
+                pdef.setLocalIdentification(dis.readInt());
+                pdef.setMemberOf(readAUID(dis));
+                if (kind == PROPERTY_ALIAS) {
+                    ((PropertyAliasDefinition) pdef).setOriginalProperty(readAUID(dis));
+                }
+                def = pdef;
+                break;
+            }
+
+            case CHARACTER:
+                def = new CharacterTypeDefinition();
+                break;
+
+            case ENUMERATION: {
+                AUID elementType = readAUID(dis);
+                int count = dis.readInt();
+                EnumerationTypeDefinition edef;
+                if (count < 0) {
+                    edef = new EnumerationTypeDefinition();
+                } else {
+                    ArrayList<EnumerationTypeDefinition.Element> elements = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        EnumerationTypeDefinition.Element e = new EnumerationTypeDefinition.Element();
+                        e.setName(readString(dis));
+                        e.setValue(dis.readInt());
+                        e.setDescription(readString(dis));
+                        elements.add(e);
+                    }
+                    edef = new EnumerationTypeDefinition(elements);
+                }
+                edef.setElementType(elementType);
+                def = edef;
+                break;
+            }
+
+            case EXTENDIBLE_ENUMERATION: {
+                int count = dis.readInt();
+                if (count < 0) {
+                    def = new ExtendibleEnumerationTypeDefinition();
+                } else {
+                    ArrayList<ExtendibleEnumerationTypeDefinition.Element> elements = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        ExtendibleEnumerationTypeDefinition.Element e = new ExtendibleEnumerationTypeDefinition.Element();
+                        e.setName(readString(dis));
+                        e.setValue(readAUID(dis));
+                        e.setDescription(readString(dis));
+                        elements.add(e);
+                    }
+                    def = new ExtendibleEnumerationTypeDefinition(elements);
+                }
+                break;
+            }
+
+            case FIXED_ARRAY: {
+                FixedArrayTypeDefinition fdef = new FixedArrayTypeDefinition();
+                fdef.setElementCount(dis.readInt());
+                fdef.setElementType(readAUID(dis));
+                def = fdef;
+                break;
+            }
+
+            case INDIRECT:
+                def = new IndirectTypeDefinition();
+                break;
+
+            case INTEGER: {
+                IntegerTypeDefinition idef = new IntegerTypeDefinition();
+                int size = dis.readByte();
+                idef.setSize(size < 0 ? null : IntegerTypeDefinition.Size.values()[size]);
+                idef.setSigned(dis.readBoolean());
+                def = idef;
+                break;
+            }
+
+            case OPAQUE:
+                def = new OpaqueTypeDefinition();
+                break;
+
+            case RECORD: {
+                RecordTypeDefinition rdef = new RecordTypeDefinition();
+                int count = dis.readInt();
+                for (int i = 0; i < count; i++) {
+                    RecordTypeDefinition.Member m = new RecordTypeDefinition.Member();
+                    m.setName(readString(dis));
+                    m.setType(readAUID(dis));
+                    m.setDescription(readString(dis));
+                    rdef.addMember(m);
+                }
+                def = rdef;
+                break;
+            }
+
+            case RENAME: {
+                RenameTypeDefinition rdef = new RenameTypeDefinition();
+                rdef.setRenamedType(readAUID(dis));
+                def = rdef;
+                break;
+            }
+
+            case SET: {
+                SetTypeDefinition sdef = new SetTypeDefinition();
+                sdef.setElementType(readAUID(dis));
+                def = sdef;
+                break;
+            }
+
+            case STREAM:
+                def = new StreamTypeDefinition();
+                break;
+
+            case STRING: {
+                StringTypeDefinition sdef = new StringTypeDefinition();
+                sdef.setElementType(readAUID(dis));
+                def = sdef;
+                break;
+            }
+
+            case STRONG_REFERENCE: {
+                StrongReferenceTypeDefinition sdef = new StrongReferenceTypeDefinition();
+                sdef.setReferenceType(readAUID(dis));
+                def = sdef;
+                break;
+            }
+
+            case VARIABLE_ARRAY: {
+                VariableArrayTypeDefinition vdef = new VariableArrayTypeDefinition();
+                vdef.setElementType(readAUID(dis));
+                def = vdef;
+                break;
+            }
+
+            case WEAK_REFERENCE: {
+                WeakReferenceTypeDefinition wdef = new WeakReferenceTypeDefinition();
+                wdef.setReferencedType(readAUID(dis));
+                int count = dis.readInt();
+                if (count < 0) {
+                    wdef.setTargetSet(null);
+                } else {
+                    ArrayList<AUID> targets = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        targets.add(readAUID(dis));
+                    }
+                    wdef.setTargetSet(targets);
+                }
+                def = wdef;
+                break;
+            }
+
+            case FLOAT: {
+                FloatTypeDefinition fdef = new FloatTypeDefinition();
+                int size = dis.readByte();
+                fdef.setSize(size < 0 ? null : FloatTypeDefinition.Size.values()[size]);
+                def = fdef;
+                break;
+            }
+
+            case LENS_SERIAL_FLOAT:
+                def = new LensSerialFloatTypeDefinition();
+                break;
+
+            default:
+                throw new IOException("Unknown definition kind in MetaDictionary image: " + kind);
+        }
+
+        def.setIdentification(identification);
+        def.setSymbol(symbol);
+        def.setName(name);
+        def.setDescription(description);
+
+        return def;
+    }
+
+    private static byte[] readBytes(DataInputStream dis, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        dis.readFully(bytes);
+        return bytes;
+    }
+
+    private static AUID readAUID(DataInputStream dis) throws IOException {
+        return dis.readBoolean() ? new AUID(readBytes(dis, 16)) : null;
+    }
+
+    private static String readString(DataInputStream dis) throws IOException {
+        int length = dis.readInt();
+        return length < 0 ? null : new String(readBytes(dis, length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeAUID(DataOutputStream dos, AUID auid) throws IOException {
+        dos.writeBoolean(auid != null);
+
+        if (auid != null) {
+            dos.write(auid.getValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream dos, String str) throws IOException {
+        if (str == null) {
+            dos.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            dos.writeInt(bytes.length);
+            dos.write(bytes);
+        }
+    }
+
+    private static class DefinitionWriter implements DefinitionVisitor {
+
+        private final DataOutputStream dos;
+
+        DefinitionWriter(DataOutputStream dos) {
+            this.dos = dos;
+        }
+
+        private void writeHeader(byte kind, Definition def) throws VisitorException {
+            try {
+                dos.writeByte(kind);
+                writeAUID(dos, def.getIdentification());
+                writeString(dos, def.getSymbol());
+                writeString(dos, def.getName());
+                writeString(dos, def.getDescription());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        private void writeProperty(PropertyDefinition def) throws IOException {
+            writeAUID(dos, def.getType());
+            dos.writeBoolean(def.isOptional());
+            dos.writeBoolean(def.isUniqueIdentifier());
+            dos.writeInt(def.getLocalIdentification());
+            writeAUID(dos, def.getMemberOf());
+        }
+
+        @Override
+        public void visit(ClassDefinition def) throws VisitorException {
+            writeHeader(CLASS, def);
+            try {
+                writeAUID(dos, def.getParentClass());
+                dos.writeBoolean(def.isConcrete());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(PropertyDefinition def) throws VisitorException {
+            writeHeader(PROPERTY, def);
+            try {
+                writeProperty(def);
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(PropertyAliasDefinition def) throws VisitorException {
+            writeHeader(PROPERTY_ALIAS, def);
+            try {
+                writeProperty(def);
+                writeAUID(dos, def.getOriginalProperty());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(CharacterTypeDefinition def) throws VisitorException {
+            writeHeader(CHARACTER, def);
+        }
+
+        @Override
+        public void visit(EnumerationTypeDefinition def) throws VisitorException {
+            writeHeader(ENUMERATION, def);
+            try {
+                writeAUID(dos, def.getElementType());
+                Collection<EnumerationTypeDefinition.Element> elements = def.getElements();
+                dos.writeInt(elements == null ? -1 : elements.size());
+                if (elements != null) {
+                    for (EnumerationTypeDefinition.Element e : elements) {
+                        writeString(dos, e.getName());
+                        dos.writeInt(e.getValue());
+                        writeString(dos, e.getDescription());
+                    }
+                }
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(ExtendibleEnumerationTypeDefinition def) throws VisitorException {
+            writeHeader(EXTENDIBLE_ENUMERATION, def);
+            try {
+                Collection<ExtendibleEnumerationTypeDefinition.Element> elements = def.getElements();
+                dos.writeInt(elements == null ? -1 : elements.size());
+                if (elements != null) {
+                    for (ExtendibleEnumerationTypeDefinition.Element e : elements) {
+                        writeString(dos, e.getName());
+                        writeAUID(dos, e.getValue());
+                        writeString(dos, e.getDescription());
+                    }
+                }
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(FixedArrayTypeDefinition def) throws VisitorException {
+            writeHeader(FIXED_ARRAY, def);
+            try {
+                dos.writeInt(def.getElementCount());
+                writeAUID(dos, def.getElementType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(IndirectTypeDefinition def) throws VisitorException {
+            writeHeader(INDIRECT, def);
+        }
+
+        @Override
+        public void visit(IntegerTypeDefinition def) throws VisitorException {
+            writeHeader(INTEGER, def);
+            try {
+                dos.writeByte(def.getSize() == null ? -1 : def.getSize().ordinal());
+                dos.writeBoolean(def.isSigned());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(OpaqueTypeDefinition def) throws VisitorException {
+            writeHeader(OPAQUE, def);
+        }
+
+        @Override
+        public void visit(RecordTypeDefinition def) throws VisitorException {
+            writeHeader(RECORD, def);
+            try {
+                dos.writeInt(def.getMembers().size());
+                for (RecordTypeDefinition.Member m : def.getMembers()) {
+                    writeString(dos, m.getName());
+                    writeAUID(dos, m.getType());
+                    writeString(dos, m.getDescription());
+                }
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(RenameTypeDefinition def) throws VisitorException {
+            writeHeader(RENAME, def);
+            try {
+                writeAUID(dos, def.getRenamedType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(SetTypeDefinition def) throws VisitorException {
+            writeHeader(SET, def);
+            try {
+                writeAUID(dos, def.getElementType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(StreamTypeDefinition def) throws VisitorException {
+            writeHeader(STREAM, def);
+        }
+
+        @Override
+        public void visit(StringTypeDefinition def) throws VisitorException {
+            writeHeader(STRING, def);
+            try {
+                writeAUID(dos, def.getElementType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(StrongReferenceTypeDefinition def) throws VisitorException {
+            writeHeader(STRONG_REFERENCE, def);
+            try {
+                writeAUID(dos, def.getReferencedType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(VariableArrayTypeDefinition def) throws VisitorException {
+            writeHeader(VARIABLE_ARRAY, def);
+            try {
+                writeAUID(dos, def.getElementType());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(WeakReferenceTypeDefinition def) throws VisitorException {
+            writeHeader(WEAK_REFERENCE, def);
+            try {
+                writeAUID(dos, def.getReferencedType());
+                List<AUID> targets = def.getTargetSet();
+                dos.writeInt(targets == null ? -1 : targets.size());
+                if (targets != null) {
+                    for (AUID target : targets) {
+                        writeAUID(dos, target);
+                    }
+                }
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(FloatTypeDefinition def) throws VisitorException {
+            writeHeader(FLOAT, def);
+            try {
+                dos.writeByte(def.getSize() == null ? -1 : def.getSize().ordinal());
+            } catch (IOException e) {
+                throw new VisitorException(e);
+            }
+        }
+
+        @Override
+        public void visit(LensSerialFloatTypeDefinition def) throws VisitorException {
+            writeHeader(LENS_SERIAL_FLOAT, def);
+        }
+    }
+}
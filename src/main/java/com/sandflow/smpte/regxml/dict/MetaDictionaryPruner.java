@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.DefinitionVisitor;
+import com.sandflow.smpte.regxml.dict.definitions.EnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ExtendibleEnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.FixedArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.FloatTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IndirectTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IntegerTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.LensSerialFloatTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.OpaqueTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyAliasDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RecordTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RenameTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.SetTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StreamTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StringTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StrongReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.VariableArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.WeakReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
+import com.sandflow.smpte.util.AUID;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Prunes a collection of MetaDictionaries down to the definitions that are
+ * reachable from a set of roots, e.g. the classes and properties used by a
+ * corpus of MXF files.
+ *
+ * A retained definition causes the following definitions to be retained:
+ * <ul>
+ * <li>the parent class and the members of a class</li>
+ * <li>the type and the class of a property, and the original property of a
+ * property alias</li>
+ * <li>the element, member, renamed and referenced types of a type</li>
+ * <li>the properties listed in the target set of a weak reference type</li>
+ * </ul>
+ *
+ * In addition, the subclasses of a root class can be retained, in which case
+ * the subclasses of the classes referenced, directly or not, by the root
+ * class are also retained. Parent classes never cause their subclasses to be
+ * retained.
+ *
+ * Types that are referenced only by the values of Indirect properties are
+ * not reachable and must be listed as roots if needed.
+ */
+public class MetaDictionaryPruner {
+
+    private final MetaDictionaryCollection mds;
+
+    /* property aliases, indexed by the normalized identification of their class */
+    private final HashMap<AUID, List<PropertyAliasDefinition>> aliasesByClass = new HashMap<>();
+
+    /* normalized identification of the retained definitions */
+    private final HashSet<AUID> retained = new HashSet<>();
+
+    /* normalized identification of the definitions whose subclasses are retained */
+    private final HashSet<AUID> expanded = new HashSet<>();
+
+    private final Set<PropertyAliasDefinition> retainedAliases = Collections.newSetFromMap(new IdentityHashMap<PropertyAliasDefinition, Boolean>());
+
+    private final LinkedHashSet<AUID> unresolved = new LinkedHashSet<>();
+
+    /**
+     * Instantiates a pruner
+     *
+     * @param mds Collection of MetaDictionaries to be pruned. Must not be
+     * modified while the pruner is in use.
+     */
+    public MetaDictionaryPruner(MetaDictionaryCollection mds) {
+
+        if (mds == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.mds = mds;
+
+        for (MetaDictionary md : mds.getDictionaries()) {
+
+            for (Definition def : md.getDefinitions()) {
+
+                if (def instanceof PropertyAliasDefinition) {
+
+                    AUID classid = MetaDictionary.createNormalizedAUID(((PropertyAliasDefinition) def).getMemberOf());
+
+                    List<PropertyAliasDefinition> aliases = aliasesByClass.get(classid);
+
+                    if (aliases == null) {
+                        aliases = new ArrayList<>();
+                        aliasesByClass.put(classid, aliases);
+                    }
+
+                    aliases.add((PropertyAliasDefinition) def);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retains a definition and all the definitions reachable from it
+     *
+     * @param identification Identification of the definition, e.g. the key of
+     * a group or of an item of an MXF file
+     * @param withSubclasses true if the subclasses of the definition, if it is
+     * a class, and of the classes it references, are to be retained
+     * @return false if no definition matches the identification
+     */
+    public boolean retain(AUID identification, boolean withSubclasses) {
+
+        if (mds.getDefinition(identification) == null) {
+            unresolved.add(identification);
+
+            return false;
+        }
+
+        ArrayDeque<Reach> pending = new ArrayDeque<>();
+
+        pending.add(new Reach(identification, withSubclasses));
+
+        ReferenceCollector collector = new ReferenceCollector(pending);
+
+        for (Reach r; (r = pending.poll()) != null;) {
+
+            Definition def = r.alias != null ? r.alias : mds.getDefinition(r.identification);
+
+            if (def == null) {
+                unresolved.add(r.identification);
+                continue;
+            }
+
+            if (r.alias != null) {
+
+                if (!retainedAliases.add(r.alias)) {
+                    continue;
+                }
+
+            } else {
+
+                AUID key = MetaDictionary.createNormalizedAUID(def.getIdentification());
+
+                boolean added = retained.add(key);
+
+                if (r.withSubclasses) {
+                    added |= expanded.add(key);
+                }
+
+                if (!added) {
+                    continue;
+                }
+            }
+
+            collector.withSubclasses = r.withSubclasses;
+
+            try {
+                def.accept(collector);
+            } catch (DefinitionVisitor.VisitorException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Identifications that were reached but matched no definition, in
+     * the order in which they were first reached
+     */
+    public Collection<AUID> getUnresolved() {
+        return Collections.unmodifiableSet(unresolved);
+    }
+
+    /**
+     * Creates a collection containing the retained definitions. Each
+     * MetaDictionary that contains at least one retained definition is
+     * copied, with its definitions listed in their original order.
+     *
+     * @return Pruned collection of MetaDictionaries
+     * @throws IllegalDefinitionException
+     * @throws IllegalDictionaryException
+     */
+    public MetaDictionaryCollection prune() throws IllegalDefinitionException, IllegalDictionaryException {
+
+        MetaDictionaryCollection pruned = new MetaDictionaryCollection();
+
+        for (MetaDictionary md : mds.getDictionaries()) {
+
+            MetaDictionary prunedmd = new MetaDictionary(md.getSchemeID(), md.getSchemeURI(), md.getDescription());
+
+            for (Definition def : md.getDefinitions()) {
+
+                boolean isRetained = def instanceof PropertyAliasDefinition
+                    ? retainedAliases.contains((PropertyAliasDefinition) def)
+                    : retained.contains(MetaDictionary.createNormalizedAUID(def.getIdentification()));
+
+                if (isRetained) {
+                    prunedmd.add(def);
+                }
+            }
+
+            if (!prunedmd.getDefinitions().isEmpty()) {
+                pruned.addDictionary(prunedmd);
+            }
+        }
+
+        return pruned;
+    }
+
+    /**
+     * Definition to be reached, either by identification or, for property
+     * aliases, which share the identification of their original property,
+     * directly
+     */
+    private static class Reach {
+
+        final AUID identification;
+        final PropertyAliasDefinition alias;
+        final boolean withSubclasses;
+
+        Reach(AUID identification, boolean withSubclasses) {
+            this.identification = identification;
+            this.alias = null;
+            this.withSubclasses = withSubclasses;
+        }
+
+        Reach(PropertyAliasDefinition alias, boolean withSubclasses) {
+            this.identification = alias.getIdentification();
+            this.alias = alias;
+            this.withSubclasses = withSubclasses;
+        }
+    }
+
+    /**
+     * Queues the definitions referenced by a definition
+     */
+    private class ReferenceCollector implements DefinitionVisitor {
+
+        private final ArrayDeque<Reach> pending;
+
+        boolean withSubclasses;
+
+        ReferenceCollector(ArrayDeque<Reach> pending) {
+            this.pending = pending;
+        }
+
+        private void reach(AUID identification) {
+            if (identification != null) {
+                pending.add(new Reach(identification, withSubclasses));
+            }
+        }
+
+        @Override
+        public void visit(ClassDefinition def) throws VisitorException {
+
+            if (def.getParentClass() != null) {
+                pending.add(new Reach(def.getParentClass(), false));
+            }
+
+            for (AUID member : mds.getMembersOf(def)) {
+                reach(member);
+            }
+
+            List<PropertyAliasDefinition> aliases = aliasesByClass.get(MetaDictionary.createNormalizedAUID(def.getIdentification()));
+
+            if (aliases != null) {
+                for (PropertyAliasDefinition alias : aliases) {
+                    pending.add(new Reach(alias, withSubclasses));
+                }
+            }
+
+            if (withSubclasses) {
+                for (AUID subclass : mds.getSubclassesOf(def)) {
+                    reach(subclass);
+                }
+            }
+        }
+
+        @Override
+        public void visit(PropertyDefinition def) throws VisitorException {
+            reach(def.getType());
+
+            /* the class of a property does not bring in its subclasses */
+            pending.add(new Reach(def.getMemberOf(), false));
+        }
+
+        @Override
+        public void visit(PropertyAliasDefinition def) throws VisitorException {
+            visit((PropertyDefinition) def);
+
+            reach(def.getOriginalProperty());
+        }
+
+        @Override
+        public void visit(EnumerationTypeDefinition def) throws VisitorException {
+            reach(def.getElementType());
+        }
+
+        @Override
+        public void visit(FixedArrayTypeDefinition def) throws VisitorException {
+            reach(def.getElementType());
+        }
+
+        @Override
+        public void visit(RecordTypeDefinition def) throws VisitorException {
+            for (RecordTypeDefinition.Member member : def.getMembers()) {
+                reach(member.getType());
+            }
+        }
+
+        @Override
+        public void visit(RenameTypeDefinition def) throws VisitorException {
+            reach(def.getRenamedType());
+        }
+
+        @Override
+        public void visit(SetTypeDefinition def) throws VisitorException {
+            reach(def.getElementType());
+        }
+
+        @Override
+        public void visit(StrongReferenceTypeDefinition def) throws VisitorException {
+            reach(def.getReferencedType());
+        }
+
+        @Override
+        public void visit(StringTypeDefinition def) throws VisitorException {
+            reach(def.getElementType());
+        }
+
+        @Override
+        public void visit(VariableArrayTypeDefinition def) throws VisitorException {
+            reach(def.getElementType());
+        }
+
+        @Override
+        public void visit(WeakReferenceTypeDefinition def) throws VisitorException {
+            reach(def.getReferencedType());
+
+            if (def.getTargetSet() != null) {
+                for (AUID target : def.getTargetSet()) {
+                    reach(target);
+                }
+            }
+        }
+
+        /* the following definitions do not reference other definitions */
+
+        @Override
+        public void visit(CharacterTypeDefinition def) throws VisitorException {
+        }
+
+        @Override
+        public void visit(IntegerTypeDefinition def) throws VisitorException {
+        }
+
+        @Override
+        public void visit(ExtendibleEnumerationTypeDefinition def) throws VisitorException {
+        }
+
+        @Override
+        public void visit(IndirectTypeDefinition def) throws VisitorException {
+        }
+
+        @Override
+        public void visit(OpaqueTypeDefinition def) throws VisitorException {
+        }
+
+        @Override
+        public void visit(StreamTypeDefinition def) throws VisitorException {
+        }
+
+        @Override
+        public void visit(FloatTypeDefinition def) throws VisitorException {
+        }
+
+        @Override
+        public void visit(LensSerialFloatTypeDefinition def) throws VisitorException {
+        }
+    }
+
+}
@@ -0,0 +1,684 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.EnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ExtendibleEnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.FixedArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.FloatTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IndirectTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IntegerTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.LensSerialFloatTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.OpaqueTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyAliasDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RecordTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.RenameTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.SetTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StreamTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StringTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StrongReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.VariableArrayTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.WeakReferenceTypeDefinition;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.smpte.util.UUID;
+import com.sandflow.util.xml.XMLStreamPool;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the XML representation of a RegXML Metadictionary specified in SMPTE
+ * ST 2001-1 using StAX, without the reflection and context initialization
+ * costs of JAXB. Definitions are created and indexed as they are read, and
+ * are identical to those created by the JAXB bindings of {@link MetaDictionary}.
+ * Unknown elements are ignored.
+ */
+final class MetaDictionaryStreamParser {
+
+    private MetaDictionaryStreamParser() {
+    }
+
+    /**
+     * Reads a single MetaDictionary.
+     *
+     * @param reader Reader from which the MetaDictionary is read
+     * @return MetaDictionary
+     * @throws IOException if the document is not well-formed or does not
+     * contain a MetaDictionary
+     * @throws IllegalDefinitionException
+     */
+    static MetaDictionary parse(Reader reader) throws IOException, IllegalDefinitionException {
+
+        try {
+
+            XMLStreamReader r = XMLStreamPool.createXMLStreamReader(reader);
+
+            try {
+
+                r.nextTag();
+
+                if (!isElement(r, "Extension")) {
+                    throw new IOException("Not a RegXML Metadictionary: " + r.getName());
+                }
+
+                return readExtension(r);
+
+            } finally {
+
+                r.close();
+
+            }
+
+        } catch (XMLStreamException e) {
+
+            throw new IOException(e);
+
+        }
+    }
+
+    private static boolean isElement(XMLStreamReader r, String localname) {
+        return MetaDictionary.XML_NS.equals(r.getNamespaceURI()) && localname.equals(r.getLocalName());
+    }
+
+    /**
+     * Advances to the next child element of the current element
+     *
+     * @return true if positioned on a child element, or false if positioned on
+     * the end of the current element
+     */
+    private static boolean nextChild(XMLStreamReader r) throws XMLStreamException {
+
+        while (r.hasNext()) {
+
+            switch (r.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    return true;
+                case XMLStreamConstants.END_ELEMENT:
+                    return false;
+            }
+        }
+
+        throw new XMLStreamException("Unexpected end of document");
+    }
+
+    /**
+     * Skips the current element, including its descendants
+     */
+    private static void skipElement(XMLStreamReader r) throws XMLStreamException {
+
+        int depth = 1;
+
+        while (depth > 0) {
+
+            switch (r.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+            }
+        }
+    }
+
+    private static AUID readAUID(XMLStreamReader r) throws XMLStreamException, IOException {
+
+        String val = r.getElementText().trim();
+
+        try {
+
+            /* same parsing as AUIDAdapter */
+            if (val.length() > 15 && val.charAt(15) == '.') {
+                byte[] ul = new byte[16];
+
+                for (int i = 0; i < 16; i++) {
+                    ul[i] = (byte) Integer.parseInt(val.substring(13 + i * 3, 13 + i * 3 + 2), 16);
+                }
+
+                return new AUID(new UL(ul));
+            }
+
+            AUID auid = AUID.fromURN(val);
+
+            if (auid == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return auid;
+
+        } catch (RuntimeException e) {
+
+            throw new IOException("Invalid AUID at line " + r.getLocation().getLineNumber() + ": " + val);
+
+        }
+    }
+
+    private static boolean readBoolean(XMLStreamReader r) throws XMLStreamException {
+        String val = r.getElementText().trim();
+
+        return "true".equals(val) || "1".equals(val);
+    }
+
+    private static int readInt(XMLStreamReader r) throws XMLStreamException, IOException {
+        String val = r.getElementText().trim();
+
+        try {
+
+            return Integer.parseInt(val.startsWith("+") ? val.substring(1) : val);
+
+        } catch (NumberFormatException e) {
+
+            throw new IOException("Invalid integer at line " + r.getLocation().getLineNumber() + ": " + val);
+
+        }
+    }
+
+    private static MetaDictionary readExtension(XMLStreamReader r) throws XMLStreamException, IOException, IllegalDefinitionException {
+
+        UUID schemeID = null;
+        URI schemeURI = null;
+        String description = null;
+        MetaDictionary md = null;
+
+        while (nextChild(r)) {
+
+            if (isElement(r, "SchemeID")) {
+
+                schemeID = UUID.fromURN(r.getElementText().trim());
+
+            } else if (isElement(r, "SchemeURI")) {
+
+                try {
+                    schemeURI = new URI(r.getElementText().trim());
+                } catch (URISyntaxException e) {
+                    throw new IOException(e);
+                }
+
+            } else if (isElement(r, "Description")) {
+
+                description = r.getElementText();
+
+            } else if (isElement(r, "MetaDefinitions")) {
+
+                if (schemeURI == null) {
+                    throw new IOException("MetaDefinitions found before SchemeURI");
+                }
+
+                md = new MetaDictionary(schemeID, schemeURI, description);
+
+                while (nextChild(r)) {
+
+                    Definition def = readDefinition(r);
+
+                    if (def != null) {
+
+                        def.setNamespace(schemeURI);
+
+                        md.add(def);
+
+                    }
+                }
+
+            } else {
+
+                skipElement(r);
+
+            }
+        }
+
+        if (md == null) {
+
+            if (schemeURI == null) {
+                throw new IOException("SchemeURI missing");
+            }
+
+            md = new MetaDictionary(schemeID, schemeURI, description);
+        }
+
+        return md;
+    }
+
+    /**
+     * Reads the definition at the current element
+     *
+     * @return Definition, or null if the element is not a definition
+     */
+    private static Definition readDefinition(XMLStreamReader r) throws XMLStreamException, IOException {
+
+        if (!MetaDictionary.XML_NS.equals(r.getNamespaceURI())) {
+            skipElement(r);
+            return null;
+        }
+
+        Definition def;
+
+        switch (r.getLocalName()) {
+            case "ClassDefinition":
+                def = new ClassDefinition();
+                break;
+            case "PropertyDefinition":
+                def = new PropertyDefinition();
+                break;
+            case "PropertyAliasDefinition":
+                def = new PropertyAliasDefinition();
+                break;
+            case "TypeDefinitionCharacter":
+                def = new CharacterTypeDefinition();
+                break;
+            case "TypeDefinitionEnumeration":
+                return readEnumeration(r);
+            case "TypeDefinitionExtendibleEnumeration":
+                def = new ExtendibleEnumerationTypeDefinition();
+                break;
+            case "TypeDefinitionFixedArray":
+                def = new FixedArrayTypeDefinition();
+                break;
+            case "TypeDefinitionIndirect":
+                def = new IndirectTypeDefinition();
+                break;
+            case "TypeDefinitionInteger":
+                def = new IntegerTypeDefinition();
+                break;
+            case "TypeDefinitionOpaque":
+                def = new OpaqueTypeDefinition();
+                break;
+            case "TypeDefinitionRecord":
+                def = new RecordTypeDefinition();
+                break;
+            case "TypeDefinitionRename":
+                def = new RenameTypeDefinition();
+                break;
+            case "TypeDefinitionSet":
+                def = new SetTypeDefinition();
+                break;
+            case "TypeDefinitionStream":
+                def = new StreamTypeDefinition();
+                break;
+            case "TypeDefinitionString":
+                def = new StringTypeDefinition();
+                break;
+            case "TypeDefinitionStrongObjectReference":
+                def = new StrongReferenceTypeDefinition();
+                break;
+            case "TypeDefinitionVariableArray":
+                def = new VariableArrayTypeDefinition();
+                break;
+            case "TypeDefinitionWeakObjectReference":
+                def = new WeakReferenceTypeDefinition();
+                break;
+            case "TypeDefinitionFloat":
+                def = new FloatTypeDefinition();
+                break;
+            case "TypeDefinitionLenseSerialFloat":
+                def = new LensSerialFloatTypeDefinition();
+                break;
+            default:
+                skipElement(r);
+                return null;
+        }
+
+        while (nextChild(r)) {
+
+            if (!(readCommonField(r, def) || readField(r, def))) {
+                skipElement(r);
+            }
+
+        }
+
+        return def;
+    }
+
+    /**
+     * Reads a field common to all definitions
+     *
+     * @return true if the current element was consumed
+     */
+    private static boolean readCommonField(XMLStreamReader r, Definition def) throws XMLStreamException, IOException {
+
+        if (!MetaDictionary.XML_NS.equals(r.getNamespaceURI())) {
+            return false;
+        }
+
+        switch (r.getLocalName()) {
+            case "Identification":
+                def.setIdentification(readAUID(r));
+                return true;
+            case "Symbol":
+                def.setSymbol(r.getElementText());
+                return true;
+            case "Description":
+                def.setDescription(r.getElementText());
+                return true;
+            case "Name":
+                def.setName(r.getElementText());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reads a field specific to the kind of definition
+     *
+     * @return true if the current element was consumed
+     */
+    private static boolean readField(XMLStreamReader r, Definition def) throws XMLStreamException, IOException {
+
+        if (!MetaDictionary.XML_NS.equals(r.getNamespaceURI())) {
+            return false;
+        }
+
+        String name = r.getLocalName();
+
+        if (def instanceof ClassDefinition) {
+
+            ClassDefinition cdef = (ClassDefinition) def;
+
+            if ("ParentClass".equals(name)) {
+                cdef.setParentClass(readAUID(r));
+            } else if ("IsConcrete".equals(name)) {
+                cdef.setConcrete(readBoolean(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof PropertyDefinition) {
+
+            PropertyDefinition pdef = (PropertyDefinition) def;
+
+            if ("Type".equals(name)) {
+                pdef.setType(readAUID(r));
+            } else if ("IsOptional".equals(name)) {
+                pdef.setOptional(readBoolean(r));
+            } else if ("IsUniqueIdentifier".equals(name)) {
+                pdef.setUniqueIdentifier(readBoolean(r));
+            } else if ("LocalIdentification".equals(name)) {
+                pdef.setLocalIdentification(readInt(r));
+            } else if ("MemberOf".equals(name)) {
+                pdef.setMemberOf(readAUID(r));
+            } else if ("OriginalProperty".equals(name) && def instanceof PropertyAliasDefinition) {
+                ((PropertyAliasDefinition) def).setOriginalProperty(readAUID(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof FixedArrayTypeDefinition) {
+
+            FixedArrayTypeDefinition fdef = (FixedArrayTypeDefinition) def;
+
+            if ("ElementCount".equals(name)) {
+                fdef.setElementCount(readInt(r));
+            } else if ("ElementType".equals(name)) {
+                fdef.setElementType(readAUID(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof IntegerTypeDefinition) {
+
+            IntegerTypeDefinition idef = (IntegerTypeDefinition) def;
+
+            if ("Size".equals(name)) {
+
+                switch (readInt(r)) {
+                    case 1:
+                        idef.setSize(IntegerTypeDefinition.Size.ONE);
+                        break;
+                    case 2:
+                        idef.setSize(IntegerTypeDefinition.Size.TWO);
+                        break;
+                    case 4:
+                        idef.setSize(IntegerTypeDefinition.Size.FOUR);
+                        break;
+                    case 8:
+                        idef.setSize(IntegerTypeDefinition.Size.EIGHT);
+                        break;
+                    default:
+                        idef.setSize(null);
+                }
+
+            } else if ("IsSigned".equals(name)) {
+                idef.setSigned(readBoolean(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof FloatTypeDefinition) {
+
+            if ("Size".equals(name)) {
+
+                FloatTypeDefinition fdef = (FloatTypeDefinition) def;
+
+                switch (readInt(r)) {
+                    case 2:
+                        fdef.setSize(FloatTypeDefinition.Size.HALF);
+                        break;
+                    case 4:
+                        fdef.setSize(FloatTypeDefinition.Size.SINGLE);
+                        break;
+                    case 8:
+                        fdef.setSize(FloatTypeDefinition.Size.DOUBLE);
+                        break;
+                    default:
+                        fdef.setSize(null);
+                }
+
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof RecordTypeDefinition) {
+
+            if ("Members".equals(name)) {
+                readMembers(r, (RecordTypeDefinition) def);
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof RenameTypeDefinition) {
+
+            if ("RenamedType".equals(name)) {
+                ((RenameTypeDefinition) def).setRenamedType(readAUID(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof SetTypeDefinition) {
+
+            if ("ElementType".equals(name)) {
+                ((SetTypeDefinition) def).setElementType(readAUID(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof StringTypeDefinition) {
+
+            if ("ElementType".equals(name)) {
+                ((StringTypeDefinition) def).setElementType(readAUID(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof StrongReferenceTypeDefinition) {
+
+            if ("ReferencedType".equals(name)) {
+                ((StrongReferenceTypeDefinition) def).setReferenceType(readAUID(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof VariableArrayTypeDefinition) {
+
+            if ("ElementType".equals(name)) {
+                ((VariableArrayTypeDefinition) def).setElementType(readAUID(r));
+            } else {
+                return false;
+            }
+
+        } else if (def instanceof WeakReferenceTypeDefinition) {
+
+            WeakReferenceTypeDefinition wdef = (WeakReferenceTypeDefinition) def;
+
+            if ("ReferencedType".equals(name)) {
+
+                wdef.setReferencedType(readAUID(r));
+
+            } else if ("TargetSet".equals(name)) {
+
+                ArrayList<AUID> targets = new ArrayList<>();
+
+                while (nextChild(r)) {
+
+                    if (isElement(r, "MetaDefRef")) {
+                        targets.add(readAUID(r));
+                    } else {
+                        skipElement(r);
+                    }
+
+                }
+
+                wdef.setTargetSet(targets);
+
+            } else {
+                return false;
+            }
+
+        } else {
+
+            return false;
+
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads the Members of a record definition, which consist of a flat
+     * sequence of Name and Type elements
+     */
+    private static void readMembers(XMLStreamReader r, RecordTypeDefinition def) throws XMLStreamException, IOException {
+
+        RecordTypeDefinition.Member member = null;
+
+        while (nextChild(r)) {
+
+            if (isElement(r, "Name")) {
+
+                member = new RecordTypeDefinition.Member();
+                member.setName(r.getElementText());
+                def.addMember(member);
+
+            } else if (isElement(r, "Type") && member != null) {
+
+                member.setType(readAUID(r));
+
+            } else {
+
+                skipElement(r);
+
+            }
+        }
+    }
+
+    /**
+     * Reads an enumeration definition, whose Elements consist of a flat
+     * sequence of Name, Value and optional Description elements
+     */
+    private static EnumerationTypeDefinition readEnumeration(XMLStreamReader r) throws XMLStreamException, IOException {
+
+        /* holds the fields read until the elements are known */
+        EnumerationTypeDefinition fields = new EnumerationTypeDefinition();
+
+        ArrayList<EnumerationTypeDefinition.Element> elements = null;
+
+        while (nextChild(r)) {
+
+            if (readCommonField(r, fields)) {
+
+                continue;
+
+            } else if (isElement(r, "ElementType")) {
+
+                fields.setElementType(readAUID(r));
+
+            } else if (isElement(r, "Elements")) {
+
+                elements = new ArrayList<>();
+
+                EnumerationTypeDefinition.Element element = null;
+
+                while (nextChild(r)) {
+
+                    if (isElement(r, "Name")) {
+
+                        element = new EnumerationTypeDefinition.Element();
+                        element.setName(r.getElementText());
+                        elements.add(element);
+
+                    } else if (isElement(r, "Value") && element != null) {
+
+                        element.setValue(readInt(r));
+
+                    } else if (isElement(r, "Description") && element != null) {
+
+                        element.setDescription(r.getElementText());
+
+                    } else {
+
+                        skipElement(r);
+
+                    }
+                }
+
+            } else {
+
+                skipElement(r);
+
+            }
+        }
+
+        EnumerationTypeDefinition def = elements == null ? fields : new EnumerationTypeDefinition(elements);
+
+        def.setIdentification(fields.getIdentification());
+        def.setSymbol(fields.getSymbol());
+        def.setDescription(fields.getDescription());
+        def.setName(fields.getName());
+        def.setElementType(fields.getElementType());
+
+        return def;
+    }
+}
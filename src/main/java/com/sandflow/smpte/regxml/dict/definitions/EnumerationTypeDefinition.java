@@ -28,8 +28,13 @@ package com.sandflow.smpte.regxml.dict.definitions;
 import com.sandflow.smpte.regxml.dict.MetaDictionary;
 import com.sandflow.smpte.util.AUID;
 import com.sandflow.smpte.util.xml.AUIDAdapter;
+import com.sandflow.util.xml.XMLPool;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAnyElement;
@@ -37,8 +42,6 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlType;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import org.w3c.dom.Document;
 import static org.w3c.dom.Node.ELEMENT_NODE;
 
@@ -88,9 +91,7 @@ public class EnumerationTypeDefinition extends Definition {
         @Override
         public Object marshal(ArrayList<Element> v) throws Exception {
 
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document doc = db.newDocument();
+            Document doc = XMLPool.newDocument();
             org.w3c.dom.Element elem = doc.createElementNS(MetaDictionary.XML_NS, "Elements");
 
             for (Element e : v) {
@@ -125,15 +126,99 @@ public class EnumerationTypeDefinition extends Definition {
     @XmlElement(name = "ElementType")
     private AUID elementType;
 
+    /**
+     * Immutable map from the value of an enumeration element to its name
+     */
+    private static class ValueMap {
+
+        /* values are mapped to a dense array when their range is small enough */
+        private static final int MAX_DENSE_SPAN = 1024;
+
+        private final int min;
+        private final String[] dense;
+
+        /* otherwise values are sorted and searched, and names[i] is the name of keys[i] */
+        private final int[] keys;
+        private final String[] names;
+
+        ValueMap(Collection<Element> elements) {
+
+            long lo = Long.MAX_VALUE;
+            long hi = Long.MIN_VALUE;
+
+            for (Element e : elements) {
+                lo = Math.min(lo, e.getValue());
+                hi = Math.max(hi, e.getValue());
+            }
+
+            if (elements.isEmpty() || hi - lo >= MAX_DENSE_SPAN) {
+
+                TreeMap<Integer, String> sorted = new TreeMap<>();
+
+                /* the last element wins if values are duplicated */
+                for (Element e : elements) {
+                    sorted.put(e.getValue(), e.getName());
+                }
+
+                this.min = 0;
+                this.dense = null;
+                this.keys = new int[sorted.size()];
+                this.names = new String[sorted.size()];
+
+                int i = 0;
+
+                for (Map.Entry<Integer, String> entry : sorted.entrySet()) {
+                    keys[i] = entry.getKey();
+                    names[i] = entry.getValue();
+                    i++;
+                }
+
+            } else {
+
+                this.min = (int) lo;
+                this.dense = new String[(int) (hi - lo + 1)];
+                this.keys = null;
+                this.names = null;
+
+                for (Element e : elements) {
+                    dense[e.getValue() - min] = e.getName();
+                }
+
+            }
+        }
+
+        String get(int value) {
+
+            if (dense == null) {
+
+                int i = Arrays.binarySearch(keys, value);
+
+                return i >= 0 ? names[i] : null;
+            }
+
+            long i = (long) value - min;
+
+            return i >= 0 && i < dense.length ? dense[(int) i] : null;
+        }
+    }
+
     @XmlJavaTypeAdapter(value = EnumerationElementAdapter.class)
     @XmlAnyElement(lax = false)
     private ArrayList<Element> elements;
 
+    private volatile ValueMap valuemap;
+
     public EnumerationTypeDefinition() {
     }
 
     public EnumerationTypeDefinition(Collection<Element> elements) {
         this.elements = new ArrayList<>(elements);
+        this.valuemap = new ValueMap(this.elements);
+    }
+
+    /* called by JAXB once the definition is loaded from a dictionary */
+    private void afterUnmarshal(Unmarshaller u, Object parent) {
+        this.valuemap = elements == null ? null : new ValueMap(elements);
     }
 
     public AUID getElementType() {
@@ -153,6 +238,34 @@ public class EnumerationTypeDefinition extends Definition {
         return elements;
     }
 
+    /**
+     * Returns the name of the enumeration element with the specified value
+     * without allocating memory, in constant time unless the values of the
+     * elements span a large range. If multiple elements share the value, the
+     * name of the last one is returned.
+     *
+     * @param value Value of the enumeration element
+     * @return Name of the enumeration element, or null if no element has the
+     * value
+     */
+    public String getElementName(int value) {
+
+        ValueMap vm = this.valuemap;
+
+        if (vm == null) {
+
+            if (elements == null) {
+                return null;
+            }
+
+            vm = new ValueMap(elements);
+
+            this.valuemap = vm;
+        }
+
+        return vm.get(value);
+    }
+
     @XmlType(name = "")
     @XmlAccessorType(value = XmlAccessType.NONE)
     public static class Element {
@@ -28,6 +28,7 @@ package com.sandflow.smpte.regxml.dict.definitions;
 import com.sandflow.smpte.regxml.dict.MetaDictionary;
 import com.sandflow.smpte.util.AUID;
 import com.sandflow.smpte.util.xml.AUIDAdapter;
+import com.sandflow.util.xml.XMLPool;
 import java.util.ArrayList;
 import java.util.Collection;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -36,8 +37,6 @@ import javax.xml.bind.annotation.XmlAnyElement;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import org.w3c.dom.Document;
 import static org.w3c.dom.Node.ELEMENT_NODE;
 
@@ -135,9 +134,7 @@ public class RecordTypeDefinition extends Definition {
 
         public Object marshal(ArrayList<RecordTypeDefinition.Member> v) throws Exception {
 
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document doc = db.newDocument();
+            Document doc = XMLPool.newDocument();
             org.w3c.dom.Element elem = doc.createElementNS(MetaDictionary.XML_NS, "Members");
 
             for (RecordTypeDefinition.Member e : v) {
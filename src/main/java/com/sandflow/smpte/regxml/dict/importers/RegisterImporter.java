@@ -127,6 +127,23 @@ public class RegisterImporter {
 
     }
 
+    /**
+     * Indicates whether an event of a given kind would be handled, in which
+     * case it is constructed and passed to handleEvent().
+     */
+    static boolean isEventEnabled(EventHandler handler, EventKind kind) {
+
+        if (handler == null) {
+
+            /* if no event handler was provided, only FATAL and ERROR events matter */
+            return kind.severity == Event.Severity.ERROR
+                || kind.severity == Event.Severity.FATAL;
+
+        }
+
+        return kind.severity == Event.Severity.FATAL || handler.isEnabled(kind.severity);
+    }
+
     static void handleEvent(EventHandler handler, com.sandflow.util.events.Event evt) throws Exception {
 
         if (handler != null) {
@@ -290,16 +307,20 @@ public class RegisterImporter {
 
                 if (element == null) {
 
-                    RegisterEvent evt = new RegisterEvent(
-                        EventKind.UNKNOWN_ELEMENT,
-                        String.format(
-                            "Undefined Element %s for Group %s",
-                            child.getItem(),
-                            group.getUL()
-                        )
-                    );
+                    if (isEventEnabled(evthandler, EventKind.UNKNOWN_ELEMENT)) {
 
-                    handleEvent(evthandler, evt);
+                        RegisterEvent evt = new RegisterEvent(
+                            EventKind.UNKNOWN_ELEMENT,
+                            String.format(
+                                "Undefined Element %s for Group %s",
+                                child.getItem(),
+                                group.getUL()
+                            )
+                        );
+
+                        handleEvent(evthandler, evt);
+
+                    }
 
                     continue;
                 }
@@ -312,16 +333,20 @@ public class RegisterImporter {
 
                 if (element.getTypeUL() == null) {
 
-                    RegisterEvent evt = new RegisterEvent(
-                        EventKind.UNKNOWN_TYPE,
-                        String.format(
-                            "Missing Type UL at Element %s for Group %s",
-                            child.getItem(),
-                            group.getUL()
-                        )
-                    );
+                    if (isEventEnabled(evthandler, EventKind.UNKNOWN_TYPE)) {
 
-                    handleEvent(evthandler, evt);
+                        RegisterEvent evt = new RegisterEvent(
+                            EventKind.UNKNOWN_TYPE,
+                            String.format(
+                                "Missing Type UL at Element %s for Group %s",
+                                child.getItem(),
+                                group.getUL()
+                            )
+                        );
+
+                        handleEvent(evthandler, evt);
+
+                    }
 
                     continue;
                 }
@@ -496,30 +521,38 @@ public class RegisterImporter {
 
                     if (ul == null) {
 
-                        RegisterEvent evt = new RegisterEvent(
-                            EventKind.UNKNOWN_TARGET_SET,
-                            String.format(
-                                "Missing Target Set UL at Type %s",
-                                type.getUL().toString()
-                            )
-                        );
+                        if (isEventEnabled(evthandler, EventKind.UNKNOWN_TARGET_SET)) {
 
-                        handleEvent(evthandler, evt);
+                            RegisterEvent evt = new RegisterEvent(
+                                EventKind.UNKNOWN_TARGET_SET,
+                                String.format(
+                                    "Missing Target Set UL at Type %s",
+                                    type.getUL().toString()
+                                )
+                            );
+
+                            handleEvent(evthandler, evt);
+
+                        }
 
                         continue;
                     }
 
                     if (!((WeakReferenceTypeDefinition) tdef).getTargetSet().add(new AUID(ul))) {
 
-                        RegisterEvent evt = new RegisterEvent(
-                            EventKind.DUP_TARGET_SET,
-                            String.format(
-                                "Duplicate Target Set UL at Type %s",
-                                type.getUL().toString()
-                            )
-                        );
+                        if (isEventEnabled(evthandler, EventKind.DUP_TARGET_SET)) {
 
-                        handleEvent(evthandler, evt);
+                            RegisterEvent evt = new RegisterEvent(
+                                EventKind.DUP_TARGET_SET,
+                                String.format(
+                                    "Duplicate Target Set UL at Type %s",
+                                    type.getUL().toString()
+                                )
+                            );
+
+                            handleEvent(evthandler, evt);
+
+                        }
 
                     }
 
@@ -576,16 +609,20 @@ public class RegisterImporter {
 
                 } else {
 
-                    RegisterEvent evt = new RegisterEvent(
-                        EventKind.BAD_ENUM_TYPE,
-                        String.format(
-                            "Enumeration base type %s is neither integer nor AUID for Type UL %s.",
-                            type.getBaseType(),
-                            type.getUL().toString()
-                        )
-                    );
+                    if (isEventEnabled(evthandler, EventKind.BAD_ENUM_TYPE)) {
 
-                    handleEvent(evthandler, evt);
+                        RegisterEvent evt = new RegisterEvent(
+                            EventKind.BAD_ENUM_TYPE,
+                            String.format(
+                                "Enumeration base type %s is neither integer nor AUID for Type UL %s.",
+                                type.getBaseType(),
+                                type.getUL().toString()
+                            )
+                        );
+
+                        handleEvent(evthandler, evt);
+
+                    }
 
                     continue;
                 }
@@ -604,16 +641,20 @@ public class RegisterImporter {
 
             } else {
 
-                RegisterEvent evt = new RegisterEvent(
-                    EventKind.UNKNOWN_TYPE_KIND,
-                    String.format(
-                        "Unknown type kind of %s for Type UL %s.",
-                        type.getTypeKind(),
-                        type.getUL().toString()
-                    )
-                );
+                if (isEventEnabled(evthandler, EventKind.UNKNOWN_TYPE_KIND)) {
+
+                    RegisterEvent evt = new RegisterEvent(
+                        EventKind.UNKNOWN_TYPE_KIND,
+                        String.format(
+                            "Unknown type kind of %s for Type UL %s.",
+                            type.getTypeKind(),
+                            type.getUL().toString()
+                        )
+                    );
+
+                    handleEvent(evthandler, evt);
 
-                handleEvent(evthandler, evt);
+                }
 
                 continue;
             }
@@ -646,15 +687,19 @@ public class RegisterImporter {
 
             } else {
 
-                RegisterEvent evt = new RegisterEvent(
-                    EventKind.TYPE_IMPORT_FAILED,
-                    String.format(
-                        "Type UL %s import failed",
-                        type.getUL().toString()
-                    )
-                );
+                if (isEventEnabled(evthandler, EventKind.TYPE_IMPORT_FAILED)) {
+
+                    RegisterEvent evt = new RegisterEvent(
+                        EventKind.TYPE_IMPORT_FAILED,
+                        String.format(
+                            "Type UL %s import failed",
+                            type.getUL().toString()
+                        )
+                    );
+
+                    handleEvent(evthandler, evt);
 
-                handleEvent(evthandler, evt);
+                }
 
             }
         }
@@ -688,17 +733,21 @@ public class RegisterImporter {
                     /* attempt to generate an ad hoc symbol instead of dying */
                     String newsym = "dup" + def.getSymbol() + (index++);
 
-                    RegisterEvent evt = new RegisterEvent(
-                        EventKind.DUPLICATE_SYMBOL,
-                        String.format(
-                            "Duplicate symbol %s (%s) renamed %s",
-                            def.getSymbol(),
-                            def.getNamespace().toASCIIString(),
-                            newsym
-                        )
-                    );
+                    if (isEventEnabled(evthandler, EventKind.DUPLICATE_SYMBOL)) {
 
-                    handleEvent(evthandler, evt);
+                        RegisterEvent evt = new RegisterEvent(
+                            EventKind.DUPLICATE_SYMBOL,
+                            String.format(
+                                "Duplicate symbol %s (%s) renamed %s",
+                                def.getSymbol(),
+                                def.getNamespace().toASCIIString(),
+                                newsym
+                            )
+                        );
+
+                        handleEvent(evthandler, evt);
+
+                    }
 
                     def.setSymbol(newsym);
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.tools;
+
+import com.sandflow.smpte.regxml.dict.MetaDictionaryImage;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles RegXML metadictionaries into a binary image that can be loaded by
+ * RegXMLDump in lieu of the XML files
+ */
+public class CompileDictionaryImage {
+
+    protected final static String USAGE = "Compiles RegXML metadictionaries into a binary image.\n"
+        + "  Usage: CompileDictionaryImage -d regxmldictionarydirorfile_1 ... regxmldictionarydirorfile_n\n"
+        + "                                -o imagefile\n"
+        + "         CompileDictionaryImage -?\n"
+        + "  Where:\n"
+        + "     -d: metadictionary files, or directories containing metadictionary files with the .xml extension\n"
+        + "     -o: image file to be written, conventionally with the " + MetaDictionaryImage.FILE_EXTENSION + " extension\n";
+
+    /**
+     * Usage is specified at {@link #USAGE}
+     */
+    public static void main(String[] args) throws Exception {
+
+        boolean error = false;
+        List<File> sources = null;
+        File image = null;
+
+        for (int i = 0; i < args.length;) {
+
+            if ("-d".equals(args[i])) {
+
+                if (sources != null) {
+                    error = true;
+                    break;
+                }
+
+                i++;
+
+                sources = new ArrayList<>();
+
+                for (; i < args.length && args[i].charAt(0) != '-'; i++) {
+
+                    File mdf = new File(args[i]);
+
+                    if (mdf.isDirectory()) {
+
+                        File mdfs[] = mdf.listFiles(
+                            new FilenameFilter() {
+
+                                @Override
+                                public boolean accept(File dir, String name) {
+                                    return name.endsWith(".xml");
+                                }
+                            }
+                        );
+
+                        /* sort the files so that the checksum does not depend on the directory order */
+                        Arrays.sort(mdfs);
+
+                        sources.addAll(Arrays.asList(mdfs));
+
+                    } else {
+
+                        sources.add(mdf);
+
+                    }
+
+                }
+
+            } else if ("-o".equals(args[i])) {
+
+                i++;
+
+                if (image != null || i >= args.length) {
+                    error = true;
+                    break;
+                }
+
+                image = new File(args[i++]);
+
+            } else {
+
+                error = true;
+                break;
+
+            }
+
+        }
+
+        if (error || sources == null || sources.isEmpty() || image == null) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        try (OutputStream os = Files.newOutputStream(image.toPath())) {
+
+            MetaDictionaryImage.compile(sources, os);
+
+        }
+    }
+}
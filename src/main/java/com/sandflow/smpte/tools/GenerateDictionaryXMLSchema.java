@@ -28,29 +28,32 @@ package com.sandflow.smpte.tools;
 import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.regxml.FragmentBuilder;
 import com.sandflow.smpte.regxml.XMLSchemaBuilder;
+import com.sandflow.smpte.regxml.dict.DefinitionSnapshot;
 import com.sandflow.smpte.regxml.dict.MetaDictionary;
 import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
 import com.sandflow.util.events.Event;
 import com.sandflow.util.events.EventHandler;
+import com.sandflow.util.xml.XMLPool;
 import java.io.EOFException;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 import javax.xml.bind.JAXBException;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import org.w3c.dom.Document;
@@ -66,8 +69,10 @@ public class GenerateDictionaryXMLSchema {
 
     protected final static String USAGE = "Generate XML Schema for RegXML Metadictionaries.\n"
         + "  Usage:\n"
-        + "     GenerateDictionaryXMLSchema -d regxmldictionary1 regxmldictionary2 regxmldictionary3 ... -o outputdir\n"
-        + "     GenerateDictionaryXMLSchema -?\n";
+        + "     GenerateDictionaryXMLSchema (-stax) -d regxmldictionary1 regxmldictionary2 regxmldictionary3 ... -o outputdir\n"
+        + "     GenerateDictionaryXMLSchema -?\n"
+        + "  Where:\n"
+        + "     -stax: parses metadictionary files using StAX, which does not require JAXB, instead of JAXB (default)\n";
 
     private final static String XMLSCHEMA_NS = "http://www.w3.org/2001/XMLSchema";
 
@@ -76,6 +81,15 @@ public class GenerateDictionaryXMLSchema {
      */
     public static void main(String[] args) throws IOException, EOFException, KLVException, ParserConfigurationException, JAXBException, FragmentBuilder.RuleException, TransformerException, IllegalDefinitionException, IllegalDictionaryException, Exception {
 
+        MetaDictionary.XMLParser parser = MetaDictionary.XMLParser.JAXB;
+
+        if (args.length > 0 && "-stax".equals(args[0])) {
+
+            parser = MetaDictionary.XMLParser.STAX;
+
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+
         if (args.length < 4
             || "-?".equals(args[0])
             || (!"-d".equals(args[0]))
@@ -87,23 +101,17 @@ public class GenerateDictionaryXMLSchema {
         }
 
         /* load the metadictionaries */
-        MetaDictionaryCollection mds = new MetaDictionaryCollection();
+        ArrayList<Path> mdpaths = new ArrayList<>();
 
         for (int i = 1; i < args.length - 2; i++) {
-
-            /* load the regxml metadictionary */
-            FileReader fr = new FileReader(args[i]);
-
-            MetaDictionary md = MetaDictionary.fromXML(fr);
-
-            /* add it to the dictionary group */
-            mds.addDictionary(md);
-
+            mdpaths.add(Paths.get(args[i]));
         }
 
+        MetaDictionaryCollection mds = MetaDictionaryCollection.load(mdpaths, ForkJoinPool.commonPool(), parser);
+
 
         /* generate a schema document that includes all registers */
-        Document masterxsd = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Document masterxsd = XMLPool.newDocument();
 
         Element masterxsd_root = masterxsd.createElementNS(XMLSCHEMA_NS, "schema");
 
@@ -123,13 +131,13 @@ public class GenerateDictionaryXMLSchema {
         masterxsd_root.appendChild(masterxsd_import);
 
         /* create transformer to ouput a concrete representation of our DOMs */
-        Transformer tr = TransformerFactory.newInstance().newTransformer();
+        Transformer tr = XMLPool.getTransformer();
         tr.setOutputProperty(OutputKeys.INDENT, "yes");
 
 
         /* create the fragment builder */
         XMLSchemaBuilder sb = new XMLSchemaBuilder(
-            mds,
+            DefinitionSnapshot.of(mds),
             new EventHandler() {
 
                 @Override
@@ -27,6 +27,7 @@ package com.sandflow.smpte.tools;
 
 import com.sandflow.smpte.register.exceptions.DuplicateEntryException;
 import com.sandflow.smpte.register.exceptions.InvalidEntryException;
+import com.sandflow.util.xml.XMLPool;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -36,11 +37,9 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.SchemaOutputResolver;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
@@ -72,11 +71,11 @@ public class GenerateXMLSchemaDocuments {
         
         Class c = Class.forName(args[1]);
 
-        JAXBContext ctx = JAXBContext.newInstance(c);
+        JAXBContext ctx = XMLPool.getJAXBContext(c);
 
         File baseDir = new File(args[3]);
 
-        final DocumentBuilder docBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        final DocumentBuilder docBuilder = XMLPool.getDocumentBuilder();
         final ArrayList<Document> docs = new ArrayList<>();
 
         ctx.generateSchema(new SchemaOutputResolver() {
@@ -93,7 +92,7 @@ public class GenerateXMLSchemaDocuments {
             }
         });
 
-        Transformer tr = TransformerFactory.newInstance().newTransformer();
+        Transformer tr = XMLPool.getTransformer();
 
         tr.setOutputProperty(OutputKeys.INDENT, "yes");
 
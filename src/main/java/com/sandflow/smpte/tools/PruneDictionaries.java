@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.tools;
+
+import com.sandflow.smpte.regxml.MXFFragmentBuilder;
+import com.sandflow.smpte.regxml.dict.MetaDictionary;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryPruner;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.util.events.Event;
+import com.sandflow.util.events.EventHandler;
+import com.sandflow.util.xml.XMLPool;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+
+/**
+ * Prunes RegXML metadictionaries down to the definitions reachable from root
+ * classes or used by a corpus of MXF files
+ */
+public class PruneDictionaries {
+
+    private final static Logger LOG = Logger.getLogger(PruneDictionaries.class.getName());
+
+    protected final static String USAGE = "Prunes RegXML metadictionaries down to the definitions reachable from roots.\n"
+        + "  Usage: PruneDictionaries -d regxmldictionarydirorfile_1 ... regxmldictionarydirorfile_n\n"
+        + "                           [-r rootauid_1 ... rootauid_n]\n"
+        + "                           [-m mxffile_1 ... mxffile_n]\n"
+        + "                           [-stax]\n"
+        + "                           -o outputdir\n"
+        + "         PruneDictionaries -?\n"
+        + "  Where:\n"
+        + "     -d: metadictionary files, or directories containing metadictionary files with the .xml extension\n"
+        + "     -r: URNs of root definitions, typically classes, which are retained along with their subclasses\n"
+        + "     -m: MXF files whose header metadata lists the classes and properties to be retained\n"
+        + "     -stax: parses metadictionary files using StAX, which does not require JAXB, instead of JAXB (default)\n"
+        + "     -o: directory where the pruned metadictionaries are written\n";
+
+    /**
+     * Usage is specified at {@link #USAGE}
+     */
+    public static void main(String[] args) throws Exception {
+
+        boolean error = false;
+        List<Path> mdpaths = null;
+        List<AUID> roots = new ArrayList<>();
+        List<Path> mxfpaths = new ArrayList<>();
+        File outputdir = null;
+        MetaDictionary.XMLParser parser = MetaDictionary.XMLParser.JAXB;
+
+        for (int i = 0; i < args.length;) {
+
+            if ("-d".equals(args[i])) {
+
+                if (mdpaths != null) {
+                    error = true;
+                    break;
+                }
+
+                i++;
+
+                mdpaths = new ArrayList<>();
+
+                for (; i < args.length && args[i].charAt(0) != '-'; i++) {
+
+                    Path p = new File(args[i]).toPath();
+
+                    if (Files.isDirectory(p)) {
+
+                        ArrayList<Path> dirpaths = new ArrayList<>();
+
+                        try (DirectoryStream<Path> ds = Files.newDirectoryStream(p, "*.xml")) {
+
+                            for (Path mdp : ds) {
+                                dirpaths.add(mdp);
+                            }
+
+                        }
+
+                        Collections.sort(dirpaths);
+
+                        mdpaths.addAll(dirpaths);
+
+                    } else {
+
+                        mdpaths.add(p);
+
+                    }
+
+                }
+
+            } else if ("-stax".equals(args[i])) {
+
+                parser = MetaDictionary.XMLParser.STAX;
+
+                i++;
+
+            } else if ("-r".equals(args[i])) {
+
+                i++;
+
+                for (; i < args.length && args[i].charAt(0) != '-'; i++) {
+
+                    AUID root = AUID.fromURN(args[i]);
+
+                    if (root == null) {
+                        error = true;
+                        break;
+                    }
+
+                    roots.add(root);
+                }
+
+            } else if ("-m".equals(args[i])) {
+
+                i++;
+
+                for (; i < args.length && args[i].charAt(0) != '-'; i++) {
+                    mxfpaths.add(new File(args[i]).toPath());
+                }
+
+            } else if ("-o".equals(args[i])) {
+
+                i++;
+
+                if (outputdir != null || i >= args.length) {
+                    error = true;
+                    break;
+                }
+
+                outputdir = new File(args[i++]);
+
+            } else {
+
+                error = true;
+                break;
+
+            }
+
+        }
+
+        if (error || mdpaths == null || mdpaths.isEmpty() || outputdir == null || (roots.isEmpty() && mxfpaths.isEmpty())) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        EventHandler evthandler = new EventHandler() {
+
+            @Override
+            public boolean handle(Event evt) {
+                String msg = evt.getCode().getClass().getCanonicalName() + "::" + evt.getCode().toString() + " " + evt.getMessage();
+
+                switch (evt.getSeverity()) {
+                    case ERROR:
+                    case FATAL:
+                        LOG.severe(msg);
+                        break;
+                    case INFO:
+                        LOG.info(msg);
+                        break;
+                    case WARN:
+                        LOG.warning(msg);
+                        break;
+                }
+                return true;
+            }
+        };
+
+        MetaDictionaryCollection mds = MetaDictionaryCollection.load(mdpaths, ForkJoinPool.commonPool(), parser);
+
+        MetaDictionaryPruner pruner = new MetaDictionaryPruner(mds);
+
+        for (AUID root : roots) {
+            pruner.retain(root, true);
+        }
+
+        for (Path mxfpath : mxfpaths) {
+
+            try (InputStream is = new BufferedInputStream(Files.newInputStream(mxfpath))) {
+
+                /* the MXF file lists the classes it uses, so subclasses are not needed */
+                for (AUID key : MXFFragmentBuilder.getHeaderMetadataKeys(is, evthandler)) {
+                    pruner.retain(key, false);
+                }
+
+            }
+        }
+
+        for (AUID id : pruner.getUnresolved()) {
+            LOG.info("No definition found for " + id.toString());
+        }
+
+        MetaDictionaryCollection pruned = pruner.prune();
+
+        Transformer tr = XMLPool.getTransformer();
+
+        tr.setOutputProperty(OutputKeys.INDENT, "yes");
+
+        int count = 0;
+
+        for (MetaDictionary md : pruned.getDictionaries()) {
+
+            /* create file name from the Scheme URI */
+            String fname = md.getSchemeURI().getAuthority() + md.getSchemeURI().getPath();
+
+            File f = new File(outputdir, fname.replaceAll("[^a-zA-Z0-9]", "-") + ".xml");
+
+            Document doc = md.toXML();
+
+            /* date and build version */
+            Date now = new java.util.Date();
+            doc.insertBefore(
+                doc.createComment("Created: " + now.toString()),
+                doc.getDocumentElement()
+            );
+            doc.insertBefore(
+                doc.createComment("By: regxmllib build " + BuildVersionSingleton.getBuildVersion()),
+                doc.getDocumentElement()
+            );
+            doc.insertBefore(
+                doc.createComment("See: https://github.com/sandflow/regxmllib"),
+                doc.getDocumentElement()
+            );
+
+            tr.transform(
+                new DOMSource(doc),
+                new StreamResult(f)
+            );
+
+            count += md.getDefinitions().size();
+        }
+
+        LOG.info(String.format("Retained %d definitions in %d metadictionaries", count, pruned.getDictionaries().size()));
+    }
+}
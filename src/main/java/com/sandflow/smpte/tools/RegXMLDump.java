@@ -25,34 +25,52 @@
  */
 package com.sandflow.smpte.tools;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.channels.Channels;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import com.sandflow.smpte.mxf.MXFFiles;
 import com.sandflow.smpte.register.LabelsRegister;
+import com.sandflow.smpte.regxml.BatchExtractor;
 import com.sandflow.smpte.regxml.FragmentBuilder;
+import com.sandflow.smpte.regxml.FragmentEngine;
+import com.sandflow.smpte.regxml.JSONFragmentWriter;
+import com.sandflow.smpte.regxml.LabelsRegisterNameResolver;
 import com.sandflow.smpte.regxml.MXFFragmentBuilder;
+import com.sandflow.smpte.regxml.dict.DefinitionSnapshot;
 import com.sandflow.smpte.regxml.dict.MetaDictionary;
 import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
-import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryImage;
 import com.sandflow.smpte.util.UL;
 import com.sandflow.util.events.Event;
 import com.sandflow.util.events.EventHandler;
+import com.sandflow.util.xml.XMLPool;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.DocumentFragment;
@@ -73,15 +91,27 @@ public class RegXMLDump {
 
     protected final static String USAGE = "Dump header metadata of an MXF file as a RegXML structure.\n"
         + "  Usage:\n"
-        + "     RegXMLDump ( -all | -ed ) ( -header | -footer | -auto ) (-l labelsregister) -d regxmldictionarydirorfile_1 ... regxmldictionarydirorfile_n -i mxffile\n"
+        + "     RegXMLDump ( -all | -ed ) ( -header | -footer | -auto ) (-json) (-stax) (-l labelsregister) -d regxmldictionarydirorfile_1 ... regxmldictionarydirorfile_n -i mxffile\n"
+        + "     RegXMLDump ( -all | -ed ) ( -header | -footer | -auto ) (-json) (-stax) (-l labelsregister) (-t threads) -d regxmldictionarydirorfile_1 ... regxmldictionarydirorfile_n -b mxfdirorglob -o outputdir\n"
         + "     RegXMLDump -?\n"
         + "  Where:\n"
         + "     -all: dumps all header metadata (default)\n"
         + "     -ed: dumps only the first essence descriptor found\n"
+        + "     -d: metadictionary files, directories containing metadictionary files with the .xml extension, or metadictionary images with the " + MetaDictionaryImage.FILE_EXTENSION + " extension (see CompileDictionaryImage)\n"
         + "     -l labelsregister: given a SMPTE labels register, inserts the symbol of labels as XML comment\n"
         + "     -header: dumps metadata from the header partition (default)\n"
         + "     -footer: dumps metadata from the footer partition\n"
-        + "     -auto: dumps metadata from the footer partition if available and from the header if not\n";
+        + "     -auto: dumps metadata from the footer partition if available and from the header if not\n"
+        + "     -json: dumps the RegXML structure as JSON instead of XML\n"
+        + "     -stax: parses metadictionary files using StAX, which does not require JAXB, instead of JAXB (default)\n"
+        + "     -b mxfdirorglob: dumps every MXF file in a directory, or matching a glob pattern (e.g. media/*.mxf), to outputdir\n"
+        + "     -o outputdir: directory where the dumps are written, each named after its MXF file with its extension replaced by .xml or .json\n"
+        + "     -t threads: number of MXF files processed concurrently in batch mode (default: number of processors)\n";
+
+    /**
+     * Memory budget of the batch mode
+     */
+    private static final long BATCH_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 2;
 
     private enum TargetPartition {
         HEADER,
@@ -98,9 +128,16 @@ public class RegXMLDump {
         TargetPartition selectedpartition = null;
         Boolean isEssenceDescriptorOnly = null;
         MetaDictionaryCollection mds = null;
+        ArrayList<Path> mdpaths = null;
+        ArrayList<MetaDictionary> imagemds = null;
+        MetaDictionary.XMLParser parser = MetaDictionary.XMLParser.JAXB;
         SeekableByteChannel f = null;
         FileReader labelreader = null;
         Path p = null;
+        boolean isJSON = false;
+        String batch = null;
+        Path outputdir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
 
         for (int i = 0; i < args.length;) {
 
@@ -132,6 +169,18 @@ public class RegXMLDump {
 
                 i++;
 
+            } else if ("-json".equals(args[i])) {
+
+                isJSON = true;
+
+                i++;
+
+            } else if ("-stax".equals(args[i])) {
+
+                parser = MetaDictionary.XMLParser.STAX;
+
+                i++;
+
             } else if ("-footer".equals(args[i])) {
 
                 if (selectedpartition != null) {
@@ -167,24 +216,46 @@ public class RegXMLDump {
 
             } else if ("-d".equals(args[i])) {
 
-                if (mds != null) {
+                if (mdpaths != null) {
                     error = true;
                     break;
                 }
 
                 i++;
 
-                mds = new MetaDictionaryCollection();
+                mdpaths = new ArrayList<>();
+                imagemds = new ArrayList<>();
 
                 for (; i < args.length && args[i].charAt(0) != '-'; i++) {
 
                     File mdf = new File(args[i]);
 
-                    File mdfs[];
+                    if (mdf.isFile() && mdf.getName().endsWith(MetaDictionaryImage.FILE_EXTENSION)) {
+
+                        /* load a precompiled image of metadictionaries */
+                        MetaDictionaryImage image;
+
+                        try (InputStream is = Files.newInputStream(mdf.toPath())) {
+                            image = MetaDictionaryImage.read(is);
+                        }
+
+                        try {
+
+                            if (image.isStale()) {
+                                LOG.warning("Metadictionary image is out of date with respect to its sources: " + mdf.getPath());
+                            }
+
+                        } catch (IOException e) {
+
+                            LOG.warning("Cannot verify the sources of the metadictionary image: " + mdf.getPath());
+
+                        }
+
+                        imagemds.addAll(image.getDictionaries().getDictionaries());
 
-                    if (mdf.isDirectory()) {
+                    } else if (mdf.isDirectory()) {
 
-                        mdfs = mdf.listFiles(
+                        File mdfs[] = mdf.listFiles(
                             new FilenameFilter(){
                         
                                 @Override
@@ -194,29 +265,18 @@ public class RegXMLDump {
                             }
                         );
 
-                    } else {
-
-                        mdfs = new File[] {mdf};
-
-                    }
-
-                    for(int j = 0; j < mdfs.length; j++ ) {
+                        for (File mdfile : mdfs) {
+                            mdpaths.add(mdfile.toPath());
+                        }
 
-                        /* load the regxml metadictionary */
-                        FileReader fr = new FileReader(mdfs[j]);
+                    } else {
 
-                        /* add it to the dictionary group */
-                        mds.addDictionary(MetaDictionary.fromXML(fr));
+                        mdpaths.add(mdf.toPath());
 
                     }
 
                 }
 
-                if (mds.getDictionaries().isEmpty()) {
-                    error = true;
-                    break;
-                }
-
             } else if ("-l".equals(args[i])) {
 
                 if (labelreader != null) {
@@ -251,6 +311,61 @@ public class RegXMLDump {
 
                 f = Files.newByteChannel(p);
 
+            } else if ("-b".equals(args[i])) {
+
+                i++;
+
+                if (batch != null || i >= args.length || args[i].charAt(0) == '-') {
+
+                    error = true;
+                    break;
+
+                }
+
+                batch = args[i++];
+
+            } else if ("-o".equals(args[i])) {
+
+                i++;
+
+                if (outputdir != null || i >= args.length || args[i].charAt(0) == '-') {
+
+                    error = true;
+                    break;
+
+                }
+
+                outputdir = Paths.get(args[i++]);
+
+            } else if ("-t".equals(args[i])) {
+
+                i++;
+
+                if (i >= args.length) {
+
+                    error = true;
+                    break;
+
+                }
+
+                try {
+
+                    threads = Integer.parseInt(args[i++]);
+
+                } catch (NumberFormatException e) {
+
+                    error = true;
+                    break;
+
+                }
+
+                if (threads < 1) {
+
+                    error = true;
+                    break;
+
+                }
+
             } else {
 
                 error = true;
@@ -260,6 +375,21 @@ public class RegXMLDump {
 
         }
 
+        if (!error && mdpaths != null) {
+
+            /* load the regxml metadictionaries concurrently */
+            mds = MetaDictionaryCollection.load(mdpaths, ForkJoinPool.commonPool(), parser);
+
+            for (MetaDictionary md : imagemds) {
+                mds.addDictionary(md);
+            }
+
+            if (mds.getDictionaries().isEmpty()) {
+                error = true;
+            }
+
+        }
+
         if (selectedpartition == null) {
             selectedpartition = TargetPartition.HEADER;
         }
@@ -268,7 +398,7 @@ public class RegXMLDump {
             isEssenceDescriptorOnly = false;
         }
 
-        if (error || f == null || mds == null || p == null) {
+        if (error || mds == null || (batch == null ? (f == null || p == null || outputdir != null) : (f != null || outputdir == null))) {
             System.out.println(USAGE);
             return;
         }
@@ -290,28 +420,40 @@ public class RegXMLDump {
 
         if (lr != null) {
 
-            anr = new FragmentBuilder.AUIDNameResolver() {
+            anr = new LabelsRegisterNameResolver(lr);
 
-                @Override
-                public String getLocalName(AUID enumid) {
-                    LabelsRegister.Entry e = lr.getEntryByUL(enumid.asUL());
+        }
 
-                    return e == null ? null : e.getSymbol();
-                }
+        UL root = isEssenceDescriptorOnly ? ESSENCE_DESCRIPTOR_KEY : PREFACE_KEY;
+
+        if (batch != null) {
+
+            int failures = dumpBatch(
+                new FragmentEngine(DefinitionSnapshot.of(mds), anr),
+                batch,
+                outputdir,
+                threads,
+                root,
+                BatchExtractor.Partition.valueOf(selectedpartition.name()),
+                isJSON ? BatchExtractor.Format.JSON : BatchExtractor.Format.XML
+            );
+
+            if (failures > 0) {
+                LOG.severe(failures + " file(s) could not be dumped");
+                System.exit(1);
+            }
 
-            };
+            return;
         }
 
         /* create DOM */
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-        Document doc = docBuilder.newDocument();
+        Document doc = XMLPool.newDocument();
 
         doc.setXmlStandalone(true);
 
-        UL root = isEssenceDescriptorOnly ? ESSENCE_DESCRIPTOR_KEY : PREFACE_KEY;
-
         DocumentFragment df = null;
+        StringWriter json = null;
+        Writer stdout = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
 
         TargetPartition actualpartition
             = TargetPartition.AUTO.equals(selectedpartition)
@@ -370,16 +512,37 @@ public class RegXMLDump {
                     }
                 };
 
-                df = MXFFragmentBuilder.fromInputStream(is, mds, anr, evthandler, root, doc);
+                boolean mayretry = TargetPartition.AUTO.equals(selectedpartition)
+                    && TargetPartition.FOOTER.equals(actualpartition);
+
+                if (isJSON) {
+
+                    /* only an attempt that may be retried is buffered, so that
+                     its partial output can be discarded; the last attempt
+                     is streamed */
+                    json = mayretry ? new StringWriter() : null;
+
+                    MXFFragmentBuilder.fromInputStream(is, mds, anr, evthandler, root, new JSONFragmentWriter(mayretry ? json : stdout), null);
+
+                } else {
+
+                    df = MXFFragmentBuilder.fromInputStream(is, mds, anr, evthandler, root, doc);
+
+                }
+
+                retry = false;
 
             } catch (Exception e) {
 
-                if (TargetPartition.AUTO.equals(selectedpartition)) {
+                if (TargetPartition.AUTO.equals(selectedpartition)
+                    && TargetPartition.FOOTER.equals(actualpartition)) {
 
                     /* if an exception occurred and the target partition is AUTO,
                      try again with the header partition */
                     actualpartition = TargetPartition.HEADER;
 
+                    json = null;
+
                     f.position(0);
 
                 } else {
@@ -390,27 +553,30 @@ public class RegXMLDump {
                     throw e;
                 }
 
-            } finally {
+            }
 
-                retry = false;
+        }
 
+        if (isJSON) {
+
+            if (json != null) {
+                stdout.write(json.toString());
             }
 
+            stdout.flush();
+
+            return;
         }
 
-        /* date and build version */
-        Date now = new java.util.Date();
-        doc.appendChild(doc.createComment("Created: " + now.toString()));
-        doc.appendChild(doc.createComment("From: " + p.getFileName().toString()));
-        doc.appendChild(doc.createComment("Partition: " + actualpartition.name()));
-        doc.appendChild(doc.createComment("By: regxmllib build " + BuildVersionSingleton.getBuildVersion()));
-        doc.appendChild(doc.createComment("See: https://github.com/sandflow/regxmllib"));
+        for (String comment : getHeaderComments(p, actualpartition.name())) {
+            doc.appendChild(doc.createComment(comment));
+        }
 
         /* add regxml fragment */
         doc.appendChild(df);
 
         /* write DOM to file */
-        Transformer tr = TransformerFactory.newInstance().newTransformer();
+        Transformer tr = XMLPool.getTransformer();
 
         tr.setOutputProperty(OutputKeys.INDENT, "yes");
         tr.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
@@ -421,4 +587,158 @@ public class RegXMLDump {
         );
 
     }
+
+    /**
+     * Returns the comments, e.g. date and build version, that precede the
+     * RegXML Fragment in XML output
+     */
+    private static List<String> getHeaderComments(Path mxffile, String partition) {
+
+        Date now = new java.util.Date();
+
+        return Arrays.asList(
+            "Created: " + now.toString(),
+            "From: " + mxffile.getFileName().toString(),
+            "Partition: " + partition,
+            "By: regxmllib build " + BuildVersionSingleton.getBuildVersion(),
+            "See: https://github.com/sandflow/regxmllib"
+        );
+    }
+
+    /**
+     * Dumps the MXF files designated by a directory or glob pattern to an
+     * output directory
+     *
+     * @return Number of files that could not be dumped
+     */
+    private static int dumpBatch(FragmentEngine engine,
+        String mxfdirorglob,
+        final Path outputdir,
+        int threads,
+        UL root,
+        BatchExtractor.Partition partition,
+        BatchExtractor.Format format) throws Exception {
+
+        /* list the mxf files */
+        List<Path> mxffiles = new ArrayList<>();
+
+        Path dir = Paths.get(mxfdirorglob);
+        String glob = "*.mxf";
+
+        if (!Files.isDirectory(dir)) {
+            glob = dir.getFileName().toString();
+            dir = dir.getParent() == null ? Paths.get(".") : dir.getParent();
+        }
+
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, glob)) {
+
+            for (Path mxffile : ds) {
+
+                if (Files.isRegularFile(mxffile)) {
+                    mxffiles.add(mxffile);
+                }
+
+            }
+
+        }
+
+        Collections.sort(mxffiles);
+
+        final String extension = format == BatchExtractor.Format.JSON ? ".json" : ".xml";
+
+        /* replace the extension of each MXF file, e.g. .mxf, if any */
+        final Map<Path, Path> outputfiles = new HashMap<>();
+        Map<Path, Path> sources = new HashMap<>();
+
+        for (Path mxffile : mxffiles) {
+
+            String name = mxffile.getFileName().toString();
+
+            int dot = name.lastIndexOf('.');
+
+            if (dot > 0) {
+                name = name.substring(0, dot);
+            }
+
+            Path outputfile = outputdir.resolve(name + extension);
+
+            /* e.g. clip.mxf and clip.MXF */
+            Path other = sources.put(outputfile, mxffile);
+
+            if (other != null) {
+
+                String msg = String.format(
+                    "%s and %s would both be dumped to %s",
+                    other.getFileName(),
+                    mxffile.getFileName(),
+                    outputfile
+                );
+
+                LOG.severe(msg);
+
+                throw new IOException(msg);
+            }
+
+            outputfiles.put(mxffile, outputfile);
+        }
+
+        Files.createDirectories(outputdir);
+
+        try (BatchExtractor extractor = new BatchExtractor(engine, threads, BATCH_MEMORY_BUDGET)) {
+
+            return extractor.extract(
+                mxffiles,
+                root,
+                partition,
+                format,
+                new BatchExtractor.OutputFactory() {
+
+                    @Override
+                    public OutputStream open(Path mxffile) throws IOException {
+                        return Files.newOutputStream(outputfiles.get(mxffile));
+                    }
+                },
+                new BatchExtractor.CommentFactory() {
+
+                    @Override
+                    public List<String> getComments(Path mxffile, BatchExtractor.Partition partition) {
+                        return getHeaderComments(mxffile, partition.name());
+                    }
+                },
+                new BatchExtractor.ResultHandler() {
+
+                    @Override
+                    public void handle(BatchExtractor.Result result) {
+
+                        String name = result.getPath().getFileName().toString();
+
+                        for (Event evt : result.getEvents()) {
+
+                            String msg = name + ": " + evt.getCode().getClass().getCanonicalName() + "::" + evt.getCode().toString() + " " + evt.getMessage();
+
+                            switch (evt.getSeverity()) {
+                                case ERROR:
+                                case FATAL:
+                                    LOG.severe(msg);
+                                    break;
+                                case INFO:
+                                    LOG.info(msg);
+                                    break;
+                                case WARN:
+                                    LOG.warning(msg);
+                                    break;
+                            }
+                        }
+
+                        if (result.isSuccess()) {
+                            LOG.info(name + ": dumped from the " + result.getPartition().name().toLowerCase() + " partition");
+                        } else {
+                            LOG.severe(name + ": " + result.getException().getMessage());
+                        }
+                    }
+                }
+            );
+
+        }
+    }
 }
@@ -35,6 +35,7 @@ import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
 import com.sandflow.util.events.Event;
 import static com.sandflow.smpte.regxml.dict.importers.RegisterImporter.fromRegister;
 import com.sandflow.util.events.EventHandler;
+import com.sandflow.util.xml.XMLPool;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -44,7 +45,6 @@ import java.util.logging.Logger;
 import javax.xml.bind.JAXBException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import org.w3c.dom.Document;
@@ -114,7 +114,7 @@ public class XMLRegistersToDict {
 
         MetaDictionaryCollection mds = fromRegister(treg, greg, ereg, evthandler);
 
-        Transformer tr = TransformerFactory.newInstance().newTransformer();
+        Transformer tr = XMLPool.getTransformer();
 
         tr.setOutputProperty(OutputKeys.INDENT, "yes");
 
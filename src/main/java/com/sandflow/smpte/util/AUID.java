@@ -147,6 +147,15 @@ public class AUID {
         return new UUID(uuid);
     }
 
+    /**
+     * Returns the sequence of bytes that make up the AUID
+     *
+     * @return Sequence of 16 bytes
+     */
+    public byte[] getValue() {
+        return value;
+    }
+
     /**
      * Returns the underlying UL if available
      * @return Underlying UL, or null if not a UL
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * {@link LongPairMap} that cannot be modified, and is therefore safe for use
+ * by multiple threads. Instances are created using
+ * {@link MutableLongPairMap#toImmutable()}.
+ *
+ * @param <V> Type of the values
+ */
+public final class ImmutableLongPairMap<V> extends LongPairMap<V> {
+
+    private final long[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+    private final Collection<V> valueview;
+
+    @SuppressWarnings("unchecked")
+    ImmutableLongPairMap(long[] keys, Object[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.mask = values.length - 1;
+        this.size = size;
+
+        ArrayList<V> vals = new ArrayList<>(size);
+
+        for (Object value : values) {
+            if (value != null) {
+                vals.add((V) value);
+            }
+        }
+
+        this.valueview = Collections.unmodifiableList(vals);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(long hi, long lo) {
+        return (V) values[find(keys, values, mask, hi, lo)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return valueview;
+    }
+}
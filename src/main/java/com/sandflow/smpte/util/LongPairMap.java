@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.util.Collection;
+
+/**
+ * Map whose keys are 128-bit values, such as ULs, UUIDs and AUIDs, held as two
+ * longs. Entries are stored in open-addressing tables with linear probing, so
+ * that lookups neither allocate nor hash boxed keys. Values cannot be null.
+ *
+ * @param <V> Type of the values
+ *
+ * @see MutableLongPairMap
+ * @see ImmutableLongPairMap
+ */
+public abstract class LongPairMap<V> {
+
+    /**
+     * Maximum ratio of entries to slots
+     */
+    static final double LOAD_FACTOR = 0.5;
+
+    LongPairMap() {
+    }
+
+    /**
+     * Returns the value associated with a key
+     *
+     * @param hi Most significant 64 bits of the key
+     * @param lo Least significant 64 bits of the key
+     * @return Value, or null if none is associated with the key
+     */
+    public abstract V get(long hi, long lo);
+
+    /**
+     * Returns the value associated with a key
+     *
+     * @param key Sequence of 16 bytes that make up the key
+     * @return Value, or null if none is associated with the key
+     */
+    public V get(byte[] key) {
+        return get(high(key), low(key));
+    }
+
+    /**
+     * @param hi Most significant 64 bits of the key
+     * @param lo Least significant 64 bits of the key
+     * @return true if a value is associated with the key
+     */
+    public boolean containsKey(long hi, long lo) {
+        return get(hi, lo) != null;
+    }
+
+    /**
+     * @return Number of entries in the map
+     */
+    public abstract int size();
+
+    /**
+     * @return true if the map contains no entries
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return Values of the map, in no particular order
+     */
+    public abstract Collection<V> values();
+
+    /**
+     * Returns the most significant 64 bits of a 128-bit key
+     *
+     * @param key Sequence of 16 bytes, in big-endian order
+     * @return Bytes 0 to 7 as a long
+     */
+    public static long high(byte[] key) {
+        return toLong(key, 0);
+    }
+
+    /**
+     * Returns the least significant 64 bits of a 128-bit key
+     *
+     * @param key Sequence of 16 bytes, in big-endian order
+     * @return Bytes 8 to 15 as a long
+     */
+    public static long low(byte[] key) {
+        return toLong(key, 8);
+    }
+
+    private static long toLong(byte[] value, int offset) {
+
+        long l = 0;
+
+        for (int i = offset; i < offset + 8; i++) {
+            l = (l << 8) | (value[i] & 0xFF);
+        }
+
+        return l;
+    }
+
+    /**
+     * Mixes both halves of a key so that keys that differ in any bit are
+     * spread over the table
+     */
+    static int hash(long hi, long lo) {
+
+        /* 64-bit finalizer of MurmurHash3 */
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return (int) h;
+    }
+
+    /**
+     * Returns the slot that contains a key, or the empty slot at which the key
+     * would be inserted. The high and low halves of the key of slot i are at
+     * 2i and 2i + 1 in keys, and empty slots have a null value.
+     */
+    static int find(long[] keys, Object[] values, int mask, long hi, long lo) {
+
+        int slot = hash(hi, lo) & mask;
+
+        while (values[slot] != null && (keys[2 * slot] != hi || keys[2 * slot + 1] != lo)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Returns the number of slots needed to hold a number of entries
+     */
+    static int capacityFor(int size) {
+
+        int capacity = Integer.highestOneBit((int) Math.max(1, size / LOAD_FACTOR)) << 1;
+
+        if (capacity <= 0) {
+            throw new IllegalStateException("Map too large");
+        }
+
+        return capacity;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * {@link LongPairMap} that can be modified. Instances are not safe for use by
+ * multiple threads while they are being modified.
+ *
+ * @param <V> Type of the values
+ */
+public class MutableLongPairMap<V> extends LongPairMap<V> {
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty map
+     */
+    public MutableLongPairMap() {
+        this(8);
+    }
+
+    /**
+     * Creates an empty map that can hold a number of entries without being
+     * resized
+     *
+     * @param expectedSize Expected number of entries
+     */
+    public MutableLongPairMap(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+
+        this.keys = new long[2 * capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(long hi, long lo) {
+        return (V) values[find(keys, values, mask, hi, lo)];
+    }
+
+    /**
+     * Associates a value with a key, replacing any existing value
+     *
+     * @param hi Most significant 64 bits of the key
+     * @param lo Least significant 64 bits of the key
+     * @param value Value. Must not be null.
+     * @return Previous value, or null if none was associated with the key
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long hi, long lo, V value) {
+
+        if (value == null) {
+            throw new IllegalArgumentException();
+        }
+
+        int slot = find(keys, values, mask, hi, lo);
+
+        V prev = (V) values[slot];
+
+        if (prev == null) {
+
+            keys[2 * slot] = hi;
+            keys[2 * slot + 1] = lo;
+
+            size++;
+
+            if (size > LOAD_FACTOR * values.length) {
+
+                values[slot] = value;
+
+                resize();
+
+                return null;
+            }
+        }
+
+        values[slot] = value;
+
+        return prev;
+    }
+
+    /**
+     * Associates a value with a key
+     *
+     * @param key Sequence of 16 bytes that make up the key
+     * @param value Value. Must not be null.
+     * @return Previous value, or null if none was associated with the key
+     */
+    public V put(byte[] key, V value) {
+        return put(high(key), low(key), value);
+    }
+
+    /**
+     * Associates a value with a key, unless a value is already associated
+     * with the key
+     *
+     * @param hi Most significant 64 bits of the key
+     * @param lo Least significant 64 bits of the key
+     * @param value Value. Must not be null.
+     * @return Existing value, or null if the value was added
+     */
+    public V putIfAbsent(long hi, long lo, V value) {
+
+        V prev = get(hi, lo);
+
+        if (prev == null) {
+            put(hi, lo, value);
+        }
+
+        return prev;
+    }
+
+    /**
+     * Removes the value associated with a key
+     *
+     * @param hi Most significant 64 bits of the key
+     * @param lo Least significant 64 bits of the key
+     * @return Removed value, or null if none was associated with the key
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long hi, long lo) {
+
+        int slot = find(keys, values, mask, hi, lo);
+
+        V prev = (V) values[slot];
+
+        if (prev == null) {
+            return null;
+        }
+
+        values[slot] = null;
+        size--;
+
+        /* shift back the entries that follow so that no probe sequence is broken */
+        int hole = slot;
+
+        for (int i = (slot + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+
+            int home = hash(keys[2 * i], keys[2 * i + 1]) & mask;
+
+            /* the entry can fill the hole if its home slot is not in (hole, i] */
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+
+                keys[2 * hole] = keys[2 * i];
+                keys[2 * hole + 1] = keys[2 * i + 1];
+                values[hole] = values[i];
+                values[i] = null;
+
+                hole = i;
+            }
+        }
+
+        return prev;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<V> values() {
+
+        ArrayList<V> vals = new ArrayList<>(size);
+
+        for (Object value : values) {
+            if (value != null) {
+                vals.add((V) value);
+            }
+        }
+
+        return vals;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Creates an immutable copy of the map
+     *
+     * @return Immutable map with the same entries
+     */
+    public ImmutableLongPairMap<V> toImmutable() {
+        return new ImmutableLongPairMap<>(keys.clone(), values.clone(), size);
+    }
+
+    private void resize() {
+
+        long[] oldkeys = keys;
+        Object[] oldvalues = values;
+
+        int capacity = 2 * oldvalues.length;
+
+        keys = new long[2 * capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+
+        for (int i = 0; i < oldvalues.length; i++) {
+
+            if (oldvalues[i] != null) {
+
+                int slot = find(keys, values, mask, oldkeys[2 * i], oldkeys[2 * i + 1]);
+
+                keys[2 * slot] = oldkeys[2 * i];
+                keys[2 * slot + 1] = oldkeys[2 * i + 1];
+                values[slot] = oldvalues[i];
+            }
+
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable trie that maps ULs to values, and supports lookups that ignore
+ * specific bytes of the UL, e.g. the version byte, as
+ * {@link UL#equalsWithMask(com.sandflow.smpte.util.UL, int)} does.
+ *
+ * @param <T> Type of the values
+ */
+public class ULTrie<T> {
+
+    /**
+     * Mask that ignores the version byte of a UL
+     */
+    public static final int IGNORE_VERSION_MASK = 0b1111111011111111;
+
+    /**
+     * Mask that compares all bytes of a UL
+     */
+    public static final int EXACT_MASK = 0xFFFF;
+
+    private static class Node {
+
+        byte[] keys = new byte[0];
+        Node[] children = new Node[0];
+        Object value;
+
+        Node getChild(byte key) {
+
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+
+            return null;
+        }
+
+        Node addChild(byte key) {
+
+            Node child = getChild(key);
+
+            if (child == null) {
+
+                child = new Node();
+
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+
+                keys[keys.length - 1] = key;
+                children[children.length - 1] = child;
+            }
+
+            return child;
+        }
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Instantiates a trie
+     *
+     * @param entries Map of ULs to values. Must not be null.
+     */
+    public ULTrie(Map<UL, T> entries) {
+
+        for (Map.Entry<UL, T> entry : entries.entrySet()) {
+
+            Node n = root;
+
+            for (byte b : entry.getKey().getValue()) {
+                n = n.addChild(b);
+            }
+
+            n.value = entry.getValue();
+        }
+    }
+
+    /**
+     * Returns the value associated with a UL.
+     *
+     * @param ul Sequence of 16 bytes that make up the UL
+     * @return Value, or null if no value is associated with the UL
+     */
+    public T get(byte[] ul) {
+        return get(ul, EXACT_MASK);
+    }
+
+    /**
+     * Returns the value associated with a UL, ignoring specific bytes. Where
+     * multiple entries match, the entry that matches the most ignored bytes
+     * of the UL, starting from the first byte, is returned.
+     *
+     * @param ul Sequence of 16 bytes that make up the UL
+     * @param bytemask 16-bit mask, where byte[n] is ignored if bit[15 - n] is
+     * 0
+     * @return Value, or null if no entry matches
+     */
+    @SuppressWarnings("unchecked")
+    public T get(byte[] ul, int bytemask) {
+        return (T) get(root, ul, 0, bytemask);
+    }
+
+    private static Object get(Node n, byte[] ul, int i, int bytemask) {
+
+        if (i == 16) {
+            return n.value;
+        }
+
+        boolean ignored = (bytemask & (0x8000 >>> i)) == 0;
+
+        /* try the exact byte first */
+        Node c = n.getChild(ul[i]);
+
+        if (c != null) {
+
+            Object v = get(c, ul, i + 1, bytemask);
+
+            if (v != null || !ignored) {
+                return v;
+            }
+        }
+
+        if (ignored) {
+
+            for (int j = 0; j < n.keys.length; j++) {
+
+                if (n.keys[j] == ul[i]) {
+                    continue;
+                }
+
+                Object v = get(n.children[j], ul, i + 1, bytemask);
+
+                if (v != null) {
+                    return v;
+                }
+            }
+        }
+
+        return null;
+    }
+
+}
@@ -45,4 +45,19 @@ public interface EventHandler {
      */
     public boolean handle(Event evt);
 
+    /**
+     * Indicates whether the handler is interested in events of a given
+     * severity. Callers may use this to avoid constructing events, and
+     * formatting their messages, that the handler would ignore anyway.
+     * Processing continues as if {@link #handle(Event)} had returned true for
+     * events that are skipped. FATAL events are always handled.
+     *
+     * @param severity Severity of the event
+     *
+     * @return true if events of the specified severity should be handled
+     */
+    public default boolean isEnabled(Event.Severity severity) {
+        return true;
+    }
+
 }
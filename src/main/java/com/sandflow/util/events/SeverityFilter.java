@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.util.events;
+
+/**
+ * Event handler that forwards to a delegate handler only events at or above
+ * a minimum severity. Event sources that consult
+ * {@link EventHandler#isEnabled(com.sandflow.util.events.Event.Severity)}
+ * skip constructing the remaining events altogether.
+ */
+public class SeverityFilter implements EventHandler {
+
+    private final Event.Severity minimumSeverity;
+    private final EventHandler handler;
+
+    /**
+     * Creates a filter in front of an existing event handler
+     *
+     * @param minimumSeverity Events with a lower severity are ignored
+     * @param handler Handler to which all other events are forwarded
+     */
+    public SeverityFilter(Event.Severity minimumSeverity, EventHandler handler) {
+        if (minimumSeverity == null || handler == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.minimumSeverity = minimumSeverity;
+        this.handler = handler;
+    }
+
+    /**
+     * @return Minimum severity of the events forwarded to the delegate handler
+     */
+    public Event.Severity getMinimumSeverity() {
+        return minimumSeverity;
+    }
+
+    @Override
+    public boolean handle(Event evt) {
+        if (evt.getSeverity().compareTo(minimumSeverity) < 0) {
+            return true;
+        }
+
+        return handler.handle(evt);
+    }
+
+    @Override
+    public boolean isEnabled(Event.Severity severity) {
+        return severity.compareTo(minimumSeverity) >= 0 && handler.isEnabled(severity);
+    }
+
+}
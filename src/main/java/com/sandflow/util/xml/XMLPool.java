@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.util.xml;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import org.w3c.dom.Document;
+
+/**
+ * Thread-safe pool of the JAXP and JAXB objects that are expensive to
+ * create, so that their cost is paid once per JVM rather than once per call.
+ *
+ * JAXB contexts are thread-safe and shared by all threads. DocumentBuilder and
+ * Transformer instances are not thread-safe: each thread is given its own
+ * instance, which is reset every time it is returned. The instance must
+ * therefore not be retained across calls that may themselves use the pool.
+ *
+ * StAX objects are pooled by {@link XMLStreamPool}, which does not depend on
+ * JAXB.
+ */
+public final class XMLPool {
+
+    private static final ConcurrentHashMap<List<Class<?>>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY;
+
+    private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+
+    static {
+        DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+        DOCUMENT_BUILDER_FACTORY.setNamespaceAware(true);
+    }
+
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = new ThreadLocal<>();
+
+    private static final ThreadLocal<Transformer> TRANSFORMERS = new ThreadLocal<>();
+
+    private XMLPool() {
+    }
+
+    /**
+     * Returns a JAXB context for a set of classes, creating it on first use.
+     *
+     * @param classes Classes to be recognized by the context, in the order
+     * they would be passed to {@link JAXBContext#newInstance(java.lang.Class...)}
+     *
+     * @return Shared JAXB context
+     *
+     * @throws JAXBException
+     */
+    public static JAXBContext getJAXBContext(Class<?>... classes) throws JAXBException {
+
+        List<Class<?>> key = Arrays.asList(classes.clone());
+
+        JAXBContext ctx = JAXB_CONTEXTS.get(key);
+
+        if (ctx == null) {
+
+            ctx = JAXBContext.newInstance(classes);
+
+            JAXBContext prev = JAXB_CONTEXTS.putIfAbsent(key, ctx);
+
+            if (prev != null) {
+                ctx = prev;
+            }
+
+        }
+
+        return ctx;
+    }
+
+    /**
+     * Returns the namespace-aware DocumentBuilder of the calling thread.
+     *
+     * @return DocumentBuilder in its initial state
+     *
+     * @throws ParserConfigurationException
+     */
+    public static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+
+        DocumentBuilder db = DOCUMENT_BUILDERS.get();
+
+        if (db == null) {
+
+            synchronized (DOCUMENT_BUILDER_FACTORY) {
+                db = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            }
+
+            DOCUMENT_BUILDERS.set(db);
+
+        } else {
+
+            db.reset();
+
+        }
+
+        return db;
+    }
+
+    /**
+     * Creates an empty DOM Document.
+     *
+     * @return New Document
+     *
+     * @throws ParserConfigurationException
+     */
+    public static Document newDocument() throws ParserConfigurationException {
+        return getDocumentBuilder().newDocument();
+    }
+
+    /**
+     * Returns the identity Transformer of the calling thread.
+     *
+     * @return Transformer with no output properties or parameters set
+     *
+     * @throws TransformerConfigurationException
+     */
+    public static Transformer getTransformer() throws TransformerConfigurationException {
+
+        Transformer tr = TRANSFORMERS.get();
+
+        if (tr == null) {
+
+            synchronized (TRANSFORMER_FACTORY) {
+                tr = TRANSFORMER_FACTORY.newTransformer();
+            }
+
+            TRANSFORMERS.set(tr);
+
+        } else {
+
+            tr.reset();
+
+        }
+
+        return tr;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.util.xml;
+
+import java.io.Reader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Thread-safe pool of the StAX objects that are expensive to create.
+ *
+ * Unlike {@link XMLPool}, this class does not reference the javax.xml.bind
+ * package, and can therefore be used on platforms that do not provide JAXB.
+ */
+public final class XMLStreamPool {
+
+    private static final XMLInputFactory INPUT_FACTORY;
+
+    static {
+        INPUT_FACTORY = XMLInputFactory.newInstance();
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private XMLStreamPool() {
+    }
+
+    /**
+     * Creates a namespace-aware XMLStreamReader that coalesces adjacent text
+     * and does not process DTDs.
+     *
+     * @param reader Reader from which the XML document is read
+     *
+     * @return New XMLStreamReader
+     *
+     * @throws XMLStreamException
+     */
+    public static XMLStreamReader createXMLStreamReader(Reader reader) throws XMLStreamException {
+
+        synchronized (INPUT_FACTORY) {
+            return INPUT_FACTORY.createXMLStreamReader(reader);
+        }
+
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.klv.Group;
+import com.sandflow.smpte.klv.MemoryTriplet;
+import com.sandflow.smpte.klv.Triplet;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.definitions.CharacterTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.definitions.EnumerationTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.IntegerTypeDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.PropertyDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.StringTypeDefinition;
+import com.sandflow.smpte.util.AUID;
+import com.sandflow.smpte.util.UL;
+import com.sandflow.util.events.Event;
+import com.sandflow.util.events.EventHandler;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.Element;
+
+/**
+ * Exercises the decoding of individual values using a synthetic dictionary
+ */
+public class FragmentBuilderTest extends TestCase {
+
+    private static final URI NAMESPACE = URI.create("http://www.example.com/ns/test");
+
+    private static final String REGXML_NS = "http://sandflow.com/ns/SMPTEST2001-1/baseline";
+
+    private static final UL TEST_CLASS_UL = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0f000000.00000001");
+
+    private static final AUID UINT64_AUID = AUID.fromURN("urn:smpte:ul:060e2b34.01040101.0f000000.00000201");
+    private static final AUID INT8_AUID = AUID.fromURN("urn:smpte:ul:060e2b34.01040101.0f000000.00000202");
+    private static final AUID ENUM_AUID = AUID.fromURN("urn:smpte:ul:060e2b34.01040101.0f000000.00000203");
+    private static final AUID UTF8STRING_AUID = AUID.fromURN("urn:smpte:ul:060e2b34.01040101.0f000000.00000204");
+    private static final AUID UTF8CHARACTER_AUID = AUID.fromURN("urn:smpte:ul:060e2b34.01040101.01100500.00000000");
+
+    private MetaDictionaryCollection mds;
+
+    private List<Event> events;
+
+    public FragmentBuilderTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mds = new MetaDictionaryCollection();
+
+        ClassDefinition cdef = new ClassDefinition();
+        init(cdef, TEST_CLASS_UL.toString(), "TestObject");
+        cdef.setConcrete(true);
+        mds.addDefinition(cdef);
+
+        IntegerTypeDefinition uint64 = new IntegerTypeDefinition();
+        init(uint64, UINT64_AUID.toString(), "TestUInt64");
+        uint64.setSize(IntegerTypeDefinition.Size.EIGHT);
+        uint64.setSigned(false);
+        mds.addDefinition(uint64);
+
+        IntegerTypeDefinition int8 = new IntegerTypeDefinition();
+        init(int8, INT8_AUID.toString(), "TestInt8");
+        int8.setSize(IntegerTypeDefinition.Size.ONE);
+        int8.setSigned(true);
+        mds.addDefinition(int8);
+
+        EnumerationTypeDefinition.Element zero = new EnumerationTypeDefinition.Element();
+        zero.setName("Zero");
+        zero.setValue(0);
+
+        EnumerationTypeDefinition.Element one = new EnumerationTypeDefinition.Element();
+        one.setName("One");
+        one.setValue(1);
+
+        /* the values span too large a range to be mapped to a dense array */
+        EnumerationTypeDefinition.Element far = new EnumerationTypeDefinition.Element();
+        far.setName("Far");
+        far.setValue(100000);
+
+        EnumerationTypeDefinition wide = new EnumerationTypeDefinition(Arrays.asList(zero, one, far));
+        init(wide, ENUM_AUID.toString(), "TestWideEnum");
+        wide.setElementType(UINT64_AUID);
+        mds.addDefinition(wide);
+
+        CharacterTypeDefinition utf8char = new CharacterTypeDefinition();
+        init(utf8char, UTF8CHARACTER_AUID.toString(), "UTF8Character");
+        mds.addDefinition(utf8char);
+
+        StringTypeDefinition utf8string = new StringTypeDefinition();
+        init(utf8string, UTF8STRING_AUID.toString(), "TestUTF8String");
+        utf8string.setElementType(UTF8CHARACTER_AUID);
+        mds.addDefinition(utf8string);
+
+        addProperty(1, "Big", UINT64_AUID);
+        addProperty(2, "Small", INT8_AUID);
+        addProperty(3, "Empty", UINT64_AUID);
+        addProperty(4, "EmptyEnum", ENUM_AUID);
+        addProperty(5, "Narrow", ENUM_AUID);
+        addProperty(6, "Wide", ENUM_AUID);
+        addProperty(7, "Terminated", UTF8STRING_AUID);
+        addProperty(8, "Escaped", UTF8STRING_AUID);
+        addProperty(9, "Far", ENUM_AUID);
+        addProperty(10, "Missing", ENUM_AUID);
+
+        events = new ArrayList<>();
+    }
+
+    private static void init(Definition def, String urn, String symbol) {
+        def.setNamespace(NAMESPACE);
+        def.setIdentification(AUID.fromURN(urn));
+        def.setSymbol(symbol);
+        def.setName(symbol);
+    }
+
+    private void addProperty(int index, String symbol, AUID type) throws Exception {
+        PropertyDefinition pdef = new PropertyDefinition();
+        init(pdef, String.format("urn:smpte:ul:060e2b34.01010101.0f000000.000001%02x", index), symbol);
+        pdef.setType(type);
+        pdef.setOptional(true);
+        pdef.setLocalIdentification(0x8000 + index);
+        pdef.setMemberOf(new AUID(TEST_CLASS_UL));
+        mds.addDefinition(pdef);
+    }
+
+    private static MemoryTriplet item(int index, byte[] value) {
+        return new MemoryTriplet(
+            AUID.fromURN(String.format("urn:smpte:ul:060e2b34.01010101.0f000000.000001%02x", index)),
+            value
+        );
+    }
+
+    private Element fromItems(final Triplet... items) throws Exception {
+
+        Group group = new Group() {
+
+            @Override
+            public Collection<Triplet> getItems() {
+                return Arrays.asList(items);
+            }
+
+            @Override
+            public UL getKey() {
+                return TEST_CLASS_UL;
+            }
+        };
+
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+
+        EventHandler evthandler = new EventHandler() {
+
+            @Override
+            public boolean handle(Event evt) {
+                events.add(evt);
+                return true;
+            }
+        };
+
+        DocumentFragment df = new FragmentEngine(mds, null).fromTriplet(
+            group,
+            new HashMap<>(),
+            evthandler,
+            doc
+        );
+
+        return (Element) df.getFirstChild();
+    }
+
+    private static Element getProperty(Element obj, String symbol) {
+        return (Element) obj.getElementsByTagNameNS(NAMESPACE.toString(), symbol).item(0);
+    }
+
+    private Event getEvent(Enum code) {
+        for (Event evt : events) {
+            if (evt.getCode() == code) {
+                return evt;
+            }
+        }
+        return null;
+    }
+
+    public void testIntegers() throws Exception {
+
+        Element obj = fromItems(
+            item(1, new byte[]{-1, -1, -1, -1, -1, -1, -1, -1}),
+            item(2, new byte[]{-2})
+        );
+
+        /* unsigned 8-byte values are not interpreted as two's complement */
+        assertEquals("18446744073709551615", getProperty(obj, "Big").getTextContent());
+
+        assertEquals("-2", getProperty(obj, "Small").getTextContent());
+
+        assertTrue(events.isEmpty());
+    }
+
+    public void testIntegerNoData() throws Exception {
+
+        /* reading an empty value reaches the end of the stream immediately */
+        Element obj = fromItems(item(3, new byte[0]));
+
+        assertEquals("NaN", getProperty(obj, "Empty").getTextContent());
+
+        assertNotNull(getEvent(FragmentBuilder.EventCodes.VALUE_LENGTH_MISMATCH));
+    }
+
+    public void testEnumNoData() throws Exception {
+
+        Element obj = fromItems(item(4, new byte[0]));
+
+        assertEquals("ERROR", getProperty(obj, "EmptyEnum").getTextContent());
+
+        assertNotNull(getEvent(FragmentBuilder.EventCodes.VALUE_LENGTH_MISMATCH));
+    }
+
+    public void testWideEnum() throws Exception {
+
+        Element obj = fromItems(
+            item(5, new byte[]{0, 0, 0, 0, 0, 0, 0, 1}),
+            item(6, new byte[]{0, 0, 0, 1, 0, 0, 0, 1}),
+            item(9, new byte[]{0, 0, 0, 0, 0, 1, -122, -96}),
+            item(10, new byte[]{0, 0, 0, 0, 0, 0, 0, 2})
+        );
+
+        assertEquals("One", getProperty(obj, "Narrow").getTextContent());
+
+        assertEquals("Far", getProperty(obj, "Far").getTextContent());
+
+        assertEquals("UNDEFINED", getProperty(obj, "Missing").getTextContent());
+
+        /* the value is not truncated to its lower 32 bits */
+        assertEquals("UNDEFINED", getProperty(obj, "Wide").getTextContent());
+
+        Event evt = getEvent(FragmentBuilder.EventCodes.UNKNOWN_ENUM_VALUE);
+
+        assertNotNull(evt);
+        assertTrue(evt.getMessage().contains(Long.toString(0x100000001L)));
+    }
+
+    public void testStrings() throws Exception {
+
+        Element obj = fromItems(
+            item(7, "abc\0def".getBytes(StandardCharsets.UTF_8)),
+            item(8, "x\u0001$\u00e9\0y".getBytes(StandardCharsets.UTF_8))
+        );
+
+        /* strings stop at the first NUL character */
+        Element terminated = getProperty(obj, "Terminated");
+
+        assertEquals("abc", terminated.getTextContent());
+        assertFalse(terminated.hasAttributeNS(REGXML_NS, "escape"));
+
+        Element escaped = getProperty(obj, "Escaped");
+
+        assertEquals("x$#x1;$#x24;\u00e9", escaped.getTextContent());
+        assertEquals("true", escaped.getAttributeNS(REGXML_NS, "escape"));
+
+        assertTrue(events.isEmpty());
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import com.sandflow.smpte.regxml.dict.MetaDictionary;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.InputStream;
+import java.io.StringWriter;
+import javax.xml.parsers.DocumentBuilderFactory;
+import junit.framework.TestCase;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+
+public class FragmentCacheTest extends TestCase {
+
+    private MetaDictionaryCollection mds;
+
+    public FragmentCacheTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mds = new MetaDictionaryCollection();
+
+        for (File f : new File(ClassLoader.getSystemResource("regxml-dicts").toURI()).listFiles()) {
+            mds.addDictionary(MetaDictionary.fromXML(new FileReader(f)));
+        }
+    }
+
+    private void fromMXF(String spath, FragmentWriter writer) throws Exception {
+
+        InputStream is = ClassLoader.getSystemResourceAsStream(spath);
+        assertNotNull(is);
+
+        MXFFragmentBuilder.fromInputStream(is, mds, null, null, null, writer, null);
+    }
+
+    private void compareCachedVsDirect(String spath) throws Exception {
+
+        /* JSON generated directly from the MXF file */
+        StringWriter direct = new StringWriter();
+
+        fromMXF(spath, new JSONFragmentWriter(direct));
+
+        /* JSON generated from the cache */
+        ByteArrayOutputStream cache = new ByteArrayOutputStream();
+
+        try (FragmentCacheWriter cw = new FragmentCacheWriter(cache)) {
+            fromMXF(spath, cw);
+        }
+
+        StringWriter cached = new StringWriter();
+
+        FragmentCacheReader.read(new ByteArrayInputStream(cache.toByteArray()), new JSONFragmentWriter(cached));
+
+        assertEquals(direct.toString(), cached.toString());
+
+        /* DOM generated from the cache */
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+
+        DocumentFragment df = FragmentCacheReader.read(new ByteArrayInputStream(cache.toByteArray()), doc);
+
+        assertNotNull(df);
+        assertEquals("Preface", df.getFirstChild().getLocalName());
+    }
+
+    public void testVideo1() throws Exception {
+        compareCachedVsDirect("mxf-files/video1.mxf");
+    }
+
+    public void testUTF8() throws Exception {
+        compareCachedVsDirect("mxf-files/utf8_embedded_text.mxf");
+    }
+
+    public void testBadMagic() throws Exception {
+
+        try {
+            FragmentCacheReader.read(new ByteArrayInputStream(new byte[]{0, 1, 2, 3, 4}), new JSONFragmentWriter(new StringWriter()));
+            fail();
+        } catch (java.io.IOException e) {
+            /* expected */
+        }
+    }
+
+    private static void assertCorrupt(int... ops) throws Exception {
+
+        ByteArrayOutputStream cache = new ByteArrayOutputStream();
+
+        cache.write(FragmentCacheWriter.MAGIC);
+        cache.write(FragmentCacheWriter.VERSION);
+        cache.write(FragmentCacheWriter.START_FRAGMENT);
+
+        for (int op : ops) {
+            cache.write(op);
+        }
+
+        try {
+            FragmentCacheReader.read(new ByteArrayInputStream(cache.toByteArray()), new JSONFragmentWriter(new StringWriter()));
+            fail();
+        } catch (java.io.IOException e) {
+            /* expected */
+        }
+    }
+
+    public void testCorruptLengths() throws Exception {
+
+        /* negative string length */
+        assertCorrupt(FragmentCacheWriter.TEXT, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+
+        /* string length beyond the limit */
+        assertCorrupt(FragmentCacheWriter.TEXT, 0xFF, 0xFF, 0xFF, 0xFF, 0x07);
+
+        /* large string length with little data */
+        assertCorrupt(FragmentCacheWriter.COMMENT, 0xF0, 0xFF, 0xFF, 0xFF, 0x07, 'a', 'b');
+
+        /* string length with more than 32 bits */
+        assertCorrupt(FragmentCacheWriter.COMMENT, 0x80, 0x80, 0x80, 0x80, 0x10, FragmentCacheWriter.END);
+
+        /* negative name index */
+        assertCorrupt(FragmentCacheWriter.START_ELEMENT, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+
+        /* undefined name index */
+        assertCorrupt(FragmentCacheWriter.START_ELEMENT, 0x01);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml;
+
+import java.io.StringWriter;
+import junit.framework.TestCase;
+
+public class JSONFragmentWriterTest extends TestCase {
+
+    private static final String NS1 = "http://www.example.com/ns1";
+    private static final String NS2 = "http://www.example.com/ns2";
+
+    public JSONFragmentWriterTest(String testName) {
+        super(testName);
+    }
+
+    public void testStructure() throws Exception {
+
+        StringWriter sw = new StringWriter();
+
+        JSONFragmentWriter w = new JSONFragmentWriter(sw);
+
+        w.startFragment();
+        w.startElement(NS1, "Object");
+        w.startElement(NS2, "Property");
+        w.text("a\"b\\c\nd\u0001");
+        w.comment("note");
+        w.endElement();
+        w.startElement(NS2, "Empty");
+        w.endElement();
+        w.attribute(NS2, "uid", "1");
+        w.endElement();
+        w.endFragment();
+
+        assertEquals(
+            "{\"name\":\"r0:Object\",\"children\":["
+            + "{\"name\":\"r1:Property\",\"children\":[{\"comment\":\"note\"}],\"text\":\"a\\\"b\\\\c\\nd\\u0001\"},"
+            + "{\"name\":\"r1:Empty\"}],"
+            + "\"attributes\":{\"r1:uid\":\"1\"},"
+            + "\"namespaces\":{\"r0\":\"" + NS1 + "\",\"r1\":\"" + NS2 + "\"}}\n",
+            sw.toString()
+        );
+    }
+
+    public void testEmpty() throws Exception {
+
+        StringWriter sw = new StringWriter();
+
+        JSONFragmentWriter w = new JSONFragmentWriter(sw);
+
+        w.startFragment();
+        w.endFragment();
+
+        assertEquals("null\n", sw.toString());
+    }
+
+}
@@ -30,20 +30,38 @@ import com.sandflow.smpte.register.ElementsRegister;
 import com.sandflow.smpte.register.GroupsRegister;
 import com.sandflow.smpte.register.TypesRegister;
 import com.sandflow.smpte.register.exceptions.DuplicateEntryException;
+import com.sandflow.smpte.regxml.dict.DefinitionMetadataCache;
+import com.sandflow.smpte.regxml.dict.DefinitionSnapshot;
+import com.sandflow.smpte.regxml.dict.MetaDictionary;
 import com.sandflow.smpte.regxml.dict.MetaDictionaryCollection;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryPruner;
 import static com.sandflow.smpte.regxml.dict.importers.RegisterImporter.fromRegister;
+import com.sandflow.smpte.util.AUID;
 import com.sandflow.smpte.util.UL;
 import com.sandflow.util.events.Event;
 import com.sandflow.util.events.EventHandler;
+import com.sandflow.util.events.SeverityFilter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import javax.xml.bind.JAXBException;
 import javax.xml.parsers.DocumentBuilder;
@@ -75,6 +93,8 @@ public class MXFFragmentBuilderTest extends TestCase {
 
     private DocumentBuilder db;
 
+    private ForkJoinPool pool;
+
     public MXFFragmentBuilderTest(String testName) {
         super(testName);
     }
@@ -180,14 +200,22 @@ public class MXFFragmentBuilderTest extends TestCase {
         db = dbf.newDocumentBuilder();
 
         assertNotNull(db);
+
+        pool = new ForkJoinPool(4);
     }
 
     @Override
     protected void tearDown() throws Exception {
+        pool.shutdown();
+
         super.tearDown();
     }
 
     private void compareGeneratedVsRef(MetaDictionaryCollection mds, String spath, String refpath) throws IOException, SAXException, KLVException, MXFFragmentBuilder.MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
+        compareGeneratedVsRef(mds, spath, refpath, null);
+    }
+
+    private void compareGeneratedVsRef(MetaDictionaryCollection mds, String spath, String refpath, ForkJoinPool pool) throws IOException, SAXException, KLVException, MXFFragmentBuilder.MXFException, ParserConfigurationException, FragmentBuilder.RuleException {
 
         /* get the sample files */
         InputStream sampleis = ClassLoader.getSystemResourceAsStream(spath);
@@ -220,7 +248,7 @@ public class MXFFragmentBuilderTest extends TestCase {
             }
         };
 
-        DocumentFragment gendf = MXFFragmentBuilder.fromInputStream(sampleis, mds, null, evthandler, PREFACE_KEY, gendoc);
+        DocumentFragment gendf = MXFFragmentBuilder.fromInputStream(sampleis, mds, null, evthandler, PREFACE_KEY, gendoc, pool);
 
         assertNotNull(gendf);
 
@@ -328,6 +356,266 @@ public class MXFFragmentBuilderTest extends TestCase {
         compareGeneratedVsRef(mds_snapshot, "mxf-files/class14.mxf", "regxml-files/class14.xml");
     }
 
+    public void testVideo1AgainstCatsupInParallel() throws Exception {
+
+        compareGeneratedVsRef(mds_catsup, "mxf-files/video1.mxf", "regxml-files/video1.xml", pool);
+
+    }
+
+    public void testClass14AgainstSnapshotInParallel() throws Exception {
+
+        compareGeneratedVsRef(mds_snapshot, "mxf-files/class14.mxf", "regxml-files/class14.xml", pool);
+    }
+
+    private static int countDefinitions(MetaDictionaryCollection mds) {
+        int count = 0;
+
+        for (MetaDictionary md : mds.getDictionaries()) {
+            count += md.getDefinitions().size();
+        }
+
+        return count;
+    }
+
+    public void testPrunedDictionaries() throws Exception {
+
+        /* retain only the definitions used by the file */
+        MetaDictionaryPruner pruner = new MetaDictionaryPruner(mds_catsup);
+
+        try (InputStream is = ClassLoader.getSystemResourceAsStream("mxf-files/video1.mxf")) {
+
+            for (AUID key : MXFFragmentBuilder.getHeaderMetadataKeys(is, null)) {
+                pruner.retain(key, false);
+            }
+        }
+
+        MetaDictionaryCollection pruned = pruner.prune();
+
+        assertTrue(countDefinitions(pruned) < countDefinitions(mds_catsup));
+
+        compareGeneratedVsRef(pruned, "mxf-files/video1.mxf", "regxml-files/video1.xml");
+
+        /* retain everything reachable from the Preface class */
+        pruner = new MetaDictionaryPruner(mds_catsup);
+
+        assertTrue(pruner.retain(new AUID(PREFACE_KEY), true));
+
+        pruned = pruner.prune();
+
+        assertTrue(countDefinitions(pruned) < countDefinitions(mds_catsup));
+
+        compareGeneratedVsRef(pruned, "mxf-files/video2.mxf", "regxml-files/video2.xml");
+    }
+
+    private static int countComments(Node node) {
+        int count = node.getNodeType() == Node.COMMENT_NODE ? 1 : 0;
+
+        for (Node n = node.getFirstChild(); n != null; n = n.getNextSibling()) {
+            count += countComments(n);
+        }
+
+        return count;
+    }
+
+    private int countComments(MetaDictionaryCollection mds, String spath, EventHandler evthandler) throws Exception {
+        InputStream sampleis = ClassLoader.getSystemResourceAsStream(spath);
+        assertNotNull(sampleis);
+
+        Document gendoc = db.newDocument();
+
+        DocumentFragment gendf = MXFFragmentBuilder.fromInputStream(sampleis, mds, null, evthandler, PREFACE_KEY, gendoc);
+        assertNotNull(gendf);
+
+        return countComments(gendf);
+    }
+
+    public void testSeverityFilter() throws Exception {
+
+        final List<Event> evts = new ArrayList<>();
+
+        EventHandler evthandler = new EventHandler() {
+
+            @Override
+            public boolean handle(Event evt) {
+                evts.add(evt);
+                return true;
+            }
+        };
+
+        int allComments = countComments(mds_catsup, "mxf-files/indirect.mxf", evthandler);
+
+        int infoCount = 0;
+
+        for (Event evt : evts) {
+            if (evt.getSeverity() == Event.Severity.INFO) {
+                infoCount++;
+            }
+        }
+
+        assertTrue(infoCount > 0);
+
+        evts.clear();
+
+        int filteredComments = countComments(mds_catsup, "mxf-files/indirect.mxf", new SeverityFilter(Event.Severity.WARN, evthandler));
+
+        for (Event evt : evts) {
+            assertTrue(evt.getSeverity().compareTo(Event.Severity.WARN) >= 0);
+        }
+
+        assertTrue(filteredComments < allComments);
+    }
+
+    public void testIsInstanceOf() throws Exception {
+
+        UL interchangeObject = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01010100");
+        UL prefaceSet = UL.fromURN("urn:smpte:ul:060e2b34.02530101.0d010101.01012f00");
+        UL contentStorageSet = UL.fromURN("urn:smpte:ul:060e2b34.02530101.0d010101.01011800");
+
+        /* the ancestry is indexed by the collection cache and precomputed by snapshots */
+        for (DefinitionMetadataCache metacache : Arrays.asList(
+            DefinitionMetadataCache.getInstance(mds_catsup),
+            DefinitionMetadataCache.getInstance(DefinitionSnapshot.of(mds_catsup)))) {
+
+            assertTrue(metacache.isInstanceOf(prefaceSet, PREFACE_KEY));
+            assertTrue(metacache.isInstanceOf(prefaceSet, interchangeObject));
+            assertTrue(metacache.isInstanceOf(contentStorageSet, interchangeObject));
+            assertFalse(metacache.isInstanceOf(contentStorageSet, PREFACE_KEY));
+            assertFalse(metacache.isInstanceOf(UL.fromURN("urn:smpte:ul:060e2b34.01010101.01011502.00000000"), interchangeObject));
+        }
+    }
+
+    public void testMultipleRoots() throws Exception {
+
+        UL essenceDescriptor = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01012400");
+        UL interchangeObject = UL.fromURN("urn:smpte:ul:060e2b34.027f0101.0d010101.01010100");
+
+        Document gendoc = db.newDocument();
+
+        Map<UL, List<DocumentFragment>> dfs = MXFFragmentBuilder.fromInputStream(
+            ClassLoader.getSystemResourceAsStream("mxf-files/video1.mxf"),
+            new FragmentEngine(mds_catsup, null),
+            null,
+            Arrays.asList(PREFACE_KEY, essenceDescriptor, interchangeObject),
+            MXFFragmentBuilder.RootSelection.ALL,
+            gendoc
+        );
+
+        assertEquals(3, dfs.size());
+        assertEquals(1, dfs.get(PREFACE_KEY).size());
+        assertFalse(dfs.get(essenceDescriptor).isEmpty());
+        assertTrue(dfs.get(interchangeObject).size() > dfs.get(essenceDescriptor).size());
+
+        gendoc.appendChild(dfs.get(PREFACE_KEY).get(0));
+
+        Document refdoc = db.parse(ClassLoader.getSystemResourceAsStream("regxml-files/video1.xml"));
+
+        assertTrue(compareDOMElement(gendoc.getDocumentElement(), refdoc.getDocumentElement()));
+
+        dfs = MXFFragmentBuilder.fromInputStream(
+            ClassLoader.getSystemResourceAsStream("mxf-files/video1.mxf"),
+            new FragmentEngine(mds_catsup, null),
+            null,
+            Arrays.asList(essenceDescriptor, interchangeObject),
+            MXFFragmentBuilder.RootSelection.FIRST,
+            db.newDocument()
+        );
+
+        assertEquals(1, dfs.get(essenceDescriptor).size());
+        assertEquals(1, dfs.get(interchangeObject).size());
+    }
+
+    public void testSharedEngine() throws Exception {
+
+        final FragmentEngine engine = new FragmentEngine(mds_catsup, null);
+
+        ExecutorService es = Executors.newFixedThreadPool(4);
+
+        List<Future<Document>> results = new ArrayList<>();
+
+        try {
+
+            for (int i = 0; i < 8; i++) {
+
+                final Document gendoc = db.newDocument();
+
+                results.add(es.submit(new Callable<Document>() {
+
+                    @Override
+                    public Document call() throws Exception {
+                        InputStream sampleis = ClassLoader.getSystemResourceAsStream("mxf-files/video1.mxf");
+
+                        DOMFragmentWriter writer = new DOMFragmentWriter(gendoc);
+
+                        MXFFragmentBuilder.fromInputStream(sampleis, engine, null, PREFACE_KEY, writer);
+
+                        gendoc.appendChild(writer.getFragment());
+
+                        return gendoc;
+                    }
+                }));
+
+            }
+
+            Document refdoc = db.parse(ClassLoader.getSystemResourceAsStream("regxml-files/video1.xml"));
+
+            for (Future<Document> result : results) {
+                assertTrue(compareDOMElement(result.get().getDocumentElement(), refdoc.getDocumentElement()));
+            }
+
+        } finally {
+
+            es.shutdown();
+
+        }
+    }
+
+    public void testBatchExtractor() throws Exception {
+
+        final Map<Path, ByteArrayOutputStream> outputs = new ConcurrentHashMap<>();
+
+        List<Path> mxffiles = new ArrayList<>();
+
+        for (String name : new String[]{"video1", "video2", "audio1", "audio2"}) {
+            mxffiles.add(Paths.get(ClassLoader.getSystemResource("mxf-files/" + name + ".mxf").toURI()));
+        }
+
+        /* a small budget forces files to be processed one at a time */
+        try (BatchExtractor extractor = new BatchExtractor(new FragmentEngine(mds_catsup, null), 3, 1024)) {
+
+            int failures = extractor.extract(
+                mxffiles,
+                PREFACE_KEY,
+                BatchExtractor.Partition.AUTO,
+                BatchExtractor.Format.XML,
+                new BatchExtractor.OutputFactory() {
+
+                    @Override
+                    public OutputStream open(Path mxffile) throws IOException {
+                        ByteArrayOutputStream os = new ByteArrayOutputStream();
+                        outputs.put(mxffile, os);
+                        return os;
+                    }
+                },
+                null
+            );
+
+            assertEquals(0, failures);
+        }
+
+        assertEquals(mxffiles.size(), outputs.size());
+
+        for (Path mxffile : mxffiles) {
+
+            String name = mxffile.getFileName().toString().replace(".mxf", ".xml");
+
+            Document gendoc = db.parse(new ByteArrayInputStream(outputs.get(mxffile).toByteArray()));
+
+            Document refdoc = db.parse(ClassLoader.getSystemResourceAsStream("regxml-files/" + name));
+
+            assertTrue(compareDOMElement(gendoc.getDocumentElement(), refdoc.getDocumentElement()));
+        }
+    }
+
     public void testAudio1AgainstPonzu() throws Exception {
 
         compareGeneratedVsRef(mds_ponzu, "mxf-files/audio1.mxf", "regxml-files/audio1.xml");
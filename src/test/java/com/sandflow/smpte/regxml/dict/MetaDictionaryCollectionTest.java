@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.regxml.dict;
+
+import com.sandflow.smpte.regxml.dict.definitions.ClassDefinition;
+import com.sandflow.smpte.regxml.dict.definitions.Definition;
+import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
+import com.sandflow.smpte.util.AUID;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.Reader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Pierre-Anthony Lemieux (pal@sandflow.com)
+ */
+public class MetaDictionaryCollectionTest extends TestCase {
+
+    private List<Path> mdpaths;
+
+    private ExecutorService es;
+
+    public MetaDictionaryCollectionTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mdpaths = new ArrayList<>();
+
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(Paths.get(ClassLoader.getSystemResource("regxml-dicts").toURI()), "*.xml")) {
+
+            for (Path p : ds) {
+                mdpaths.add(p);
+            }
+
+        }
+
+        Collections.sort(mdpaths);
+
+        es = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        es.shutdown();
+
+        super.tearDown();
+    }
+
+    public void testLoad() throws Exception {
+
+        MetaDictionaryCollection seq = MetaDictionaryCollection.load(mdpaths, null);
+
+        MetaDictionaryCollection par = MetaDictionaryCollection.load(mdpaths, es);
+
+        assertEquals(mdpaths.size(), par.getDictionaries().size());
+
+        for (MetaDictionary md : seq.getDictionaries()) {
+
+            MetaDictionary pmd = null;
+
+            for (MetaDictionary candidate : par.getDictionaries()) {
+                if (candidate.getSchemeURI().equals(md.getSchemeURI())) {
+                    pmd = candidate;
+                }
+            }
+
+            assertNotNull(pmd);
+
+            assertEquals(md.getDefinitions().size(), pmd.getDefinitions().size());
+
+        }
+    }
+
+    public void testLoadDuplicate() throws Exception {
+
+        ArrayList<Path> paths = new ArrayList<>(mdpaths);
+
+        paths.add(mdpaths.get(0));
+
+        try {
+
+            MetaDictionaryCollection.load(paths, es);
+
+            fail("Duplicate MetaDictionary not detected");
+
+        } catch (IllegalDictionaryException e) {
+
+        }
+    }
+
+    public void testStAXParser() throws Exception {
+
+        for (Path mdpath : mdpaths) {
+
+            List<Path> paths = Collections.singletonList(mdpath);
+
+            /* the binary image captures every field of every definition */
+            ByteArrayOutputStream jaxb = new ByteArrayOutputStream();
+
+            MetaDictionaryImage.write(
+                MetaDictionaryCollection.load(paths, null, MetaDictionary.XMLParser.JAXB),
+                Collections.<File>emptyList(),
+                new byte[0],
+                jaxb
+            );
+
+            ByteArrayOutputStream stax = new ByteArrayOutputStream();
+
+            MetaDictionaryImage.write(
+                MetaDictionaryCollection.loadStAX(paths, null),
+                Collections.<File>emptyList(),
+                new byte[0],
+                stax
+            );
+
+            assertTrue(mdpath.toString(), Arrays.equals(jaxb.toByteArray(), stax.toByteArray()));
+        }
+    }
+
+    public void testStAXWithoutJAXB() throws Exception {
+
+        /* hides javax.xml.bind, which is otherwise provided by the platform */
+        ClassLoader platform = new ClassLoader(null) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (name.startsWith("javax.xml.bind.")) {
+                    throw new ClassNotFoundException(name);
+                }
+                return super.loadClass(name, resolve);
+            }
+        };
+
+        try (URLClassLoader cl = new URLClassLoader(
+            new URL[]{
+                MetaDictionaryCollection.class.getProtectionDomain().getCodeSource().getLocation(),
+                StAXLoad.class.getProtectionDomain().getCodeSource().getLocation()
+            },
+            platform)) {
+
+            try {
+                cl.loadClass("javax.xml.bind.JAXBException");
+                fail("JAXB not hidden");
+            } catch (ClassNotFoundException e) {
+            }
+
+            /* reflection on MetaDictionaryCollection itself would resolve the JAXBException of load() */
+            Class<?> c = cl.loadClass(StAXLoad.class.getName());
+
+            assertNotSame(StAXLoad.class, c);
+
+            @SuppressWarnings("unchecked")
+            Callable<Integer> load = (Callable<Integer>) c.getConstructor(Collection.class).newInstance(mdpaths);
+
+            assertEquals(mdpaths.size(), (int) load.call());
+        }
+    }
+
+    /**
+     * Loads MetaDictionaries using the StAX parser and returns their count
+     */
+    public static class StAXLoad implements Callable<Integer> {
+
+        private final Collection<Path> paths;
+
+        public StAXLoad(Collection<Path> paths) {
+            this.paths = paths;
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            return MetaDictionaryCollection.loadStAX(paths, null).getDictionaries().size();
+        }
+    }
+
+    public void testDefinitionIndex() throws Exception {
+
+        MetaDictionaryCollection mds = MetaDictionaryCollection.loadStAX(mdpaths.subList(1, mdpaths.size()), null);
+
+        /* populate the index before adding the last dictionary */
+        assertNull(mds.getDefinition(new AUID(new byte[16])));
+
+        DefinitionMetadataCache cache = DefinitionMetadataCache.getInstance(mds);
+
+        assertSame(cache, DefinitionMetadataCache.getInstance(mds));
+
+        MetaDictionary md0;
+
+        try (Reader reader = Files.newBufferedReader(mdpaths.get(0), StandardCharsets.UTF_8)) {
+            md0 = MetaDictionary.fromXMLStAX(reader);
+        }
+
+        /* a MetaDictionary also owns its cache */
+        DefinitionMetadataCache mdcache = DefinitionMetadataCache.getInstance(md0);
+
+        assertSame(mdcache, DefinitionMetadataCache.getInstance(md0));
+
+        ClassDefinition extra = new ClassDefinition();
+        extra.setNamespace(md0.getSchemeURI());
+        extra.setIdentification(AUID.fromURN("urn:smpte:ul:060e2b34.027f0101.0f000000.00000001"));
+        extra.setSymbol("ExtraClassForTest");
+        extra.setName("ExtraClassForTest");
+        extra.setConcrete(true);
+
+        md0.add(extra);
+
+        assertNotSame(mdcache, DefinitionMetadataCache.getInstance(md0));
+
+        mds.addDictionary(md0);
+
+        /* the cache is not reused once the collection changes */
+        assertNotSame(cache, DefinitionMetadataCache.getInstance(mds));
+
+        int count = 0;
+
+        for (MetaDictionary md : mds.getDictionaries()) {
+
+            for (Definition def : md.getDefinitions()) {
+
+                AUID id = def.getIdentification();
+
+                /* the first dictionary that defines the identification wins */
+                Definition expected = null;
+
+                for (MetaDictionary md2 : mds.getDictionaries()) {
+                    if ((expected = md2.getDefinition(id)) != null) {
+                        break;
+                    }
+                }
+
+                assertSame(expected, mds.getDefinition(id));
+
+                if (id.isUL()) {
+
+                    /* the version byte is ignored */
+                    byte[] value = id.getValue().clone();
+
+                    value[7] = (byte) (value[7] + 1);
+
+                    assertSame(expected, mds.getDefinition(new AUID(value)));
+                }
+
+                count++;
+            }
+        }
+
+        assertTrue(count > 0);
+    }
+
+    public void testSnapshot() throws Exception {
+
+        MetaDictionaryCollection mds = MetaDictionaryCollection.loadStAX(mdpaths, null);
+
+        DefinitionRegistry registry = new DefinitionRegistry(DefinitionSnapshot.of(mds));
+
+        DefinitionSnapshot snapshot = registry.getSnapshot();
+
+        assertSame(snapshot.getMetadataCache(), DefinitionMetadataCache.getInstance(snapshot));
+
+        /* the flattened hierarchy of the snapshot matches the one computed on demand */
+        DefinitionMetadataCache cache = new DefinitionMetadataCache(mds);
+
+        for (MetaDictionary md : mds.getDictionaries()) {
+
+            for (Definition def : md.getDefinitions()) {
+
+                assertSame(mds.getDefinition(def.getIdentification()), snapshot.getDefinition(def.getIdentification()));
+
+                if (def instanceof ClassDefinition) {
+
+                    ClassDefinition cdef = (ClassDefinition) def;
+
+                    assertEquals(new HashSet<>(mds.getMembersOf(cdef)), new HashSet<>(snapshot.getMembersOf(cdef)));
+                    assertEquals(new HashSet<>(mds.getSubclassesOf(cdef)), new HashSet<>(snapshot.getSubclassesOf(cdef)));
+
+                    if (mds.getDefinition(cdef.getIdentification()) == cdef) {
+                        assertEquals(cache.getAllMembersOf(cdef), snapshot.getAllMembersOf(cdef));
+                        assertEquals(new HashSet<>(cache.getAllSubclassesOf(cdef)), new HashSet<>(snapshot.getAllSubclassesOf(cdef)));
+                        assertSame(cache.getUniqueIdentifierOf(cdef), snapshot.getUniqueIdentifierOf(cdef));
+                    }
+                }
+            }
+        }
+
+        /* reloading replaces the snapshot without affecting the previous one */
+        Definition removed = mds.getDictionaries().iterator().next().getDefinitions().iterator().next();
+
+        List<Path> paths = new ArrayList<>();
+
+        for (Path p : mdpaths) {
+
+            try (Reader reader = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+
+                if (!MetaDictionary.fromXMLStAX(reader).getSchemeURI().equals(removed.getNamespace())) {
+                    paths.add(p);
+                }
+            }
+        }
+
+        DefinitionSnapshot reloaded = registry.reload(paths, es);
+
+        assertSame(reloaded, registry.getSnapshot());
+        assertNull(reloaded.getDefinition(removed.getIdentification()));
+        assertSame(removed, snapshot.getDefinition(removed.getIdentification()));
+
+        assertFalse(registry.update(snapshot, snapshot));
+        assertSame(reloaded, registry.update(snapshot));
+    }
+
+}
@@ -28,8 +28,14 @@ package com.sandflow.smpte.tools;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 
@@ -39,6 +45,7 @@ import javax.xml.transform.TransformerException;
 
 import com.sandflow.smpte.klv.exceptions.KLVException;
 import com.sandflow.smpte.regxml.FragmentBuilder;
+import com.sandflow.smpte.regxml.dict.MetaDictionaryImage;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDefinitionException;
 import com.sandflow.smpte.regxml.dict.exceptions.IllegalDictionaryException;
 
@@ -100,4 +107,133 @@ public class RegXMLDumpTest extends TestCase {
 
     }
 
+    private static String dump(String dict, String mxffile) throws Exception {
+
+        final PrintStream oldStdout = System.out;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true, "UTF-8"));
+
+        try {
+
+            RegXMLDump.main(new String[]{"-all", "-d", dict, "-i", mxffile});
+
+        } finally {
+
+            System.setOut(oldStdout);
+
+        }
+
+        /* remove the creation date */
+        return out.toString("UTF-8").replaceAll("<!--Created:[^>]*-->", "");
+    }
+
+    public void testMetadictionaryImage() throws Exception {
+
+        String dicts = Paths.get(ClassLoader.getSystemResource("regxml-dicts").toURI()).toString();
+        String mxffile = Paths.get(ClassLoader.getSystemResource("mxf-files/video1.mxf").toURI()).toString();
+
+        File image = File.createTempFile("regxml-dicts", MetaDictionaryImage.FILE_EXTENSION);
+
+        try {
+
+            CompileDictionaryImage.main(new String[]{"-d", dicts, "-o", image.getAbsolutePath()});
+
+            MetaDictionaryImage mdi;
+
+            try (InputStream is = new FileInputStream(image)) {
+                mdi = MetaDictionaryImage.read(is);
+            }
+
+            assertFalse(mdi.isStale());
+
+            assertEquals(dump(dicts, mxffile), dump(image.getAbsolutePath(), mxffile));
+
+        } finally {
+
+            image.delete();
+
+        }
+
+    }
+
+    public void testBatch() throws Exception {
+
+        String dicts = Paths.get(ClassLoader.getSystemResource("regxml-dicts").toURI()).toString();
+        Path mxffile = Paths.get(ClassLoader.getSystemResource("mxf-files/video1.mxf").toURI());
+
+        Path outputdir = Files.createTempDirectory("regxml-dumps");
+
+        try {
+
+            RegXMLDump.main(new String[]{"-all", "-d", dicts, "-b", mxffile.toString(), "-o", outputdir.toString()});
+
+            /* the extension of the MXF file is replaced */
+            Path dumpfile = outputdir.resolve("video1.xml");
+
+            assertTrue(Files.exists(dumpfile));
+
+            assertFalse(Files.exists(outputdir.resolve("video1.mxf.xml")));
+
+            /* batch and single-file modes produce the same output */
+            String batchdump = new String(Files.readAllBytes(dumpfile), StandardCharsets.UTF_8).replaceAll("<!--Created:[^>]*-->", "");
+
+            assertEquals(dump(dicts, mxffile.toString()), batchdump);
+
+        } finally {
+
+            deleteDirectory(outputdir);
+
+        }
+
+    }
+
+    public void testBatchCollision() throws Exception {
+
+        String dicts = Paths.get(ClassLoader.getSystemResource("regxml-dicts").toURI()).toString();
+        Path mxffile = Paths.get(ClassLoader.getSystemResource("mxf-files/video1.mxf").toURI());
+
+        Path inputdir = Files.createTempDirectory("regxml-mxf");
+        Path outputdir = Files.createTempDirectory("regxml-dumps");
+
+        try {
+
+            Files.copy(mxffile, inputdir.resolve("clip.mxf"));
+            Files.copy(mxffile, inputdir.resolve("clip.MXF"));
+
+            try {
+
+                RegXMLDump.main(new String[]{"-all", "-d", dicts, "-b", inputdir.resolve("clip.*").toString(), "-o", outputdir.toString()});
+
+                fail("Colliding output names not detected");
+
+            } catch (IOException e) {
+
+            }
+
+            assertFalse(Files.exists(outputdir.resolve("clip.xml")));
+
+        } finally {
+
+            deleteDirectory(inputdir);
+            deleteDirectory(outputdir);
+
+        }
+
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+
+        if (Files.exists(dir)) {
+
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path p : ds) {
+                    Files.delete(p);
+                }
+            }
+
+            Files.delete(dir);
+
+        }
+    }
+
 }
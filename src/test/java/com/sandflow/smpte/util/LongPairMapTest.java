@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * LongPairMap unit tests.
+ */
+public class LongPairMapTest extends TestCase {
+    
+    public LongPairMapTest(String testName) {
+        super(testName);
+    }
+    
+    public void testPutGetRemove() {
+        MutableLongPairMap<String> map = new MutableLongPairMap<>();
+        
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, 2, "a"));
+        assertNull(map.put(2, 1, "b"));
+        assertEquals("a", map.put(1, 2, "c"));
+        assertEquals("c", map.putIfAbsent(1, 2, "d"));
+        assertEquals(2, map.size());
+        assertEquals("c", map.get(1, 2));
+        assertEquals("b", map.get(2, 1));
+        assertNull(map.get(1, 1));
+        
+        assertEquals("c", map.remove(1, 2));
+        assertNull(map.remove(1, 2));
+        assertFalse(map.containsKey(1, 2));
+        assertEquals(1, map.size());
+        
+        byte[] key = UL.fromURN("urn:smpte:ul:060e2b34.01010101.01011502.00000000").getValue();
+        
+        map.put(key, "e");
+        assertEquals("e", map.get(key));
+        assertEquals("e", map.get(LongPairMap.high(key), LongPairMap.low(key)));
+    }
+    
+    public void testAgainstHashMap() {
+        Random rnd = new Random(0);
+        
+        MutableLongPairMap<Integer> map = new MutableLongPairMap<>();
+        Map<Map.Entry<Long, Long>, Integer> ref = new HashMap<>();
+        
+        for (int i = 0; i < 20000; i++) {
+            
+            /* narrow key space to exercise collisions and removals */
+            long hi = rnd.nextInt(64);
+            long lo = rnd.nextInt(256);
+            
+            Map.Entry<Long, Long> k = new AbstractMap.SimpleImmutableEntry<>(hi, lo);
+            
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(ref.remove(k), map.remove(hi, lo));
+            } else {
+                assertEquals(ref.put(k, i), map.put(hi, lo, i));
+            }
+            
+            assertEquals(ref.size(), map.size());
+        }
+        
+        ImmutableLongPairMap<Integer> imap = map.toImmutable();
+        
+        assertEquals(ref.size(), imap.size());
+        
+        for (Map.Entry<Map.Entry<Long, Long>, Integer> e : ref.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey().getKey(), e.getKey().getValue()));
+            assertEquals(e.getValue(), imap.get(e.getKey().getKey(), e.getKey().getValue()));
+        }
+        
+        /* the immutable map is not affected by later changes */
+        map.clear();
+        
+        assertTrue(map.isEmpty());
+        assertEquals(ref.size(), imap.size());
+    }
+    
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, Pierre-Anthony Lemieux (pal@sandflow.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.sandflow.smpte.util;
+
+import java.util.HashMap;
+import junit.framework.TestCase;
+
+public class ULTrieTest extends TestCase {
+
+    public ULTrieTest(String testName) {
+        super(testName);
+    }
+
+    public void testGet() {
+
+        HashMap<UL, String> entries = new HashMap<>();
+
+        entries.put(UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.02010100"), "A");
+        entries.put(UL.fromURN("urn:smpte:ul:060e2b34.04010103.0d010301.02010200"), "B");
+
+        ULTrie<String> trie = new ULTrie<>(entries);
+
+        assertEquals("A", trie.get(UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.02010100").getValue()));
+        assertNull(trie.get(UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.02010200").getValue()));
+        assertNull(trie.get(UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.02010300").getValue()));
+
+        assertEquals("A", trie.get(UL.fromURN("urn:smpte:ul:060e2b34.0401010d.0d010301.02010100").getValue(), ULTrie.IGNORE_VERSION_MASK));
+        assertEquals("B", trie.get(UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.02010200").getValue(), ULTrie.IGNORE_VERSION_MASK));
+        assertNull(trie.get(UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.02010300").getValue(), ULTrie.IGNORE_VERSION_MASK));
+
+        /* ignore the version byte and the last byte */
+        assertEquals("B", trie.get(UL.fromURN("urn:smpte:ul:060e2b34.04010101.0d010301.020102ff").getValue(), 0b1111111011111110));
+    }
+
+}